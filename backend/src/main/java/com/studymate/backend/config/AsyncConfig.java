@@ -2,17 +2,35 @@ package com.studymate.backend.config;
 
 import java.util.concurrent.Executor;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
 
+    @Autowired
+    private Environment environment;
+
+    @Value("${auth.hashing.threads:2}")
+    private int hashingThreads;
+
+    @Value("${auth.hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
     @Bean(name = "replyProcessingExecutor")
     public Executor replyProcessingExecutor() {
+        if (virtualThreads()) {
+            return new VirtualThreadTaskExecutor("ReplyProcessor-", 5, 100);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
         executor.setMaxPoolSize(5);
@@ -24,6 +42,9 @@ public class AsyncConfig {
 
     @Bean(name = "nlpProcessingExecutor")
     public Executor nlpProcessingExecutor() {
+        if (virtualThreads()) {
+            return new VirtualThreadTaskExecutor("NLPProcessor-", 3, 50);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(1);
         executor.setMaxPoolSize(3);
@@ -35,6 +56,9 @@ public class AsyncConfig {
 
     @Bean(name = "knowledgeGraphExecutor")
     public Executor knowledgeGraphExecutor() {
+        if (virtualThreads()) {
+            return new VirtualThreadTaskExecutor("KnowledgeGraph-", 2, 50);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(1);
         executor.setMaxPoolSize(2);
@@ -43,4 +67,75 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // Password hashing is CPU-bound, so it stays on a small platform pool even with virtual threads
+    @Bean(name = "passwordHashingExecutor")
+    public Executor passwordHashingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hashingThreads);
+        executor.setMaxPoolSize(hashingThreads);
+        executor.setQueueCapacity(hashingQueueCapacity);
+        executor.setThreadNamePrefix("PasswordHashing-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "taskOutboxScheduler")
+    public TaskScheduler taskOutboxScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("TaskOutbox-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    @Bean(name = "searchIndexScheduler")
+    public TaskScheduler searchIndexScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("SearchIndex-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    @Bean(name = "viewCountScheduler")
+    public TaskScheduler viewCountScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ViewCountFlush-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    @Bean(name = "threadPurgeScheduler")
+    public TaskScheduler threadPurgeScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ThreadPurge-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    @Bean(name = "webSocketBatchScheduler")
+    public TaskScheduler webSocketBatchScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("WebSocketBatch-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    @Bean(name = "refreshTokenScheduler")
+    public TaskScheduler refreshTokenScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("RefreshTokens-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    // spring.threads.virtual.enabled on a Java 21 runtime; Tomcat then also serves requests on virtual threads
+    private boolean virtualThreads() {
+        return Threading.VIRTUAL.isActive(environment);
+    }
 }
@@ -0,0 +1,229 @@
+package com.studymate.backend.config;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import com.studymate.backend.service.DiscussionFrameBatcher;
+import com.studymate.backend.service.WebSocketSessionMetrics;
+
+/**
+ * Per-session send buffer for STOMP clients. One thread at a time writes to
+ * the socket; every other outbound thread only appends to the buffer and
+ * returns, so a slow client never holds up sends to anyone else. A send
+ * stuck longer than the time limit closes the session. When the buffer
+ * passes its size limit, the overflow policy decides what to give up:
+ * the oldest broadcast frames (DROP), older frames superseded by a newer one
+ * with the same destination and coalesce key first (COALESCE), or the
+ * session (TERMINATE). Only frames that carry a coalesce key, such as a
+ * thread update delta, are ever superseded; replies and other distinct
+ * events are kept or dropped as under DROP.
+ */
+public class SlowConsumerSessionDecorator extends WebSocketSessionDecorator {
+
+    public enum OverflowPolicy {
+        DROP, COALESCE, TERMINATE
+    }
+
+    private static final String MESSAGE_FRAME = "MESSAGE\n";
+    private static final String DESTINATION_HEADER = "\ndestination:";
+    private static final String COALESCE_KEY_HEADER = "\n" + DiscussionFrameBatcher.COALESCE_KEY_HEADER + ":";
+
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final OverflowPolicy overflowPolicy;
+    private final WebSocketSessionMetrics metrics;
+
+    private final Deque<WebSocketMessage<?>> buffer = new ArrayDeque<>();
+    private int bufferSize;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile long sendStartTime;
+    private volatile boolean limitExceeded;
+    private volatile boolean closing;
+
+    public SlowConsumerSessionDecorator(WebSocketSession session, int sendTimeLimit, int bufferSizeLimit,
+            OverflowPolicy overflowPolicy, WebSocketSessionMetrics metrics) {
+        super(session);
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
+    }
+
+    public int getBufferSize() {
+        synchronized (buffer) {
+            return bufferSize;
+        }
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (limitExceeded || closing) {
+            return;
+        }
+
+        synchronized (buffer) {
+            buffer.add(message);
+            bufferSize += message.getPayloadLength();
+        }
+        metrics.frameBuffered(message.getPayloadLength());
+
+        do {
+            if (!flushLock.tryLock()) {
+                // Another thread is writing to this client; leave the frame to it
+                checkLimits();
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                flushLock.unlock();
+            }
+            // A frame added between the last poll and the unlock would otherwise wait for the next send
+        } while (hasBufferedFrames() && !limitExceeded && !closing);
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        closing = true;
+        discardBuffer();
+        super.close(status);
+    }
+
+    private void flush() throws IOException {
+        while (!closing) {
+            WebSocketMessage<?> message;
+            synchronized (buffer) {
+                message = buffer.poll();
+                if (message == null) {
+                    return;
+                }
+                bufferSize -= message.getPayloadLength();
+            }
+            metrics.frameSent(message.getPayloadLength());
+
+            sendStartTime = System.currentTimeMillis();
+            try {
+                getDelegate().sendMessage(message);
+            } finally {
+                sendStartTime = 0;
+            }
+        }
+    }
+
+    private void checkLimits() {
+        long sendStarted = sendStartTime;
+        if (sendStarted > 0 && System.currentTimeMillis() - sendStarted > sendTimeLimit) {
+            terminate("Send time " + (System.currentTimeMillis() - sendStarted) + " (ms) for session '" + getId()
+                    + "' exceeded the allowed limit " + sendTimeLimit);
+        }
+
+        synchronized (buffer) {
+            if (bufferSize <= bufferSizeLimit) {
+                return;
+            }
+            if (overflowPolicy == OverflowPolicy.COALESCE) {
+                coalesce();
+            }
+            if (overflowPolicy != OverflowPolicy.TERMINATE) {
+                dropOldest();
+            }
+            if (bufferSize <= bufferSizeLimit) {
+                return;
+            }
+        }
+        terminate("Buffer size " + getBufferSize() + " bytes for session '" + getId()
+                + "' exceeded the allowed limit " + bufferSizeLimit);
+    }
+
+    // Keeps only the newest buffered frame per destination and coalesce key; unkeyed frames are left alone
+    private void coalesce() {
+        Set<String> newerKeys = new HashSet<>();
+        Iterator<WebSocketMessage<?>> newestFirst = buffer.descendingIterator();
+        while (newestFirst.hasNext() && bufferSize > bufferSizeLimit) {
+            WebSocketMessage<?> message = newestFirst.next();
+            String destination = destinationOf(message);
+            String coalesceKey = destination != null ? headerOf(message, COALESCE_KEY_HEADER) : null;
+            if (coalesceKey != null && !newerKeys.add(destination + "\n" + coalesceKey)) {
+                newestFirst.remove();
+                bufferSize -= message.getPayloadLength();
+                metrics.frameCoalesced(message.getPayloadLength());
+            }
+        }
+    }
+
+    private void dropOldest() {
+        Iterator<WebSocketMessage<?>> oldestFirst = buffer.iterator();
+        while (oldestFirst.hasNext() && bufferSize > bufferSizeLimit) {
+            WebSocketMessage<?> message = oldestFirst.next();
+            if (destinationOf(message) != null) {
+                oldestFirst.remove();
+                bufferSize -= message.getPayloadLength();
+                metrics.frameDropped(message.getPayloadLength());
+            }
+        }
+    }
+
+    private void terminate(String reason) {
+        if (limitExceeded) {
+            return;
+        }
+        limitExceeded = true;
+        discardBuffer();
+        metrics.sessionTerminated();
+        // Caught by the sub-protocol handler, which closes the session
+        throw new SessionLimitExceededException(reason, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void discardBuffer() {
+        synchronized (buffer) {
+            for (WebSocketMessage<?> message : buffer) {
+                metrics.frameDropped(message.getPayloadLength());
+            }
+            buffer.clear();
+            bufferSize = 0;
+        }
+    }
+
+    private boolean hasBufferedFrames() {
+        synchronized (buffer) {
+            return !buffer.isEmpty();
+        }
+    }
+
+    // Destination of a STOMP MESSAGE frame, or null for control frames (receipts, errors, heartbeats)
+    private static String destinationOf(WebSocketMessage<?> message) {
+        return headerOf(message, DESTINATION_HEADER);
+    }
+
+    // A header of a STOMP MESSAGE frame, searched in the header block only
+    private static String headerOf(WebSocketMessage<?> message, String header) {
+        if (!(message instanceof TextMessage)) {
+            return null;
+        }
+        String payload = ((TextMessage) message).getPayload();
+        if (!payload.startsWith(MESSAGE_FRAME)) {
+            return null;
+        }
+        int headersEnd = payload.indexOf("\n\n");
+        int start = payload.indexOf(header);
+        if (start < 0 || (headersEnd >= 0 && start > headersEnd)) {
+            return null;
+        }
+        start += header.length();
+        int end = payload.indexOf('\n', start);
+        return payload.substring(start, end < 0 ? payload.length() : end);
+    }
+}
@@ -0,0 +1,54 @@
+package com.studymate.backend.config;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+/**
+ * Runs every task on its own virtual thread, with a semaphore in place of a
+ * pool size: at most concurrencyLimit tasks run at once and up to
+ * queueCapacity more wait, parked, for a permit. Submitting never blocks;
+ * past the queue capacity tasks are rejected, as with a full thread pool.
+ */
+public class VirtualThreadTaskExecutor implements TaskExecutor {
+
+    private final SimpleAsyncTaskExecutor threads;
+    private final Semaphore permits;
+    private final int concurrencyLimit;
+    private final int queueCapacity;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public VirtualThreadTaskExecutor(String threadNamePrefix, int concurrencyLimit, int queueCapacity) {
+        this.threads = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        this.threads.setVirtualThreads(true);
+        this.permits = new Semaphore(concurrencyLimit);
+        this.concurrencyLimit = concurrencyLimit;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (pending.incrementAndGet() > concurrencyLimit + queueCapacity) {
+            pending.decrementAndGet();
+            throw new RejectedExecutionException("Executor " + threads.getThreadNamePrefix() + " is saturated");
+        }
+
+        threads.execute(() -> {
+            try {
+                permits.acquire();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+}
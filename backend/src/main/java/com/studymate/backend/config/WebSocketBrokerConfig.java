@@ -0,0 +1,49 @@
+package com.studymate.backend.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import com.studymate.backend.service.WebSocketSessionMetrics;
+
+/**
+ * Enables the STOMP message broker (in place of @EnableWebSocketMessageBroker)
+ * so client sessions can be wrapped in SlowConsumerSessionDecorator instead
+ * of the default decorator, which can only drop or terminate and reports
+ * neither. Broker and transport settings stay in WebSocketConfig.
+ */
+@Configuration
+public class WebSocketBrokerConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Autowired
+    private WebSocketSessionMetrics webSocketSessionMetrics;
+
+    // drop, coalesce or terminate
+    @Value("${websocket.transport.overflow-policy:coalesce}")
+    private String overflowPolicy;
+
+    @Override
+    @Bean
+    public WebSocketHandler subProtocolWebSocketHandler(
+            @Qualifier("clientInboundChannel") AbstractSubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") AbstractSubscribableChannel clientOutboundChannel) {
+        SlowConsumerSessionDecorator.OverflowPolicy policy = SlowConsumerSessionDecorator.OverflowPolicy
+                .valueOf(overflowPolicy.trim().toUpperCase());
+
+        // Send time and buffer size limits are applied from WebSocketConfig's transport registration
+        return new SubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel) {
+            @Override
+            protected WebSocketSession decorateSession(WebSocketSession session) {
+                return new SlowConsumerSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit(),
+                        policy, webSocketSessionMetrics);
+            }
+        };
+    }
+}
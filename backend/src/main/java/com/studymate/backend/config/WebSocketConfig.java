@@ -1,24 +1,96 @@
 package com.studymate.backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+// The message broker itself is enabled by WebSocketBrokerConfig
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // simple: in-memory broker in this JVM (single node, local runs and tests); relay: external STOMP broker
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    // Bytes buffered per session for a client that reads slower than we send
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    // A single send blocked longer than this closes the session
+    @Value("${websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${websocket.outbound.core-pool-size:4}")
+    private int outboundCorePoolSize;
+
+    @Value("${websocket.outbound.max-pool-size:16}")
+    private int outboundMaxPoolSize;
+
+    @Value("${websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry config) {
-        // Enable a simple in-memory broker
-        config.enableSimpleBroker("/topic");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Relay subscriptions to a shared broker (RabbitMQ, ActiveMQ) so every node's clients see every message
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode);
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            // Enable a simple in-memory broker
+            config.enableSimpleBroker("/topic");
+        }
         // Set prefix for messages from client to server
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        // Slow clients only buffer, so a few threads keep every other session flowing
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
         // Register STOMP endpoint for WebSocket handshake
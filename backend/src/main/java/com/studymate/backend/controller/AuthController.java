@@ -1,12 +1,11 @@
 package com.studymate.backend.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,11 +16,16 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 
 import com.studymate.backend.dto.JwtResponse;
 import com.studymate.backend.dto.LoginRequest;
+import com.studymate.backend.dto.RefreshTokenRequest;
 import com.studymate.backend.dto.SignupRequest;
 import com.studymate.backend.model.User;
 import com.studymate.backend.repository.UserRepository;
 import com.studymate.backend.security.JwtUtils;
+import com.studymate.backend.service.PasswordHashingService;
+import com.studymate.backend.service.RefreshTokenService;
+import com.studymate.backend.service.UserPrincipalCache;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -29,47 +33,77 @@ import jakarta.validation.Valid;
 @RequestMapping("/api/auth")
 public class AuthController {
     @Autowired
-    AuthenticationManager authenticationManager;
+    PasswordHashingService passwordHashingService;
 
     @Autowired
-    UserRepository userRepository;
+    RefreshTokenService refreshTokenService;
 
     @Autowired
-    PasswordEncoder encoder;
+    UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    UserRepository userRepository;
 
     @Autowired
     JwtUtils jwtUtils;
 
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-
-        Authentication authentication = authenticationManager
-                .authenticate(new UsernamePasswordAuthenticationToken(
-                        loginRequest.getUsernameOrEmail(),
-                        loginRequest.getPassword()));
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+            HttpServletRequest request) {
+
+        // Verified on the bounded hashing pool, never on this request thread. The remote address is the
+        // forwarded client address (server.forward-headers-strategy), not the proxy's
+        Authentication authentication;
+        try {
+            authentication = passwordHashingService.authenticate(
+                    loginRequest.getUsernameOrEmail(),
+                    loginRequest.getPassword(),
+                    request.getRemoteAddr());
+        } catch (PasswordHashingService.LoginThrottledException e) {
+            return tooManyRequests(e);
+        }
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
-
-        User userDetails = (User) authentication.getPrincipal();
-
-        return ResponseEntity.ok(new JwtResponse(jwt,
-                userDetails.getId(),
-                userDetails.getUsername(),
-                userDetails.getEmail(),
-                userDetails.getFirstName(),
-                userDetails.getLastName(),
-                userDetails.getRole().name(),
-                userDetails.getProfilePhotoUrl(),
-                userDetails.getUniversityName(),
-                userDetails.getCurrentTerm(),
-                userDetails.getAcademicYear(),
-                userDetails.getMajor(),
-                userDetails.getYearOfStudy()));
+        User user = (User) authentication.getPrincipal();
+        RefreshTokenService.IssuedToken refreshToken = refreshTokenService.issue(user);
+
+        return ResponseEntity.ok(toJwtResponse(jwtUtils.generateAccessToken(user, refreshToken.getSessionId()),
+                refreshToken.getToken(), user));
+    }
+
+    /**
+     * Exchange a refresh token for a new access token and the next refresh
+     * token; no password hash involved
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        RefreshTokenService.IssuedToken refreshToken;
+        try {
+            refreshToken = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+        } catch (RefreshTokenService.RefreshInProgressException e) {
+            // The session is still valid; the concurrent refresh holds the current token
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Error: Refresh already in progress for this session");
+        }
+        User user = refreshToken != null ? userPrincipalCache.get(refreshToken.getUserId()) : null;
+        if (user == null) {
+            return ResponseEntity.status(401).body("Error: Refresh token is invalid or expired");
+        }
+
+        return ResponseEntity.ok(toJwtResponse(jwtUtils.generateAccessToken(user, refreshToken.getSessionId()),
+                refreshToken.getToken(), user));
+    }
+
+    @PostMapping("/signout")
+    public ResponseEntity<?> signOut(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        refreshTokenService.revoke(refreshRequest.getRefreshToken());
+        return ResponseEntity.ok("Signed out");
     }
 
     @PostMapping("/signup")
-    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+    public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest,
+            HttpServletRequest request) {
         if (userRepository.existsByUsername(signUpRequest.getUsername())) {
             return ResponseEntity.badRequest()
                     .body("Error: Username is already taken!");
@@ -80,10 +114,18 @@ public class AuthController {
                     .body("Error: Email is already in use!");
         }
 
+        String encodedPassword;
+        try {
+            encodedPassword = passwordHashingService.encode(signUpRequest.getUsername(),
+                    signUpRequest.getPassword(), request.getRemoteAddr());
+        } catch (PasswordHashingService.LoginThrottledException e) {
+            return tooManyRequests(e);
+        }
+
         // Create new user's account
         User user = new User(signUpRequest.getUsername(),
                 signUpRequest.getEmail(),
-                encoder.encode(signUpRequest.getPassword()),
+                encodedPassword,
                 signUpRequest.getFirstName(),
                 signUpRequest.getLastName());
 
@@ -98,23 +140,35 @@ public class AuthController {
             return ResponseEntity.status(401).body("User not authenticated");
         }
 
-        return ResponseEntity.ok(new JwtResponse(null, // No need to send token again
-                currentUser.getId(),
-                currentUser.getUsername(),
-                currentUser.getEmail(),
-                currentUser.getFirstName(),
-                currentUser.getLastName(),
-                currentUser.getRole().name(),
-                currentUser.getProfilePhotoUrl(),
-                currentUser.getUniversityName(),
-                currentUser.getCurrentTerm(),
-                currentUser.getAcademicYear(),
-                currentUser.getMajor(),
-                currentUser.getYearOfStudy()));
+        return ResponseEntity.ok(toJwtResponse(null, null, currentUser)); // No need to send token again
     }
 
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Auth service is running");
     }
+
+    private static ResponseEntity<?> tooManyRequests(PasswordHashingService.LoginThrottledException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Error: " + e.getMessage());
+    }
+
+    private static JwtResponse toJwtResponse(String jwt, String refreshToken, User user) {
+        JwtResponse response = new JwtResponse(jwt,
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getRole().name(),
+                user.getProfilePhotoUrl(),
+                user.getUniversityName(),
+                user.getCurrentTerm(),
+                user.getAcademicYear(),
+                user.getMajor(),
+                user.getYearOfStudy());
+        response.setRefreshToken(refreshToken);
+        return response;
+    }
 }
@@ -1,8 +1,10 @@
 package com.studymate.backend.controller;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -19,10 +21,12 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.studymate.backend.dto.CreateReplyRequest;
 import com.studymate.backend.dto.CreateThreadRequest;
+import com.studymate.backend.dto.CursorPage;
 import com.studymate.backend.dto.ReplyResponse;
 import com.studymate.backend.dto.ThreadResponse;
 import com.studymate.backend.model.User;
 import com.studymate.backend.service.DiscussionThreadService;
+import com.studymate.backend.service.TaskOutbox;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.validation.Valid;
@@ -35,6 +39,9 @@ public class DiscussionThreadController {
     @Autowired
     private DiscussionThreadService discussionThreadService;
 
+    @Autowired
+    private TaskOutbox taskOutbox;
+
     @PostConstruct
     public void init() {
         System.out.println("DiscussionThreadController initialized successfully!");
@@ -45,6 +52,20 @@ public class DiscussionThreadController {
         return ResponseEntity.ok("DiscussionThreadController is working!");
     }
 
+    // Queue depth, latency and failure counts of post-write processing
+    @GetMapping("/pipeline/stats")
+    public ResponseEntity<Map<String, Object>> getPipelineStats() {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "pipeline", taskOutbox.getStatistics()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()));
+        }
+    }
+
     // Thread endpoints
     @PostMapping("/threads")
     public ResponseEntity<Map<String, Object>> createThread(
@@ -83,6 +104,20 @@ public class DiscussionThreadController {
         }
     }
 
+    // Cursor-paginated variant for infinite scroll: no total count, constant cost per page
+    @GetMapping("/threads/scroll")
+    public ResponseEntity<Map<String, Object>> scrollThreads(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(sliceBody("threads", discussionThreadService.getThreadsAfter(cursor, size)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/courses")
     public ResponseEntity<Map<String, Object>> getAllCourses() {
         try {
@@ -97,6 +132,20 @@ public class DiscussionThreadController {
         }
     }
 
+    @GetMapping("/courses/suggest")
+    public ResponseEntity<Map<String, Object>> suggestCourses(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<Map<String, Object>> courses = discussionThreadService.suggestCourses(q, Math.min(limit, 50)).stream()
+                .map(match -> Map.<String, Object>of(
+                        "course", match.getName(),
+                        "threadCount", match.getWeight()))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "courses", courses));
+    }
+
     @GetMapping("/courses/{course}/topics")
     public ResponseEntity<Map<String, Object>> getTopicsByCourse(@PathVariable String course) {
         try {
@@ -216,6 +265,21 @@ public class DiscussionThreadController {
         }
     }
 
+    @GetMapping("/threads/course/{course}/scroll")
+    public ResponseEntity<Map<String, Object>> scrollThreadsByCourse(
+            @PathVariable String course,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(sliceBody("threads",
+                    discussionThreadService.getThreadsByCourseAfter(course, cursor, size)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/threads/topic/{topic}")
     public ResponseEntity<Map<String, Object>> getThreadsByTopic(
             @PathVariable String topic,
@@ -295,6 +359,22 @@ public class DiscussionThreadController {
         }
     }
 
+    @GetMapping("/threads/{threadId}/replies/scroll")
+    public ResponseEntity<Map<String, Object>> scrollRepliesByThread(
+            @PathVariable Long threadId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal User currentUser) {
+        try {
+            return ResponseEntity.ok(sliceBody("content",
+                    discussionThreadService.getRepliesByThreadAfter(threadId, cursor, size, currentUser)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/replies/{id}")
     public ResponseEntity<Map<String, Object>> deleteReply(
             @PathVariable Long id,
@@ -385,4 +465,28 @@ public class DiscussionThreadController {
                     "error", e.getMessage()));
         }
     }
+
+    @GetMapping("/threads/recent/scroll")
+    public ResponseEntity<Map<String, Object>> scrollRecentActivityThreads(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "5") int size) {
+        try {
+            return ResponseEntity.ok(sliceBody("threads",
+                    discussionThreadService.getRecentActivityThreadsAfter(cursor, size)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "error", e.getMessage()));
+        }
+    }
+
+    // nextCursor is null on the last slice, which Map.of does not allow
+    private static Map<String, Object> sliceBody(String contentKey, CursorPage<?> slice) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", true);
+        body.put(contentKey, slice.getContent());
+        body.put("nextCursor", slice.getNextCursor());
+        body.put("hasNext", slice.isHasNext());
+        return body;
+    }
 }
@@ -24,6 +24,7 @@ import com.studymate.backend.model.KnowledgeEntity;
 import com.studymate.backend.repository.KnowledgeEntityRepository;
 import com.studymate.backend.service.DiscussionThreadService;
 import com.studymate.backend.service.KnowledgeGraphService;
+import com.studymate.backend.service.TypeaheadService;
 
 @RestController
 @RequestMapping("/api/knowledge")
@@ -39,6 +40,9 @@ public class KnowledgeGraphController {
     @Autowired
     private DiscussionThreadService threadService;
 
+    @Autowired
+    private TypeaheadService typeaheadService;
+
     /**
      * Get knowledge summary for a specific thread
      */
@@ -81,12 +85,31 @@ public class KnowledgeGraphController {
             @RequestParam(defaultValue = "20") int size) {
 
         Pageable pageable = PageRequest.of(page, size);
+
+        // Names and descriptions both match here, with a real total; ranked name matches are /entities/suggest
         Page<KnowledgeEntity> entities = entityRepository.searchEntitiesWithRelations(query, pageable);
 
         Page<KnowledgeEntityResponse> response = entities.map(this::convertToResponse);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Typeahead suggestions for knowledge entity names
+     */
+    @GetMapping("/entities/suggest")
+    public ResponseEntity<List<Map<String, Object>>> suggestEntities(
+            @RequestParam(defaultValue = "") String query,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<Map<String, Object>> suggestions = typeaheadService.suggestEntities(query, Math.min(limit, 50)).stream()
+                .map(match -> Map.<String, Object>of(
+                        "id", match.getId(),
+                        "name", match.getName(),
+                        "type", match.getType() != null ? match.getType() : "",
+                        "frequency", match.getWeight()))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(suggestions);
+    }
+
     /**
      * Get most frequent knowledge entities
      */
@@ -34,7 +34,9 @@ public class ProfileController {
 
     @GetMapping
     public ResponseEntity<User> getProfile(@AuthenticationPrincipal User user) {
-        return ResponseEntity.ok(user);
+        // The principal may be a cached copy without the photo data
+        User current = userService.findById(user.getId());
+        return current != null ? ResponseEntity.ok(current) : ResponseEntity.notFound().build();
     }
 
     @PutMapping
@@ -42,6 +44,13 @@ public class ProfileController {
             @AuthenticationPrincipal User user,
             @Valid @RequestBody ProfileUpdateRequest request) {
 
+        // Update a fresh copy; the principal is shared and may be stale
+        User current = userService.findById(user.getId());
+        if (current == null) {
+            return ResponseEntity.notFound().build();
+        }
+        user = current;
+
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
         user.setEmail(request.getEmail());
@@ -77,6 +86,12 @@ public class ProfileController {
                 return ResponseEntity.badRequest().build();
             }
 
+            User current = userService.findById(user.getId());
+            if (current == null) {
+                return ResponseEntity.notFound().build();
+            }
+            user = current;
+
             // Store image as binary data in database
             user.setProfilePhotoData(file.getBytes());
             user.setProfilePhotoContentType(contentType);
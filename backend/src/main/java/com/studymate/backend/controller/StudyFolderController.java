@@ -6,6 +6,8 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -17,8 +19,10 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.studymate.backend.dto.CreateFolderRequest;
+import com.studymate.backend.dto.MoveMaterialsRequest;
 import com.studymate.backend.dto.StudyFolderDTO;
 import com.studymate.backend.dto.UpdateFolderRequest;
 import com.studymate.backend.model.User;
@@ -54,6 +58,21 @@ public class StudyFolderController {
         }
     }
 
+    /**
+     * Get the authenticated user's whole folder tree with counts and full paths
+     */
+    @GetMapping("/tree")
+    public ResponseEntity<List<StudyFolderDTO>> getFolderTree(@AuthenticationPrincipal User user) {
+        try {
+            logger.info("Getting folder tree for user {}", user.getUsername());
+            List<StudyFolderDTO> tree = studyFolderService.getFolderTree(user.getId());
+            return ResponseEntity.ok(tree);
+        } catch (Exception e) {
+            logger.error("Error getting folder tree for user {}: {}", user.getUsername(), e.getMessage(), e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
     /**
      * Get folder by ID with its contents (subfolders and materials)
      */
@@ -165,6 +184,54 @@ public class StudyFolderController {
         }
     }
 
+    /**
+     * Move several study materials to a folder at once
+     */
+    @PutMapping("/materials/move")
+    public ResponseEntity<?> moveMaterialsToFolder(
+            @Valid @RequestBody MoveMaterialsRequest request,
+            @AuthenticationPrincipal User user) {
+        try {
+            logger.info("Moving {} materials to folder {} for user {}", request.getMaterialIds().size(),
+                    request.getFolderId(), user.getUsername());
+            int moved = studyFolderService.moveMaterialsToFolder(request.getMaterialIds(), request.getFolderId(),
+                    user.getId());
+            return ResponseEntity.ok().body(moved + " materials moved successfully");
+        } catch (Exception e) {
+            logger.error("Error moving materials to folder {} for user {}: {}", request.getFolderId(),
+                    user.getUsername(), e.getMessage(), e);
+            return ResponseEntity.status(400).body("Failed to move materials: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Download a folder and everything below it as a ZIP archive, streamed as it is written
+     */
+    @GetMapping("/{folderId}/export")
+    public ResponseEntity<?> exportFolder(
+            @PathVariable Long folderId,
+            @AuthenticationPrincipal User user) {
+        try {
+            logger.info("Exporting folder {} for user {}", folderId, user.getUsername());
+            Optional<StudyFolderDTO> folderOpt = studyFolderService.getFolder(folderId, user.getId());
+
+            if (folderOpt.isEmpty()) {
+                return ResponseEntity.status(404).body("Folder not found");
+            }
+
+            Long userId = user.getId();
+            StreamingResponseBody body = out -> studyFolderService.exportFolderZip(folderId, userId, out);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType("application/zip"));
+            headers.setContentDispositionFormData("attachment", folderOpt.get().getName() + ".zip");
+            return ResponseEntity.ok().headers(headers).body(body);
+        } catch (Exception e) {
+            logger.error("Error exporting folder {} for user {}: {}", folderId, user.getUsername(), e.getMessage(), e);
+            return ResponseEntity.status(500).body("Failed to export folder: " + e.getMessage());
+        }
+    }
+
     /**
      * Search folders by name
      */
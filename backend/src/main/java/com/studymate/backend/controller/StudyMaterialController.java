@@ -1,7 +1,6 @@
 package com.studymate.backend.controller;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -58,10 +57,7 @@ public class StudyMaterialController {
         try {
             Long userId = user.getId();
 
-            List<StudyMaterial> materials = studyMaterialService.getUserMaterials(userId);
-            List<StudyMaterialResponse> responses = materials.stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
+            List<StudyMaterialResponse> responses = studyMaterialService.getUserMaterialListing(userId);
 
             return ResponseEntity.ok(responses);
         } catch (Exception e) {
@@ -76,10 +72,7 @@ public class StudyMaterialController {
         try {
             Long userId = user.getId();
 
-            List<StudyMaterial> materials = studyMaterialService.getMaterialsInFolder(folderId, userId);
-            List<StudyMaterialResponse> responses = materials.stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
+            List<StudyMaterialResponse> responses = studyMaterialService.getFolderMaterialListing(folderId, userId);
 
             return ResponseEntity.ok(responses);
         } catch (Exception e) {
@@ -92,10 +85,7 @@ public class StudyMaterialController {
         try {
             Long userId = user.getId();
 
-            List<StudyMaterial> materials = studyMaterialService.getMaterialsWithoutFolder(userId);
-            List<StudyMaterialResponse> responses = materials.stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
+            List<StudyMaterialResponse> responses = studyMaterialService.getUnorganizedMaterialListing(userId);
 
             return ResponseEntity.ok(responses);
         } catch (Exception e) {
@@ -150,10 +140,7 @@ public class StudyMaterialController {
         try {
             Long userId = user.getId();
 
-            List<StudyMaterial> materials = studyMaterialService.searchMaterials(query, userId);
-            List<StudyMaterialResponse> responses = materials.stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
+            List<StudyMaterialResponse> responses = studyMaterialService.searchMaterialListing(query, userId);
 
             return ResponseEntity.ok(responses);
         } catch (Exception e) {
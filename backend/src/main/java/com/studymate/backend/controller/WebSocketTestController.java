@@ -17,6 +17,7 @@ import com.studymate.backend.dto.ReplyResponse;
 import com.studymate.backend.dto.ThreadResponse;
 import com.studymate.backend.model.User;
 import com.studymate.backend.service.DiscussionWebSocketService;
+import com.studymate.backend.service.WebSocketSessionMetrics;
 
 @RestController
 @RequestMapping("/api/test")
@@ -26,6 +27,9 @@ public class WebSocketTestController {
     @Autowired
     private DiscussionWebSocketService webSocketService;
 
+    @Autowired
+    private WebSocketSessionMetrics webSocketSessionMetrics;
+
     // Test endpoint to manually trigger WebSocket events
     @PostMapping("/websocket/thread-created")
     public ResponseEntity<Map<String, Object>> testThreadCreated(
@@ -121,4 +125,12 @@ public class WebSocketTestController {
                     "error", e.getMessage()));
         }
     }
+
+    @GetMapping("/websocket/metrics")
+    public ResponseEntity<Map<String, Object>> getWebSocketMetrics() {
+        // Send buffer, drop and session counters of STOMP clients
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "metrics", webSocketSessionMetrics.getStatistics()));
+    }
 }
@@ -0,0 +1,46 @@
+package com.studymate.backend.dto;
+
+import java.util.List;
+
+/**
+ * One slice of a keyset-paginated listing. There is no total count; clients
+ * keep scrolling with nextCursor while hasNext is true.
+ */
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> content, String nextCursor, boolean hasNext) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
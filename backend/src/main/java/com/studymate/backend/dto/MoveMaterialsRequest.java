@@ -0,0 +1,42 @@
+package com.studymate.backend.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+public class MoveMaterialsRequest {
+
+    @NotEmpty(message = "At least one material is required")
+    @Size(max = 1000, message = "At most 1000 materials can be moved at once")
+    private List<Long> materialIds;
+
+    // Null moves the materials out of every folder
+    private Long folderId;
+
+    // Constructors
+    public MoveMaterialsRequest() {
+    }
+
+    public MoveMaterialsRequest(List<Long> materialIds, Long folderId) {
+        this.materialIds = materialIds;
+        this.folderId = folderId;
+    }
+
+    // Getters and Setters
+    public List<Long> getMaterialIds() {
+        return materialIds;
+    }
+
+    public void setMaterialIds(List<Long> materialIds) {
+        this.materialIds = materialIds;
+    }
+
+    public Long getFolderId() {
+        return folderId;
+    }
+
+    public void setFolderId(Long folderId) {
+        this.folderId = folderId;
+    }
+}
@@ -0,0 +1,19 @@
+package com.studymate.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class RefreshTokenRequest {
+    @NotBlank
+    private String refreshToken;
+
+    public RefreshTokenRequest() {
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -2,6 +2,8 @@ package com.studymate.backend.dto;
 
 import java.time.LocalDateTime;
 
+import com.studymate.backend.model.StudyMaterial;
+
 public class StudyMaterialDTO {
     private Long id;
     private String fileName;
@@ -40,6 +42,15 @@ public class StudyMaterialDTO {
         this.updatedAt = updatedAt;
     }
 
+    // For JPQL constructor expressions, which select metadata columns but never the file data
+    public StudyMaterialDTO(Long id, String fileName, String originalName, StudyMaterial.FileType fileType,
+            Long fileSize, String subject, String description, String category,
+            Long folderId, String folderName, String folderPath,
+            LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, fileName, originalName, fileType != null ? fileType.toString() : null, fileSize, subject,
+                description, category, folderId, folderName, folderPath, createdAt, updatedAt);
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
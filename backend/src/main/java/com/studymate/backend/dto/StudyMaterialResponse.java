@@ -2,6 +2,8 @@ package com.studymate.backend.dto;
 
 import java.time.LocalDateTime;
 
+import com.studymate.backend.model.StudyMaterial;
+
 public class StudyMaterialResponse {
     private Long id;
     private String fileName;
@@ -19,6 +21,29 @@ public class StudyMaterialResponse {
     public StudyMaterialResponse() {
     }
 
+    // For JPQL constructor expressions, which select metadata columns but never the file data
+    public StudyMaterialResponse(Long id, String fileName, String originalName, StudyMaterial.FileType fileType,
+            Long fileSize, String subject, String description, String category,
+            LocalDateTime createdAt, LocalDateTime updatedAt,
+            Long folderId, String folderName, String folderDescription) {
+        this.id = id;
+        this.fileName = fileName;
+        this.originalName = originalName;
+        this.fileType = fileType != null ? fileType.toString() : null;
+        this.fileSize = fileSize;
+        this.subject = subject;
+        this.description = description;
+        this.category = category;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        if (folderId != null) {
+            this.folder = new StudyFolderDTO();
+            this.folder.setId(folderId);
+            this.folder.setName(folderName);
+            this.folder.setDescription(folderDescription);
+        }
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
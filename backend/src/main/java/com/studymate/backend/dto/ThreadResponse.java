@@ -22,6 +22,11 @@ public class ThreadResponse {
     private Double knowledgeScore;
     private List<KnowledgeEntityResponse> knowledgeEntities;
 
+    // Search fields, only set on full-text search results; highlights wrap matches in <mark> tags
+    private Double searchRank;
+    private String highlightedTitle;
+    private String highlightedContent;
+
     // Constructors
     public ThreadResponse() {
     }
@@ -164,4 +169,28 @@ public class ThreadResponse {
     public void setKnowledgeEntities(List<KnowledgeEntityResponse> knowledgeEntities) {
         this.knowledgeEntities = knowledgeEntities;
     }
+
+    public Double getSearchRank() {
+        return searchRank;
+    }
+
+    public void setSearchRank(Double searchRank) {
+        this.searchRank = searchRank;
+    }
+
+    public String getHighlightedTitle() {
+        return highlightedTitle;
+    }
+
+    public void setHighlightedTitle(String highlightedTitle) {
+        this.highlightedTitle = highlightedTitle;
+    }
+
+    public String getHighlightedContent() {
+        return highlightedContent;
+    }
+
+    public void setHighlightedContent(String highlightedContent) {
+        this.highlightedContent = highlightedContent;
+    }
 }
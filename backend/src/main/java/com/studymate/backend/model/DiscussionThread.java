@@ -79,10 +79,16 @@ public class DiscussionThread {
     @Column(name = "is_moderated", nullable = false)
     private Boolean isModerated = false;
 
-    @Column(name = "view_count", nullable = false)
+    // Set on threads too large to delete inline; ThreadDeletionService purges them in the background
+    @Column(name = "is_deleted", nullable = false, columnDefinition = "boolean default false")
+    private Boolean isDeleted = false;
+
+    // Maintained only by ViewCountBuffer's relative updates, so entity saves never overwrite flushed views
+    @Column(name = "view_count", nullable = false, updatable = false)
     private Integer viewCount = 0;
 
-    @Column(name = "reply_count", nullable = false)
+    // Maintained by relative updates in DiscussionThreadRepository, so a stale entity save never loses a reply
+    @Column(name = "reply_count", nullable = false, updatable = false)
     private Integer replyCount = 0;
 
     @CreationTimestamp
@@ -93,7 +99,8 @@ public class DiscussionThread {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    @Column(name = "last_activity_at")
+    // Moves with reply_count, in the same statement
+    @Column(name = "last_activity_at", updatable = false)
     private LocalDateTime lastActivityAt;
 
     // Knowledge Graph relationships
@@ -201,6 +208,14 @@ public class DiscussionThread {
         this.isModerated = isModerated;
     }
 
+    public Boolean getIsDeleted() {
+        return isDeleted;
+    }
+
+    public void setIsDeleted(Boolean isDeleted) {
+        this.isDeleted = isDeleted;
+    }
+
     public Integer getViewCount() {
         return viewCount;
     }
@@ -264,20 +279,4 @@ public class DiscussionThread {
     public void setKnowledgeScore(Double knowledgeScore) {
         this.knowledgeScore = knowledgeScore;
     }
-
-    // Helper methods
-    public void incrementViewCount() {
-        this.viewCount++;
-    }
-
-    public void incrementReplyCount() {
-        this.replyCount++;
-        this.lastActivityAt = LocalDateTime.now();
-    }
-
-    public void decrementReplyCount() {
-        if (this.replyCount > 0) {
-            this.replyCount--;
-        }
-    }
 }
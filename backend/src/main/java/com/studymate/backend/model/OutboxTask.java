@@ -0,0 +1,146 @@
+package com.studymate.backend.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Post-write work (broadcasts, key phrase extraction, knowledge graph
+ * passes) recorded in the same transaction as the write that caused it.
+ * Rows are deleted once processed; FAILED rows have exhausted their retries
+ * and are kept for inspection.
+ */
+@Entity
+@Table(name = "outbox_tasks", indexes = {
+        @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_outbox_thread", columnList = "thread_id")
+})
+public class OutboxTask {
+
+    public enum Status {
+        PENDING, RUNNING, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "task_type", nullable = false, length = 50)
+    private String taskType;
+
+    @Column(name = "thread_id", nullable = false)
+    private Long threadId;
+
+    @Column(name = "reply_id")
+    private Long replyId;
+
+    // Higher runs first; broadcasts, then by the thread's activity when queued
+    @Column(nullable = false)
+    private Integer priority = 0;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // A RUNNING task whose lease has expired belonged to a worker that died; it is claimed again
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    // Constructors
+    public OutboxTask() {
+    }
+
+    public OutboxTask(String taskType, Long threadId, Long replyId, int priority, LocalDateTime nextAttemptAt) {
+        this.taskType = taskType;
+        this.threadId = threadId;
+        this.replyId = replyId;
+        this.priority = priority;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public String getTaskType() {
+        return taskType;
+    }
+
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public Long getReplyId() {
+        return replyId;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
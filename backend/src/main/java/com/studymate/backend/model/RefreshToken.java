@@ -0,0 +1,104 @@
+package com.studymate.backend.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A login session. The refresh token handed to the client is "id.secret";
+ * only the SHA-256 digest of the current secret is stored, and each refresh
+ * replaces it. Presenting the previous secret again means the token was
+ * copied, and the session is revoked.
+ */
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_token_user", columnList = "user_id"),
+        @Index(name = "idx_refresh_token_expires", columnList = "expires_at")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(name = "previous_token_hash", length = 64)
+    private String previousTokenHash;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Written in batches, so it trails actual use by up to the flush interval
+    @Column(name = "last_used_at")
+    private LocalDateTime lastUsedAt;
+
+    @Column(nullable = false)
+    private Boolean revoked = false;
+
+    // Time of the last rotation, so a late duplicate of the rotated-away token is not taken for reuse
+    @Column(name = "rotated_at")
+    private LocalDateTime rotatedAt;
+
+    // Constructors
+    public RefreshToken() {
+    }
+
+    public RefreshToken(Long userId, String tokenHash, LocalDateTime expiresAt) {
+        this.userId = userId;
+        this.tokenHash = tokenHash;
+        this.createdAt = LocalDateTime.now();
+        this.lastUsedAt = this.createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public String getPreviousTokenHash() {
+        return previousTokenHash;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public LocalDateTime getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public Boolean getRevoked() {
+        return revoked;
+    }
+
+    public LocalDateTime getRotatedAt() {
+        return rotatedAt;
+    }
+}
@@ -56,6 +56,21 @@ public class StudyFolder {
     @JsonIgnore
     private List<StudyMaterial> studyMaterials = new ArrayList<>();
 
+    // Ids from the root down to this folder, e.g. "/1/5/9/"; whole subtrees are found and moved by prefix.
+    // Maintained by StudyFolderRepository statements, never by entity saves.
+    @Column(name = "path", length = 1000, updatable = false)
+    private String path;
+
+    @Column(name = "depth", updatable = false)
+    private Integer depth;
+
+    // Direct children, adjusted by relative updates next to the writes that change them
+    @Column(name = "material_count", updatable = false)
+    private Integer materialCount = 0;
+
+    @Column(name = "sub_folder_count", updatable = false)
+    private Integer subFolderCount = 0;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -157,6 +172,30 @@ public class StudyFolder {
         this.studyMaterials = studyMaterials;
     }
 
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public Integer getDepth() {
+        return depth;
+    }
+
+    public void setDepth(Integer depth) {
+        this.depth = depth;
+    }
+
+    public Integer getMaterialCount() {
+        return materialCount;
+    }
+
+    public Integer getSubFolderCount() {
+        return subFolderCount;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -194,6 +233,24 @@ public class StudyFolder {
         material.setFolder(null);
     }
 
+    // Ids of this folder's ancestors, root first, followed by its own
+    public List<Long> getPathIds() {
+        return parsePathIds(path);
+    }
+
+    public static List<Long> parsePathIds(String path) {
+        List<Long> ids = new ArrayList<>();
+        if (path == null) {
+            return ids;
+        }
+        for (String part : path.split("/")) {
+            if (!part.isEmpty()) {
+                ids.add(Long.valueOf(part));
+            }
+        }
+        return ids;
+    }
+
     // Get full path of the folder - safe version that doesn't trigger lazy loading
     public String getFullPath() {
         if (parentFolder == null || !Hibernate.isInitialized(parentFolder)) {
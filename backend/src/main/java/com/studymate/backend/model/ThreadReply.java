@@ -14,6 +14,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -22,7 +23,9 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 
 @Entity
-@Table(name = "thread_replies")
+@Table(name = "thread_replies", indexes = {
+        @Index(name = "idx_reply_thread_created", columnList = "thread_id, created_at, id")
+})
 public class ThreadReply {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -1,11 +1,15 @@
 package com.studymate.backend.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
@@ -23,29 +27,38 @@ public interface DiscussionThreadRepository extends JpaRepository<DiscussionThre
         @NonNull
         Page<DiscussionThread> findAll(@NonNull Pageable pageable);
 
+        // Threads waiting to be purged (is_deleted = true) are hidden from every listing,
+        // search and lookup below; the entity itself stays loadable through reply associations
+        @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
+        Page<DiscussionThread> findByIsDeletedFalse(Pageable pageable);
+
+        Optional<DiscussionThread> findByIdAndIsDeletedFalse(Long id);
+
+        boolean existsByIdAndIsDeletedFalse(Long id);
+
         // Find threads by course - optimized with EntityGraph
         @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
-        Page<DiscussionThread> findByCourseOrderByLastActivityAtDesc(String course, Pageable pageable);
+        Page<DiscussionThread> findByCourseAndIsDeletedFalseOrderByLastActivityAtDesc(String course, Pageable pageable);
 
         // Find threads by topic - optimized with EntityGraph
         @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
-        Page<DiscussionThread> findByTopicOrderByLastActivityAtDesc(String topic, Pageable pageable);
+        Page<DiscussionThread> findByTopicAndIsDeletedFalseOrderByLastActivityAtDesc(String topic, Pageable pageable);
 
         // Find threads by course and topic - optimized with EntityGraph
         @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
-        Page<DiscussionThread> findByCourseAndTopicOrderByLastActivityAtDesc(String course, String topic,
+        Page<DiscussionThread> findByCourseAndTopicAndIsDeletedFalseOrderByLastActivityAtDesc(String course, String topic,
                         Pageable pageable);
 
         // Find threads by author - optimized with EntityGraph
         @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
-        Page<DiscussionThread> findByAuthorOrderByCreatedAtDesc(User author, Pageable pageable);
+        Page<DiscussionThread> findByAuthorAndIsDeletedFalseOrderByCreatedAtDesc(User author, Pageable pageable);
 
         // Search threads by title or content - optimized
         @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
         @Query("SELECT t FROM DiscussionThread t WHERE " +
                         "(LOWER(t.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
                         "LOWER(t.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
-                        "t.isModerated = false " +
+                        "t.isModerated = false AND t.isDeleted = false " +
                         "ORDER BY t.lastActivityAt DESC")
         Page<DiscussionThread> searchThreads(@Param("searchTerm") String searchTerm, Pageable pageable);
 
@@ -57,7 +70,7 @@ public interface DiscussionThreadRepository extends JpaRepository<DiscussionThre
                         "(LOWER(t2.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
                         "LOWER(t2.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
                         "LOWER(r.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
-                        "t2.isModerated = false AND " +
+                        "t2.isModerated = false AND t2.isDeleted = false AND " +
                         "(r.isDeleted = false OR r IS NULL) AND " +
                         "(r.isModerated = false OR r IS NULL)" +
                         ") " +
@@ -74,7 +87,7 @@ public interface DiscussionThreadRepository extends JpaRepository<DiscussionThre
                         "LOWER(r.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
                         "LOWER(ke.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
                         "LOWER(ke.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
-                        "t2.isModerated = false AND " +
+                        "t2.isModerated = false AND t2.isDeleted = false AND " +
                         "(r.isDeleted = false OR r IS NULL) AND " +
                         "(r.isModerated = false OR r IS NULL)" +
                         ") " +
@@ -96,7 +109,7 @@ public interface DiscussionThreadRepository extends JpaRepository<DiscussionThre
                         "t.course = :course AND " +
                         "(LOWER(t.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
                         "LOWER(t.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
-                        "t.isModerated = false " +
+                        "t.isModerated = false AND t.isDeleted = false " +
                         "ORDER BY t.lastActivityAt DESC")
         Page<DiscussionThread> searchThreadsByCourse(@Param("course") String course,
                         @Param("searchTerm") String searchTerm,
@@ -114,7 +127,7 @@ public interface DiscussionThreadRepository extends JpaRepository<DiscussionThre
                         "LOWER(r.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
                         "LOWER(ke.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
                         "LOWER(ke.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) AND " +
-                        "t2.isModerated = false AND " +
+                        "t2.isModerated = false AND t2.isDeleted = false AND " +
                         "(r.isDeleted = false OR r IS NULL) AND " +
                         "(r.isModerated = false OR r IS NULL)" +
                         ") " +
@@ -134,24 +147,123 @@ public interface DiscussionThreadRepository extends JpaRepository<DiscussionThre
 
         // Find pinned threads - optimized
         @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
-        Page<DiscussionThread> findByIsPinnedTrueOrderByCreatedAtDesc(Pageable pageable);
+        Page<DiscussionThread> findByIsPinnedTrueAndIsDeletedFalseOrderByCreatedAtDesc(Pageable pageable);
 
         // Find pinned threads by course - optimized
         @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
-        Page<DiscussionThread> findByCourseAndIsPinnedTrueOrderByCreatedAtDesc(String course, Pageable pageable);
+        Page<DiscussionThread> findByCourseAndIsPinnedTrueAndIsDeletedFalseOrderByCreatedAtDesc(String course, Pageable pageable);
 
         // Get all unique courses
-        @Query("SELECT DISTINCT t.course FROM DiscussionThread t ORDER BY t.course")
+        @Query("SELECT DISTINCT t.course FROM DiscussionThread t WHERE t.isDeleted = false ORDER BY t.course")
         List<String> findAllUniqueCourses();
 
+        // Thread count per course, for course typeahead
+        @Query("SELECT t.course, COUNT(t) FROM DiscussionThread t WHERE t.isDeleted = false GROUP BY t.course")
+        List<Object[]> countThreadsByCourse();
+
         // Get all unique topics for a course
-        @Query("SELECT DISTINCT t.topic FROM DiscussionThread t WHERE t.course = :course ORDER BY t.topic")
+        @Query("SELECT DISTINCT t.topic FROM DiscussionThread t WHERE t.course = :course AND t.isDeleted = false " +
+                        "ORDER BY t.topic")
         List<String> findUniqueTopicsByCourse(@Param("course") String course);
 
         // Find threads that need moderation
-        Page<DiscussionThread> findByIsModeratedTrueOrderByCreatedAtDesc(Pageable pageable);
+        Page<DiscussionThread> findByIsModeratedTrueAndIsDeletedFalseOrderByCreatedAtDesc(Pageable pageable);
 
         // Get recent activity threads (for dashboard)
-        @Query("SELECT t FROM DiscussionThread t WHERE t.isModerated = false ORDER BY t.lastActivityAt DESC")
+        @Query("SELECT t FROM DiscussionThread t WHERE t.isModerated = false AND t.isDeleted = false " +
+                        "ORDER BY t.lastActivityAt DESC")
         Page<DiscussionThread> findRecentActivityThreads(Pageable pageable);
+
+        // Keyset pages of (id, lastActivityAt) rows, newest activity first. Keys are fetched
+        // alone so the limit runs in the database against the last_activity_at indexes; no count query
+        @Query("SELECT t.id, t.lastActivityAt FROM DiscussionThread t WHERE t.isDeleted = false AND " +
+                        "(t.lastActivityAt < :before OR (t.lastActivityAt = :before AND t.id < :beforeId)) " +
+                        "ORDER BY t.lastActivityAt DESC, t.id DESC")
+        List<Object[]> findKeysByActivityBefore(@Param("before") LocalDateTime before, @Param("beforeId") Long beforeId,
+                        Pageable pageable);
+
+        @Query("SELECT t.id, t.lastActivityAt FROM DiscussionThread t WHERE t.course = :course AND t.isDeleted = false AND " +
+                        "(t.lastActivityAt < :before OR (t.lastActivityAt = :before AND t.id < :beforeId)) " +
+                        "ORDER BY t.lastActivityAt DESC, t.id DESC")
+        List<Object[]> findKeysByCourseAndActivityBefore(@Param("course") String course,
+                        @Param("before") LocalDateTime before, @Param("beforeId") Long beforeId, Pageable pageable);
+
+        @Query("SELECT t.id, t.lastActivityAt FROM DiscussionThread t WHERE t.isModerated = false AND t.isDeleted = false AND " +
+                        "(t.lastActivityAt < :before OR (t.lastActivityAt = :before AND t.id < :beforeId)) " +
+                        "ORDER BY t.lastActivityAt DESC, t.id DESC")
+        List<Object[]> findRecentActivityKeysBefore(@Param("before") LocalDateTime before,
+                        @Param("beforeId") Long beforeId, Pageable pageable);
+
+        // Load a page of search hits by id - optimized with EntityGraph
+        @EntityGraph(attributePaths = { "author", "knowledgeEntities" })
+        List<DiscussionThread> findByIdIn(Collection<Long> ids);
+
+        // Thread text as (id, course, isModerated, title, content) rows, for building the embedded search index
+        @Query("SELECT t.id, t.course, t.isModerated, t.title, t.content FROM DiscussionThread t " +
+                        "WHERE t.isDeleted = false ORDER BY t.id")
+        List<Object[]> findSearchableThreadText(Pageable pageable);
+
+        // Linked entity text as (threadId, entityId, name, description) rows, for the embedded search index
+        @Query("SELECT t.id, ke.id, ke.name, ke.description FROM DiscussionThread t " +
+                        "JOIN t.knowledgeEntities ke WHERE t.isDeleted = false ORDER BY t.id, ke.id")
+        List<Object[]> findSearchableEntityText(Pageable pageable);
+
+        @Query("SELECT t.id FROM DiscussionThread t WHERE t.isDeleted = false")
+        List<Long> findAllIds();
+
+        @Query("SELECT t.id FROM DiscussionThread t WHERE t.updatedAt > :since OR t.createdAt > :since")
+        List<Long> findIdsUpdatedSince(@Param("since") LocalDateTime since);
+
+        @Query("SELECT t.id, t.course, t.isModerated, t.title, t.content FROM DiscussionThread t " +
+                        "WHERE t.id IN :ids AND t.isDeleted = false")
+        List<Object[]> findSearchableThreadTextByIds(@Param("ids") Collection<Long> ids);
+
+        @Query("SELECT MAX(t.id) FROM DiscussionThread t")
+        Long findMaxId();
+
+        // Thread text as (id, title, content) rows in id order, for seeding key phrase document frequencies
+        @Query("SELECT t.id, t.title, t.content FROM DiscussionThread t " +
+                        "WHERE t.id > :afterId AND t.id <= :maxId AND t.isDeleted = false ORDER BY t.id")
+        List<Object[]> findKeyPhraseTextAfter(@Param("afterId") Long afterId, @Param("maxId") Long maxId,
+                        Pageable pageable);
+
+        @Query("SELECT t.id, ke.id, ke.name, ke.description FROM DiscussionThread t " +
+                        "JOIN t.knowledgeEntities ke WHERE t.id IN :ids AND t.isDeleted = false")
+        List<Object[]> findSearchableEntityTextByThreadIds(@Param("ids") Collection<Long> ids);
+
+        // Link entities to a thread without loading its entity collection; existing links are skipped
+        @Modifying
+        @Query(value = "INSERT INTO thread_knowledge_entities (thread_id, entity_id) " +
+                        "SELECT :threadId, e.id FROM knowledge_entities e WHERE e.id IN (:entityIds) " +
+                        "AND NOT EXISTS (SELECT 1 FROM thread_knowledge_entities l " +
+                        "WHERE l.thread_id = :threadId AND l.entity_id = e.id)", nativeQuery = true)
+        int linkKnowledgeEntities(@Param("threadId") Long threadId, @Param("entityIds") Collection<Long> entityIds);
+
+        // Set-based thread deletion, run after its replies are gone
+        @Modifying
+        @Query(value = "DELETE FROM thread_knowledge_entities WHERE thread_id = :threadId", nativeQuery = true)
+        int deleteKnowledgeEntityLinks(@Param("threadId") Long threadId);
+
+        @Modifying
+        @Query(value = "DELETE FROM discussion_threads WHERE id = :threadId", nativeQuery = true)
+        int deleteThreadRow(@Param("threadId") Long threadId);
+
+        @Modifying
+        @Query(value = "UPDATE discussion_threads SET is_deleted = true WHERE id = :threadId", nativeQuery = true)
+        int markDeleted(@Param("threadId") Long threadId);
+
+        // Relative counter updates; entity saves never write reply_count or last_activity_at
+        @Modifying
+        @Query(value = "UPDATE discussion_threads SET reply_count = reply_count + 1, last_activity_at = :now " +
+                        "WHERE id = :threadId", nativeQuery = true)
+        int incrementReplyCount(@Param("threadId") Long threadId, @Param("now") LocalDateTime now);
+
+        @Modifying
+        @Query(value = "UPDATE discussion_threads SET reply_count = GREATEST(reply_count - 1, 0) WHERE id = :threadId",
+                        nativeQuery = true)
+        int decrementReplyCount(@Param("threadId") Long threadId);
+
+        @Query(value = "SELECT id FROM discussion_threads WHERE is_deleted = true ORDER BY id LIMIT :limit",
+                        nativeQuery = true)
+        List<Long> findSoftDeletedIds(@Param("limit") int limit);
 }
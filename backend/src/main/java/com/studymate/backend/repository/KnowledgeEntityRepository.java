@@ -89,4 +89,8 @@ public interface KnowledgeEntityRepository extends JpaRepository<KnowledgeEntity
                         "LEFT JOIN FETCH ke.relatedThreads " +
                         "WHERE ke.id = :entityId")
         Optional<KnowledgeEntity> findByIdWithRelations(@Param("entityId") Long entityId);
+
+        // Typeahead rows as (id, name, entityType, frequencyCount), loaded in pages at startup
+        @Query("SELECT ke.id, ke.name, ke.entityType, ke.frequencyCount FROM KnowledgeEntity ke ORDER BY ke.id")
+        List<Object[]> findTypeaheadRows(Pageable pageable);
 }
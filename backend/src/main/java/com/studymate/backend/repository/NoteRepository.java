@@ -3,6 +3,7 @@ package com.studymate.backend.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -26,4 +27,10 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
 
     @Query("SELECT DISTINCT n.category FROM Note n WHERE n.user = :user AND n.category IS NOT NULL ORDER BY n.category")
     List<String> findDistinctCategoriesByUser(@Param("user") User user);
+
+    // Notes outlive a deleted folder; they only drop out of it
+    @Modifying
+    @Query(value = "UPDATE notes SET folder_id = NULL WHERE folder_id IN " +
+            "(SELECT id FROM study_folders WHERE user_id = :userId AND path LIKE :path || '%')", nativeQuery = true)
+    int detachFromFolderSubtree(@Param("userId") Long userId, @Param("path") String path);
 }
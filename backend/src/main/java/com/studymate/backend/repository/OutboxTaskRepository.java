@@ -0,0 +1,47 @@
+package com.studymate.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.studymate.backend.model.OutboxTask;
+
+@Repository
+public interface OutboxTaskRepository extends JpaRepository<OutboxTask, Long> {
+
+    /**
+     * Lock the next due tasks, most active threads first. Tasks waiting since
+     * before agedBefore rank above every priority so quiet threads are not
+     * starved; SKIP LOCKED lets several nodes claim side by side.
+     */
+    @Query(value = "SELECT * FROM outbox_tasks " +
+            "WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+            "OR (status = 'RUNNING' AND locked_until < :now) " +
+            "ORDER BY CASE WHEN created_at < :agedBefore THEN 2147483647 ELSE priority END DESC, id " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxTask> claimDue(@Param("now") LocalDateTime now,
+            @Param("agedBefore") LocalDateTime agedBefore,
+            @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM OutboxTask t WHERE t.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Hands claimed tasks back without counting an attempt (workers saturated or thread busy)
+    @Modifying
+    @Query("UPDATE OutboxTask t SET t.status = :status, t.lockedUntil = NULL, t.nextAttemptAt = :nextAttemptAt " +
+            "WHERE t.id IN :ids")
+    int release(@Param("ids") Collection<Long> ids, @Param("status") OutboxTask.Status status,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    long countByStatus(OutboxTask.Status status);
+
+    @Query("SELECT MIN(t.createdAt) FROM OutboxTask t WHERE t.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") OutboxTask.Status status);
+}
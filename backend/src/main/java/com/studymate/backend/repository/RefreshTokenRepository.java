@@ -0,0 +1,36 @@
+package com.studymate.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.studymate.backend.model.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // Compare-and-set on the current hash, so two nodes cannot both rotate the same token
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.previousTokenHash = t.tokenHash, t.tokenHash = :newHash, t.lastUsedAt = :now, " +
+            "t.rotatedAt = :now " +
+            "WHERE t.id = :id AND t.tokenHash = :oldHash AND t.revoked = false AND t.expiresAt > :now")
+    int rotate(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.id = :id")
+    int revoke(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.lastUsedAt = :usedAt WHERE t.id IN :ids")
+    int markUsed(@Param("ids") Collection<Long> ids, @Param("usedAt") LocalDateTime usedAt);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,9 +1,11 @@
 package com.studymate.backend.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -21,6 +23,16 @@ public interface ReplyKeyPhraseRepository extends JpaRepository<ReplyKeyPhrase,
     @Query("SELECT rkp FROM ReplyKeyPhrase rkp WHERE rkp.reply.thread.id = :threadId")
     List<ReplyKeyPhrase> findByThreadId(@Param("threadId") Long threadId);
 
+    // Set-based deletes used when removing whole threads
+    @Modifying
+    @Query("DELETE FROM ReplyKeyPhrase rkp WHERE rkp.reply.id IN " +
+            "(SELECT r.id FROM ThreadReply r WHERE r.thread.id = :threadId)")
+    int deleteByThreadId(@Param("threadId") Long threadId);
+
+    @Modifying
+    @Query("DELETE FROM ReplyKeyPhrase rkp WHERE rkp.reply.id IN :replyIds")
+    int deleteByReplyIds(@Param("replyIds") Collection<Long> replyIds);
+
     @Query("SELECT rkp.keyPhrase, SUM(rkp.frequency) as totalFreq FROM ReplyKeyPhrase rkp " +
             "WHERE rkp.reply.thread.id = :threadId " +
             "GROUP BY rkp.keyPhrase " +
@@ -4,15 +4,32 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.studymate.backend.dto.StudyFolderDTO;
 import com.studymate.backend.model.StudyFolder;
 
 @Repository
 public interface StudyFolderRepository extends JpaRepository<StudyFolder, Long> {
 
+        // Listing projection with the denormalized child counts; no collections are touched
+        String FOLDER_DTO = "SELECT new com.studymate.backend.dto.StudyFolderDTO(f.id, f.name, f.description, " +
+                        "f.color, p.id, p.name, f.name, COALESCE(f.materialCount, 0), COALESCE(f.subFolderCount, 0), " +
+                        "f.createdAt, f.updatedAt) " +
+                        "FROM StudyFolder f LEFT JOIN f.parentFolder p ";
+
+        @Query(FOLDER_DTO + "WHERE f.userId = :userId AND p.id IS NULL")
+        List<StudyFolderDTO> findRootFolderDTOs(@Param("userId") Long userId);
+
+        @Query(FOLDER_DTO + "WHERE p.id = :parentFolderId")
+        List<StudyFolderDTO> findSubFolderDTOs(@Param("parentFolderId") Long parentFolderId);
+
+        @Query(FOLDER_DTO + "WHERE f.id = :folderId AND f.userId = :userId")
+        Optional<StudyFolderDTO> findDTOByIdAndUserId(@Param("folderId") Long folderId, @Param("userId") Long userId);
+
         // Find all root folders (no parent) for a user
         List<StudyFolder> findByUserIdAndParentFolderIsNull(Long userId);
 
@@ -73,14 +90,68 @@ public interface StudyFolderRepository extends JpaRepository<StudyFolder, Long>
         boolean existsByNameInRootDirectory(@Param("name") String name, @Param("userId") Long userId,
                         @Param("excludeId") Long excludeId);
 
-        // Get all folder IDs in a hierarchy (for deletion cascading)
-        @Query(value = "WITH RECURSIVE folder_hierarchy AS (" +
-                        "  SELECT id FROM study_folders WHERE id = :folderId " +
+        // A user's whole tree in one query, parents before their children
+        List<StudyFolder> findByUserIdOrderByPath(Long userId);
+
+        // Get all folder IDs in a subtree, the folder itself included
+        @Query(value = "SELECT id FROM study_folders WHERE user_id = :userId AND path LIKE :path || '%'",
+                        nativeQuery = true)
+        List<Long> findSubtreeIds(@Param("userId") Long userId, @Param("path") String path);
+
+        // Ids, names and paths in a subtree, for laying out an export without loading entities
+        @Query("SELECT f.id, f.name, f.path FROM StudyFolder f WHERE f.userId = :userId " +
+                        "AND f.path LIKE CONCAT(:path, '%') ORDER BY f.path")
+        List<Object[]> findSubtreeNames(@Param("userId") Long userId, @Param("path") String path);
+
+        // Removes a whole subtree in one statement; the parent key is checked once the statement ends
+        @Modifying
+        @Query(value = "DELETE FROM study_folders WHERE user_id = :userId AND path LIKE :path || '%'",
+                        nativeQuery = true)
+        int deleteSubtree(@Param("userId") Long userId, @Param("path") String path);
+
+        @Modifying
+        @Query(value = "UPDATE study_folders SET path = :path, depth = :depth WHERE id = :folderId", nativeQuery = true)
+        int assignPath(@Param("folderId") Long folderId, @Param("path") String path, @Param("depth") int depth);
+
+        // Re-roots a subtree in one statement: every path starting with oldPath gets newPath instead
+        @Modifying
+        @Query(value = "UPDATE study_folders SET path = :newPath || substring(path from :oldPathLength + 1), " +
+                        "depth = depth + :depthDelta " +
+                        "WHERE user_id = :userId AND path LIKE :oldPath || '%'", nativeQuery = true)
+        int movePaths(@Param("userId") Long userId, @Param("oldPath") String oldPath,
+                        @Param("oldPathLength") int oldPathLength, @Param("newPath") String newPath,
+                        @Param("depthDelta") int depthDelta);
+
+        @Modifying
+        @Query(value = "UPDATE study_folders SET sub_folder_count = GREATEST(COALESCE(sub_folder_count, 0) + :delta, 0) " +
+                        "WHERE id = :folderId", nativeQuery = true)
+        int adjustSubFolderCount(@Param("folderId") Long folderId, @Param("delta") int delta);
+
+        @Modifying
+        @Query(value = "UPDATE study_folders SET material_count = GREATEST(COALESCE(material_count, 0) + :delta, 0) " +
+                        "WHERE id = :folderId", nativeQuery = true)
+        int adjustMaterialCount(@Param("folderId") Long folderId, @Param("delta") int delta);
+
+        // Recomputes paths from parent links; only rows that differ are written
+        @Modifying
+        @Query(value = "WITH RECURSIVE tree AS (" +
+                        "  SELECT id, CAST('/' || id || '/' AS VARCHAR(1000)) AS path, 0 AS depth " +
+                        "  FROM study_folders WHERE parent_folder_id IS NULL " +
                         "  UNION ALL " +
-                        "  SELECT sf.id FROM study_folders sf " +
-                        "  INNER JOIN folder_hierarchy fh ON sf.parent_folder_id = fh.id" +
-                        ") SELECT id FROM folder_hierarchy", nativeQuery = true)
-        List<Long> findAllSubfolderIds(@Param("folderId") Long folderId);
+                        "  SELECT sf.id, CAST(t.path || sf.id || '/' AS VARCHAR(1000)), t.depth + 1 " +
+                        "  FROM study_folders sf INNER JOIN tree t ON sf.parent_folder_id = t.id" +
+                        ") UPDATE study_folders f SET path = tree.path, depth = tree.depth FROM tree " +
+                        "WHERE f.id = tree.id AND (f.path IS DISTINCT FROM tree.path OR f.depth IS DISTINCT FROM tree.depth)",
+                        nativeQuery = true)
+        int rebuildPaths();
+
+        // Recounts children for folders created before the counters existed
+        @Modifying
+        @Query(value = "UPDATE study_folders f SET " +
+                        "material_count = (SELECT COUNT(*) FROM study_materials m WHERE m.folder_id = f.id), " +
+                        "sub_folder_count = (SELECT COUNT(*) FROM study_folders c WHERE c.parent_folder_id = f.id) " +
+                        "WHERE f.material_count IS NULL OR f.sub_folder_count IS NULL", nativeQuery = true)
+        int recountMissingCounters();
 
         // Count subfolders for a parent folder
         long countByParentFolderId(Long parentFolderId);
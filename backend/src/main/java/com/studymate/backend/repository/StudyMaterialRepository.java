@@ -1,19 +1,79 @@
 package com.studymate.backend.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.studymate.backend.dto.StudyMaterialDTO;
+import com.studymate.backend.dto.StudyMaterialResponse;
+import com.studymate.backend.model.StudyFolder;
 import com.studymate.backend.model.StudyMaterial;
 
 @Repository
 public interface StudyMaterialRepository extends JpaRepository<StudyMaterial, Long> {
 
+        // Listing projections: metadata columns only, so memory does not grow with file sizes
+        String MATERIAL_DTO = "SELECT new com.studymate.backend.dto.StudyMaterialDTO(sm.id, sm.fileName, " +
+                        "sm.originalName, sm.fileType, sm.fileSize, sm.subject, sm.description, sm.category, " +
+                        "f.id, f.name, f.name, sm.createdAt, sm.updatedAt) " +
+                        "FROM StudyMaterial sm LEFT JOIN sm.folder f ";
+
+        String MATERIAL_RESPONSE = "SELECT new com.studymate.backend.dto.StudyMaterialResponse(sm.id, sm.fileName, " +
+                        "sm.originalName, sm.fileType, sm.fileSize, sm.subject, sm.description, sm.category, " +
+                        "sm.createdAt, sm.updatedAt, f.id, f.name, f.description) " +
+                        "FROM StudyMaterial sm LEFT JOIN sm.folder f ";
+
+        String MATCHES_QUERY = "(LOWER(sm.fileName) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+                        "LOWER(sm.originalName) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+                        "LOWER(sm.subject) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+                        "LOWER(sm.description) LIKE LOWER(CONCAT('%', :query, '%')))";
+
+        @Query(MATERIAL_DTO + "WHERE f.id = :folderId ORDER BY sm.createdAt DESC")
+        List<StudyMaterialDTO> findDTOsByFolderId(@Param("folderId") Long folderId);
+
+        @Query(MATERIAL_RESPONSE + "WHERE sm.userId = :userId ORDER BY sm.createdAt DESC")
+        List<StudyMaterialResponse> findResponsesByUserId(@Param("userId") Long userId);
+
+        @Query(MATERIAL_RESPONSE + "WHERE sm.userId = :userId AND f.id = :folderId ORDER BY sm.createdAt DESC")
+        List<StudyMaterialResponse> findResponsesByUserIdAndFolderId(@Param("userId") Long userId,
+                        @Param("folderId") Long folderId);
+
+        @Query(MATERIAL_RESPONSE + "WHERE sm.userId = :userId AND f.id IS NULL ORDER BY sm.createdAt DESC")
+        List<StudyMaterialResponse> findUnorganizedResponses(@Param("userId") Long userId);
+
+        @Query(MATERIAL_RESPONSE + "WHERE sm.userId = :userId AND " + MATCHES_QUERY)
+        List<StudyMaterialResponse> searchResponses(@Param("userId") Long userId, @Param("query") String query);
+
+        // Materials of a folder subtree in archive order; file data is read separately, one at a time
+        @Query("SELECT sm.id, sm.originalName, f.id, f.path FROM StudyMaterial sm JOIN sm.folder f " +
+                        "WHERE sm.userId = :userId AND f.path LIKE CONCAT(:path, '%') ORDER BY f.path, sm.id")
+        List<Object[]> findExportEntries(@Param("userId") Long userId, @Param("path") String path);
+
+        @Modifying
+        @Query(value = "DELETE FROM study_materials WHERE folder_id IN " +
+                        "(SELECT id FROM study_folders WHERE user_id = :userId AND path LIKE :path || '%')",
+                        nativeQuery = true)
+        int deleteInFolderSubtree(@Param("userId") Long userId, @Param("path") String path);
+
+        // Current folder of the given materials, grouped, so counters can be adjusted per folder
+        @Query("SELECT f.id, COUNT(sm) FROM StudyMaterial sm LEFT JOIN sm.folder f " +
+                        "WHERE sm.userId = :userId AND sm.id IN :ids GROUP BY f.id")
+        List<Object[]> countByFolderForIds(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+        @Modifying
+        @Query("UPDATE StudyMaterial sm SET sm.folder = :folder, sm.updatedAt = :now " +
+                        "WHERE sm.userId = :userId AND sm.id IN :ids")
+        int moveToFolder(@Param("userId") Long userId, @Param("ids") Collection<Long> ids,
+                        @Param("folder") StudyFolder folder, @Param("now") LocalDateTime now);
+
         List<StudyMaterial> findByUserIdOrderByCreatedAtDesc(Long userId);
 
         Optional<StudyMaterial> findByIdAndUserId(Long id, Long userId);
@@ -1,10 +1,13 @@
 package com.studymate.backend.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,6 +22,14 @@ public interface ThreadReplyRepository extends JpaRepository<ThreadReply, Long>
     // Find replies by thread
     Page<ThreadReply> findByThreadAndIsDeletedFalseOrderByCreatedAtAsc(DiscussionThread thread, Pageable pageable);
 
+    // Keyset page of a thread's replies in posting order, with author and parent fetched; no count query
+    @Query("SELECT r FROM ThreadReply r JOIN FETCH r.author LEFT JOIN FETCH r.parentReply WHERE " +
+            "r.thread.id = :threadId AND r.isDeleted = false AND " +
+            "(r.createdAt > :after OR (r.createdAt = :after AND r.id > :afterId)) " +
+            "ORDER BY r.createdAt ASC, r.id ASC")
+    List<ThreadReply> findByThreadIdAfter(@Param("threadId") Long threadId, @Param("after") LocalDateTime after,
+            @Param("afterId") Long afterId, Pageable pageable);
+
     // Find replies by author
     Page<ThreadReply> findByAuthorAndIsDeletedFalseOrderByCreatedAtDesc(User author, Pageable pageable);
 
@@ -34,7 +45,7 @@ public interface ThreadReplyRepository extends JpaRepository<ThreadReply, Long>
     // Search replies by content
     @Query("SELECT r FROM ThreadReply r WHERE " +
             "LOWER(r.content) LIKE LOWER(CONCAT('%', :searchTerm, '%')) AND " +
-            "r.isDeleted = false AND r.isModerated = false " +
+            "r.isDeleted = false AND r.isModerated = false AND r.thread.isDeleted = false " +
             "ORDER BY r.createdAt DESC")
     Page<ThreadReply> searchReplies(@Param("searchTerm") String searchTerm, Pageable pageable);
 
@@ -42,10 +53,45 @@ public interface ThreadReplyRepository extends JpaRepository<ThreadReply, Long>
     @Query("SELECT r FROM ThreadReply r WHERE " +
             "r.thread.author = :user AND " +
             "r.author != :user AND " +
-            "r.isDeleted = false AND r.isModerated = false " +
+            "r.isDeleted = false AND r.isModerated = false AND r.thread.isDeleted = false " +
             "ORDER BY r.createdAt DESC")
     Page<ThreadReply> findRepliesOnUserThreads(@Param("user") User user, Pageable pageable);
 
     // Find all replies for a thread (used for cascading deletes)
     List<ThreadReply> findByThread(DiscussionThread thread);
+
+    // Searchable reply text as (id, threadId, content) rows, for building the embedded search index
+    @Query("SELECT r.id, r.thread.id, r.content FROM ThreadReply r " +
+            "WHERE r.isDeleted = false AND r.isModerated = false ORDER BY r.id")
+    List<Object[]> findSearchableReplyText(Pageable pageable);
+
+    @Query("SELECT r.id, r.thread.id, r.content FROM ThreadReply r " +
+            "WHERE r.thread.id IN :threadIds AND r.isDeleted = false AND r.isModerated = false")
+    List<Object[]> findSearchableReplyTextByThreadIds(@Param("threadIds") Collection<Long> threadIds);
+
+    @Query("SELECT MAX(r.id) FROM ThreadReply r")
+    Long findMaxId();
+
+    // Reply text as (id, content) rows in id order, for seeding key phrase document frequencies
+    @Query("SELECT r.id, r.content FROM ThreadReply r " +
+            "WHERE r.id > :afterId AND r.id <= :maxId AND r.isDeleted = false ORDER BY r.id")
+    List<Object[]> findKeyPhraseTextAfter(@Param("afterId") Long afterId, @Param("maxId") Long maxId,
+            Pageable pageable);
+
+    // Set-based deletion of a thread's replies; key phrases must be deleted first
+    @Modifying
+    @Query("DELETE FROM ThreadReply r WHERE r.thread.id = :threadId")
+    int deleteByThreadId(@Param("threadId") Long threadId);
+
+    // Chunked purge: parent links are cleared first so chunks can be deleted in any order
+    @Modifying
+    @Query("UPDATE ThreadReply r SET r.parentReply = null WHERE r.thread.id = :threadId AND r.parentReply IS NOT NULL")
+    int clearParentRepliesByThreadId(@Param("threadId") Long threadId);
+
+    @Query("SELECT r.id FROM ThreadReply r WHERE r.thread.id = :threadId ORDER BY r.id")
+    List<Long> findIdsByThreadId(@Param("threadId") Long threadId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ThreadReply r WHERE r.id IN :replyIds")
+    int deleteByIdIn(@Param("replyIds") Collection<Long> replyIds);
 }
@@ -5,6 +5,7 @@ import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,7 +13,12 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.studymate.backend.model.User;
+import com.studymate.backend.service.RefreshTokenService;
 import com.studymate.backend.service.UserDetailsServiceImpl;
+import com.studymate.backend.service.UserPrincipalCache;
+
+import io.jsonwebtoken.Claims;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -26,6 +32,15 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Value("${jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
@@ -33,17 +48,20 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            // One verification yields the claims; recently seen tokens come from the cache
+            Claims claims = jwt != null ? jwtUtils.parseValidClaims(jwt) : null;
+            if (claims != null) {
+                // Null if the user was deleted or the session revoked after the token was issued
+                UserDetails userDetails = resolvePrincipal(claims);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            userDetails,
+                            null,
+                            userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e.getMessage(), e);
@@ -52,6 +70,22 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // By the id claim from the short-lived user cache; older tokens without it fall back to a lookup by name
+    private UserDetails resolvePrincipal(Claims claims) {
+        // Answered from memory; a revoked session's access tokens stop working within the cache TTL
+        Number sessionId = claims.get(JwtUtils.SESSION_ID_CLAIM, Number.class);
+        if (sessionId != null && !refreshTokenService.isSessionActive(sessionId.longValue())) {
+            return null;
+        }
+
+        Number userId = claims.get(JwtUtils.USER_ID_CLAIM, Number.class);
+        if (statelessPrincipal && userId != null) {
+            User user = userPrincipalCache.get(userId.longValue());
+            return user != null && user.getUsername().equals(claims.getSubject()) ? user : null;
+        }
+        return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
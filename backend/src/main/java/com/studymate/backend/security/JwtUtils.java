@@ -2,6 +2,8 @@ package com.studymate.backend.security;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,12 +12,19 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import com.studymate.backend.model.User;
+
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+
+import jakarta.annotation.PostConstruct;
 
 @Component
 public class JwtUtils {
@@ -27,42 +36,126 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
+    // Lifetime of access tokens tied to a refresh session; clients renew them through /auth/refresh
+    @Value("${jwt.access-expiration:${jwt.expiration}}")
+    private long accessExpirationMs;
+
+    // Upper bound on recently verified tokens kept until they expire
+    @Value("${jwt.verified-cache-size:4096}")
+    private int verifiedCacheSize;
+
+    // Both are immutable and thread-safe, so they are built once
+    private Key signingKey;
+    private JwtParser parser;
+
+    // Lock-free so concurrent requests never queue on the cache; keyed on the token itself,
+    // since hashing it again would cost about as much as the HMAC check it saves
+    private final Map<String, Claims> verifiedTokens = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String SESSION_ID_CLAIM = "sid";
+
     public String generateJwtToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
         return generateTokenFromUsername(userPrincipal.getUsername());
     }
 
+    /**
+     * Access token for a refresh session. It also carries the user id and
+     * role, so requests can resolve the principal by id, and the session id,
+     * so revoking the session revokes it.
+     */
+    public String generateAccessToken(User user, Long sessionId) {
+        return Jwts.builder()
+                .setSubject(user.getUsername())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole().name())
+                .claim(SESSION_ID_CLAIM, sessionId)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date((new Date()).getTime() + accessExpirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
     public String generateTokenFromUsername(String username) {
         return Jwts.builder()
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
-    }
+    /**
+     * Verify a signed token and return its claims, or null if it is invalid
+     * or expired. A token seen recently skips the signature check.
+     */
+    public Claims parseValidClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
 
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().getSubject();
-    }
+        Claims cached = verifiedTokens.get(token);
+        if (cached != null) {
+            if (!isExpired(cached)) {
+                return cached;
+            }
+            verifiedTokens.remove(token, cached);
+            logger.error("JWT token is expired: {}", cached.getExpiration());
+            return null;
+        }
 
-    public boolean validateJwtToken(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(key()).build().parse(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getExpiration() != null) {
+                cacheVerified(token, claims);
+            }
+            return claims;
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             logger.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             logger.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (SignatureException e) {
+            logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    public String getUserNameFromJwtToken(String token) {
+        Claims claims = parseValidClaims(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return parseValidClaims(authToken) != null;
+    }
+
+    private static boolean isExpired(Claims claims) {
+        return claims.getExpiration().getTime() <= System.currentTimeMillis();
+    }
+
+    /**
+     * Remember a verified token. A full cache first drops expired tokens; if it
+     * is still full it starts over instead of tracking recency on every read.
+     */
+    private void cacheVerified(String token, Claims claims) {
+        if (verifiedTokens.size() >= verifiedCacheSize) {
+            verifiedTokens.values().removeIf(JwtUtils::isExpired);
+            if (verifiedTokens.size() >= verifiedCacheSize) {
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(token, claims);
     }
 }
@@ -0,0 +1,56 @@
+package com.studymate.backend.service;
+
+/**
+ * A discussion change as carried by the event bus: routing data plus the
+ * already-serialized STOMP payloads. The listing payload is the compact
+ * delta for the global, course and topic feeds; the thread payload is the
+ * full message for the thread's own followers.
+ */
+public class DiscussionEvent {
+    private final String type;
+    private final Long threadId;
+    private final String course;
+    private final String topic;
+    private final String coalesceKey;
+    private final byte[] listingPayload;
+    private final byte[] threadPayload;
+
+    public DiscussionEvent(String type, Long threadId, String course, String topic, String coalesceKey,
+            byte[] listingPayload, byte[] threadPayload) {
+        this.type = type;
+        this.threadId = threadId;
+        this.course = course;
+        this.topic = topic;
+        this.coalesceKey = coalesceKey;
+        this.listingPayload = listingPayload;
+        this.threadPayload = threadPayload;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getThreadId() {
+        return threadId;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getCoalesceKey() {
+        return coalesceKey;
+    }
+
+    public byte[] getListingPayload() {
+        return listingPayload;
+    }
+
+    public byte[] getThreadPayload() {
+        return threadPayload;
+    }
+}
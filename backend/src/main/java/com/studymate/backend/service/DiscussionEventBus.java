@@ -0,0 +1,34 @@
+package com.studymate.backend.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Delivers discussion events to every application node once the writing
+ * transaction commits. Each node's DiscussionEventDispatcher then invalidates
+ * its caches and forwards the event to its STOMP clients. Selected with
+ * discussion.events.bus (local or postgres).
+ */
+public interface DiscussionEventBus {
+
+    void publish(DiscussionEvent event);
+
+    /**
+     * Whether events published here reach other nodes
+     */
+    boolean isDistributed();
+
+    // Events describe committed state; a rolled back change publishes nothing
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
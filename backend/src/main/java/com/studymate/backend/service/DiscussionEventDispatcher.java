@@ -0,0 +1,88 @@
+package com.studymate.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies a committed discussion event on this node: invalidates the thread
+ * response cache and forwards the payloads to STOMP destinations. With an
+ * external broker relay the broker already fans out to every node's
+ * clients, so only the node that produced an event forwards it.
+ */
+@Component
+public class DiscussionEventDispatcher {
+
+    // Internal event: knowledge data of a thread changed; nothing is sent to clients
+    public static final String THREAD_CONTENT_CHANGED = "thread_content_changed";
+
+    @Autowired
+    private ThreadResponseCache threadResponseCache;
+
+    @Autowired
+    private DiscussionFrameBatcher frameBatcher;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    // Global activity feed of deltas for every event; only the unfiltered listing subscribes to it,
+    // filtered listings use the course destinations
+    @Value("${websocket.discussions.global-feed:true}")
+    private boolean globalFeed;
+
+    /**
+     * @param local true when the event was produced on this node
+     */
+    public void dispatch(DiscussionEvent event, boolean local) {
+        try {
+            invalidateCache(event);
+        } catch (Exception e) {
+            System.err.println("Failed to invalidate thread cache for " + event.getType() + ": " + e.getMessage());
+        }
+
+        if (!local && "relay".equalsIgnoreCase(brokerMode)) {
+            return;
+        }
+
+        byte[] listing = event.getListingPayload();
+        if (listing != null) {
+            if (globalFeed) {
+                frameBatcher.enqueue(DiscussionWebSocketService.DISCUSSIONS_TOPIC, listing, event.getCoalesceKey());
+            }
+            if (event.getCourse() != null) {
+                frameBatcher.enqueue(DiscussionWebSocketService.courseDestination(event.getCourse()), listing,
+                        event.getCoalesceKey());
+                if (event.getTopic() != null) {
+                    frameBatcher.enqueue(
+                            DiscussionWebSocketService.courseTopicDestination(event.getCourse(), event.getTopic()),
+                            listing, event.getCoalesceKey());
+                }
+            }
+        }
+        if (event.getThreadPayload() != null && event.getThreadId() != null) {
+            frameBatcher.enqueue(DiscussionWebSocketService.threadDestination(event.getThreadId()),
+                    event.getThreadPayload(), event.getCoalesceKey());
+        }
+    }
+
+    private void invalidateCache(DiscussionEvent event) {
+        Long threadId = event.getThreadId();
+        if (threadId == null) {
+            return;
+        }
+        switch (event.getType()) {
+            case DiscussionWebSocketService.THREAD_CREATED:
+                threadResponseCache.onThreadCreated(threadId, event.getCourse());
+                break;
+            case DiscussionWebSocketService.THREAD_DELETED:
+                threadResponseCache.onThreadDeleted(threadId, event.getCourse());
+                break;
+            case THREAD_CONTENT_CHANGED:
+                threadResponseCache.onThreadContentChanged(threadId);
+                break;
+            default:
+                threadResponseCache.onThreadChanged(threadId, event.getCourse());
+                break;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.studymate.backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Batches pre-serialized discussion events per STOMP destination. Events
+ * arriving within the batch window are sent as one {"type":"batch"} frame,
+ * and repeated updates of the same item within a window are coalesced to
+ * the latest one. Payloads are already JSON, so nothing is re-serialized
+ * per destination or per batch.
+ */
+@Component
+public class DiscussionFrameBatcher {
+
+    public static final String BATCH = "batch";
+
+    // STOMP header on frames that a newer frame with the same key fully supersedes
+    public static final String COALESCE_KEY_HEADER = "coalesce-key";
+
+    private static final String UNKEYED_PREFIX = "#";
+
+    private static final byte[] BATCH_PREFIX = ("{\"type\":\"" + BATCH + "\",\"events\":[")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BATCH_SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    @Qualifier("webSocketBatchScheduler")
+    private TaskScheduler webSocketBatchScheduler;
+
+    // 0 sends every event immediately
+    @Value("${websocket.discussions.batch-window-ms:100}")
+    private long batchWindowMs;
+
+    @Value("${websocket.discussions.max-batch-events:50}")
+    private int maxBatchEvents;
+
+    private final Map<String, PendingFrame> pendingFrames = new ConcurrentHashMap<>();
+
+    // Events without a coalesce key get a unique one
+    private final AtomicLong eventSequence = new AtomicLong();
+
+    /**
+     * Queue a serialized event for a destination. Events sharing a non-null
+     * coalesce key within one window replace each other.
+     */
+    public void enqueue(String destination, byte[] event, String coalesceKey) {
+        if (batchWindowMs <= 0) {
+            send(destination, event, coalesceKey);
+            return;
+        }
+
+        String key = coalesceKey != null ? coalesceKey : UNKEYED_PREFIX + eventSequence.incrementAndGet();
+        while (true) {
+            PendingFrame frame = pendingFrames.computeIfAbsent(destination, d -> new PendingFrame());
+            synchronized (frame) {
+                if (frame.flushed) {
+                    // Lost a race with this frame's flush; start the next one
+                    continue;
+                }
+                // Re-inserting moves a coalesced event to its latest position
+                frame.events.remove(key);
+                frame.events.put(key, event);
+                if (!frame.scheduled) {
+                    frame.scheduled = true;
+                    webSocketBatchScheduler.schedule(() -> flush(destination, frame),
+                            Instant.now().plusMillis(batchWindowMs));
+                }
+                return;
+            }
+        }
+    }
+
+    public int getPendingDestinationCount() {
+        return pendingFrames.size();
+    }
+
+    private void flush(String destination, PendingFrame frame) {
+        List<String> keys;
+        List<byte[]> events;
+        synchronized (frame) {
+            frame.flushed = true;
+            pendingFrames.remove(destination, frame);
+            keys = new ArrayList<>(frame.events.keySet());
+            events = new ArrayList<>(frame.events.values());
+        }
+
+        try {
+            for (int start = 0; start < events.size(); start += maxBatchEvents) {
+                List<byte[]> chunk = events.subList(start, Math.min(start + maxBatchEvents, events.size()));
+                if (chunk.size() == 1) {
+                    String key = keys.get(start);
+                    send(destination, chunk.get(0), key.startsWith(UNKEYED_PREFIX) ? null : key);
+                } else {
+                    // A batch mixes events, so no single newer frame supersedes it
+                    send(destination, batchFrame(chunk), null);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to send discussion events to " + destination + ": " + e.getMessage());
+        }
+    }
+
+    private void send(String destination, byte[] payload, String coalesceKey) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (coalesceKey != null) {
+            accessor.setNativeHeader(COALESCE_KEY_HEADER, coalesceKey);
+        }
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+
+    private static byte[] batchFrame(List<byte[]> events) {
+        int size = BATCH_PREFIX.length + BATCH_SUFFIX.length + events.size();
+        for (byte[] event : events) {
+            size += event.length;
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(size);
+        frame.writeBytes(BATCH_PREFIX);
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) {
+                frame.write(',');
+            }
+            frame.writeBytes(events.get(i));
+        }
+        frame.writeBytes(BATCH_SUFFIX);
+        return frame.toByteArray();
+    }
+
+    private static final class PendingFrame {
+        private final Map<String, byte[]> events = new LinkedHashMap<>();
+        private boolean scheduled;
+        private boolean flushed;
+    }
+}
@@ -1,20 +1,26 @@
 package com.studymate.backend.service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.studymate.backend.dto.CreateReplyRequest;
+import com.studymate.backend.dto.CursorPage;
 import com.studymate.backend.dto.CreateThreadRequest;
 import com.studymate.backend.dto.KnowledgeEntityResponse;
 import com.studymate.backend.dto.ReplyResponse;
@@ -28,10 +34,19 @@ import com.studymate.backend.repository.DiscussionThreadRepository;
 import com.studymate.backend.repository.ReplyKeyPhraseRepository;
 import com.studymate.backend.repository.ThreadReplyRepository;
 
+import jakarta.annotation.PostConstruct;
+
 @Service
 @Transactional
 public class DiscussionThreadService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    // Keyset bounds for a first page; they sort after (threads) or before (replies) every real row
+    private static final PageCursor FIRST_THREAD_CURSOR = new PageCursor(LocalDateTime.of(9999, 12, 31, 0, 0),
+            Long.MAX_VALUE);
+    private static final PageCursor FIRST_REPLY_CURSOR = new PageCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
     @Autowired
     private DiscussionThreadRepository threadRepository;
 
@@ -48,7 +63,37 @@ public class DiscussionThreadService {
     private KnowledgeGraphService knowledgeGraphService;
 
     @Autowired
-    private NLPKeyPhraseService nlpKeyPhraseService;
+    private KeyPhraseScorer keyPhraseScorer;
+
+    @Autowired
+    private TaskOutbox taskOutbox;
+
+    @Autowired
+    private ViewCountBuffer viewCountBuffer;
+
+    @Autowired
+    private ThreadDeletionService threadDeletionService;
+
+    @Autowired
+    private ThreadResponseCache threadResponseCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Cache misses open their own read-only transaction so cache hits never take a pooled connection
+    private TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    private ThreadSearchService threadSearchService;
+
+    @Autowired
+    private TypeaheadService typeaheadService;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
 
     // Thread Management
     public ThreadResponse createThread(CreateThreadRequest request, User author) {
@@ -60,27 +105,17 @@ public class DiscussionThreadService {
                 author);
 
         DiscussionThread savedThread = threadRepository.save(thread);
+        threadSearchService.indexThread(savedThread);
+        typeaheadService.recordThreadCreated(savedThread.getCourse());
 
-        // Process thread for knowledge graph asynchronously to improve performance
-        processKnowledgeGraphAsync(savedThread);
-
-        ThreadResponse threadResponse = convertToThreadResponse(savedThread);
-
-        // Broadcast thread creation to all users
-        webSocketService.broadcastThreadCreated(threadResponse);
+        // The thread itself is a document in the key phrase frequency table
+        keyPhraseScorer.recordThread(savedThread.getId(), savedThread.getTitle(), savedThread.getContent());
 
-        return threadResponse;
-    }
+        // Broadcast and knowledge graph pass run off the request path, queued in this transaction
+        taskOutbox.enqueueThreadCreated(savedThread.getId());
+        taskOutbox.enqueueKnowledgeGraph(savedThread.getId(), null, 0);
 
-    @Async("knowledgeGraphExecutor")
-    public void processKnowledgeGraphAsync(DiscussionThread thread) {
-        try {
-            knowledgeGraphService.processThreadForKnowledgeGraph(thread);
-            threadRepository.save(thread);
-        } catch (Exception e) {
-            System.err.println(
-                    "Async knowledge graph processing failed for thread " + thread.getId() + ": " + e.getMessage());
-        }
+        return convertToThreadResponse(savedThread);
     }
 
     @Transactional(readOnly = true)
@@ -88,33 +123,38 @@ public class DiscussionThreadService {
         Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        return threadRepository.findAll(pageable)
+        return threadRepository.findByIsDeletedFalse(pageable)
                 .map(this::convertToThreadResponse);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<ThreadResponse> getThreadsByCourse(String course, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return threadRepository.findByCourseOrderByLastActivityAtDesc(course, pageable)
-                .map(this::convertToThreadResponse);
+        return threadResponseCache.getCoursePage(course, page, size,
+                () -> readOnlyTransaction.execute(status -> threadRepository
+                        .findByCourseAndIsDeletedFalseOrderByLastActivityAtDesc(course, pageable)
+                        .map(this::convertToThreadResponse)));
     }
 
     @Transactional(readOnly = true)
     public Page<ThreadResponse> getThreadsByTopic(String topic, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return threadRepository.findByTopicOrderByLastActivityAtDesc(topic, pageable)
+        return threadRepository.findByTopicAndIsDeletedFalseOrderByLastActivityAtDesc(topic, pageable)
                 .map(this::convertToThreadResponse);
     }
 
     @Transactional(readOnly = true)
     public Page<ThreadResponse> getThreadsByCourseAndTopic(String course, String topic, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return threadRepository.findByCourseAndTopicOrderByLastActivityAtDesc(course, topic, pageable)
+        return threadRepository.findByCourseAndTopicAndIsDeletedFalseOrderByLastActivityAtDesc(course, topic, pageable)
                 .map(this::convertToThreadResponse);
     }
 
     @Transactional(readOnly = true)
     public Page<ThreadResponse> searchThreads(String searchTerm, int page, int size) {
+        if (threadSearchService.isSearchable(searchTerm)) {
+            return fullTextSearch(searchTerm, null, ThreadSearchService.Scope.THREADS, page, size);
+        }
         Pageable pageable = PageRequest.of(page, size);
         return threadRepository.searchThreads(searchTerm, pageable)
                 .map(this::convertToThreadResponse);
@@ -122,6 +162,9 @@ public class DiscussionThreadService {
 
     @Transactional(readOnly = true)
     public Page<ThreadResponse> searchThreadsWithReplies(String searchTerm, int page, int size) {
+        if (threadSearchService.isSearchable(searchTerm)) {
+            return fullTextSearch(searchTerm, null, ThreadSearchService.Scope.THREADS_AND_REPLIES, page, size);
+        }
         Pageable pageable = PageRequest.of(page, size);
         return threadRepository.searchThreadsWithReplies(searchTerm, pageable)
                 .map(this::convertToThreadResponse);
@@ -129,6 +172,11 @@ public class DiscussionThreadService {
 
     @Transactional(readOnly = true)
     public Page<ThreadResponse> searchThreadsWithKnowledge(String searchTerm, int page, int size) {
+        if (threadSearchService.isSearchable(searchTerm)) {
+            return fullTextSearch(searchTerm.trim(), null, ThreadSearchService.Scope.THREADS_REPLIES_AND_KNOWLEDGE,
+                    page, size);
+        }
+
         Pageable pageable = PageRequest.of(page, size);
 
         // Clean and prepare search term for better matching
@@ -150,6 +198,9 @@ public class DiscussionThreadService {
 
     @Transactional(readOnly = true)
     public Page<ThreadResponse> searchThreadsByCourse(String course, String searchTerm, int page, int size) {
+        if (threadSearchService.isSearchable(searchTerm)) {
+            return fullTextSearch(searchTerm, course, ThreadSearchService.Scope.THREADS, page, size);
+        }
         Pageable pageable = PageRequest.of(page, size);
         return threadRepository.searchThreadsByCourse(course, searchTerm, pageable)
                 .map(this::convertToThreadResponse);
@@ -158,36 +209,76 @@ public class DiscussionThreadService {
     @Transactional(readOnly = true)
     public Page<ThreadResponse> searchThreadsByCourseWithKnowledge(String course, String searchTerm, int page,
             int size) {
+        if (threadSearchService.isSearchable(searchTerm)) {
+            return fullTextSearch(searchTerm, course, ThreadSearchService.Scope.THREADS_REPLIES_AND_KNOWLEDGE, page,
+                    size);
+        }
         Pageable pageable = PageRequest.of(page, size);
         return threadRepository.searchThreadsByCourseWithKnowledge(course, searchTerm, pageable)
                 .map(this::convertToThreadResponse);
     }
 
-    @Transactional
-    public Optional<ThreadResponse> getThreadById(Long threadId) {
-        Optional<DiscussionThread> thread = threadRepository.findById(threadId);
-        if (thread.isPresent()) {
-            // Increment view count
-            DiscussionThread foundThread = thread.get();
-            foundThread.incrementViewCount();
-            threadRepository.save(foundThread);
-            // Include full knowledge data for detail views
-            return Optional.of(convertToThreadResponse(foundThread, true));
+    /**
+     * Ranked full-text search: the index returns one page of ids, which are
+     * loaded in one query and returned in rank order with highlights
+     */
+    private Page<ThreadResponse> fullTextSearch(String searchTerm, String course, ThreadSearchService.Scope scope,
+            int page, int size) {
+        ThreadSearchService.SearchResult result = threadSearchService.search(searchTerm, course, scope, page, size);
+        List<Long> ids = result.getThreadIds();
+
+        Map<Long, DiscussionThread> threadsById = threadRepository.findByIdIn(ids).stream()
+                .collect(Collectors.toMap(DiscussionThread::getId, thread -> thread));
+        List<DiscussionThread> threads = ids.stream()
+                .map(threadsById::get)
+                .filter(thread -> thread != null)
+                .collect(Collectors.toList());
+        Map<Long, ThreadSearchService.Highlight> highlights = threadSearchService.highlight(searchTerm, threads);
+
+        List<ThreadResponse> responses = new ArrayList<>(threads.size());
+        for (DiscussionThread thread : threads) {
+            ThreadResponse response = convertToThreadResponse(thread);
+            response.setSearchRank(result.getRank(thread.getId()));
+            ThreadSearchService.Highlight highlight = highlights.get(thread.getId());
+            if (highlight != null) {
+                response.setHighlightedTitle(highlight.getTitle());
+                response.setHighlightedContent(highlight.getContent());
+            }
+            responses.add(response);
         }
-        return Optional.empty();
+
+        return new PageImpl<>(responses, PageRequest.of(page, size), result.getTotalMatches());
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<ThreadResponse> getThreadById(Long threadId) {
+        // Include full knowledge data for detail views
+        Optional<ThreadResponse> thread = threadResponseCache.getThread(threadId,
+                () -> readOnlyTransaction.execute(status -> threadRepository.findByIdAndIsDeletedFalse(threadId)
+                        .map(found -> convertToThreadResponse(found, true))));
+        // Count the view write-behind instead of updating the row on every read
+        thread.ifPresent(response -> viewCountBuffer.recordView(threadId));
+        return thread;
     }
 
     public List<String> getAllCourses() {
+        if (typeaheadService.isLoaded()) {
+            return typeaheadService.getAllCourses();
+        }
         return threadRepository.findAllUniqueCourses();
     }
 
+    public List<TrigramIndex.Match> suggestCourses(String query, int limit) {
+        return typeaheadService.suggestCourses(query, limit);
+    }
+
     public List<String> getTopicsByCourse(String course) {
         return threadRepository.findUniqueTopicsByCourse(course);
     }
 
     public Page<ThreadResponse> getPinnedThreads(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return threadRepository.findByIsPinnedTrueOrderByCreatedAtDesc(pageable)
+        return threadRepository.findByIsPinnedTrueAndIsDeletedFalseOrderByCreatedAtDesc(pageable)
                 .map(this::convertToThreadResponse);
     }
 
@@ -197,10 +288,101 @@ public class DiscussionThreadService {
                 .map(this::convertToThreadResponse);
     }
 
+    /**
+     * Cursor-paginated threads by latest activity, for infinite scroll
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ThreadResponse> getThreadsAfter(String cursor, int size) {
+        PageCursor after = cursorOrDefault(cursor, FIRST_THREAD_CURSOR);
+        int limit = cursorPageSize(size);
+        return threadSlice(threadRepository.findKeysByActivityBefore(after.getTimestamp(), after.getId(),
+                PageRequest.of(0, limit + 1)), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ThreadResponse> getThreadsByCourseAfter(String course, String cursor, int size) {
+        PageCursor after = cursorOrDefault(cursor, FIRST_THREAD_CURSOR);
+        int limit = cursorPageSize(size);
+        return threadSlice(threadRepository.findKeysByCourseAndActivityBefore(course, after.getTimestamp(),
+                after.getId(), PageRequest.of(0, limit + 1)), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ThreadResponse> getRecentActivityThreadsAfter(String cursor, int size) {
+        PageCursor after = cursorOrDefault(cursor, FIRST_THREAD_CURSOR);
+        int limit = cursorPageSize(size);
+        return threadSlice(threadRepository.findRecentActivityKeysBefore(after.getTimestamp(), after.getId(),
+                PageRequest.of(0, limit + 1)), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ReplyResponse> getRepliesByThreadAfter(Long threadId, String cursor, int size,
+            User currentUser) {
+        if (!threadRepository.existsByIdAndIsDeletedFalse(threadId)) {
+            throw new RuntimeException("Thread not found");
+        }
+
+        PageCursor after = cursorOrDefault(cursor, FIRST_REPLY_CURSOR);
+        int limit = cursorPageSize(size);
+        List<ThreadReply> replies = replyRepository.findByThreadIdAfter(threadId, after.getTimestamp(),
+                after.getId(), PageRequest.of(0, limit + 1));
+
+        boolean hasNext = replies.size() > limit;
+        if (hasNext) {
+            replies = replies.subList(0, limit);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            ThreadReply last = replies.get(replies.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        List<ReplyResponse> content = replies.stream()
+                .map(reply -> convertToReplyResponse(reply, currentUser))
+                .collect(Collectors.toList());
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+
+    // Keys arrive in keyset order with one extra row as the has-next probe; load the page with
+    // its entity graph by id and restore that order
+    private CursorPage<ThreadResponse> threadSlice(List<Object[]> keys, int limit) {
+        boolean hasNext = keys.size() > limit;
+        if (hasNext) {
+            keys = keys.subList(0, limit);
+        }
+        List<Long> ids = keys.stream().map(key -> (Long) key[0]).collect(Collectors.toList());
+
+        Map<Long, DiscussionThread> threadsById = ids.isEmpty() ? Map.of()
+                : threadRepository.findByIdIn(ids).stream()
+                        .collect(Collectors.toMap(DiscussionThread::getId, thread -> thread));
+        List<ThreadResponse> content = ids.stream()
+                .map(threadsById::get)
+                .filter(thread -> thread != null)
+                .map(this::convertToThreadResponse)
+                .collect(Collectors.toList());
+
+        // The cursor is the last key row, so activity on a thread after it was read cannot shift the next page
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] last = keys.get(keys.size() - 1);
+            nextCursor = new PageCursor((LocalDateTime) last[1], (Long) last[0]).encode();
+        }
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+
+    private static PageCursor cursorOrDefault(String cursor, PageCursor first) {
+        PageCursor decoded = PageCursor.decode(cursor);
+        return decoded != null ? decoded : first;
+    }
+
+    private static int cursorPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
     // Reply Management - Optimized for performance
     public ReplyResponse createReply(Long threadId, CreateReplyRequest request, User author) {
         // Fast path: Get thread and validate
-        Optional<DiscussionThread> threadOpt = threadRepository.findById(threadId);
+        Optional<DiscussionThread> threadOpt = threadRepository.findByIdAndIsDeletedFalse(threadId);
         if (threadOpt.isEmpty()) {
             throw new RuntimeException("Thread not found");
         }
@@ -223,108 +405,43 @@ public class DiscussionThreadService {
         // Create and save reply immediately (fast operation)
         ThreadReply reply = new ThreadReply(request.getContent(), thread, author, parentReply);
         ThreadReply savedReply = replyRepository.save(reply);
+        threadSearchService.indexReply(savedReply);
 
-        // Quick thread update (minimal database operation)
-        thread.incrementReplyCount();
-        threadRepository.save(thread);
-
-        // Convert to response early
-        ReplyResponse replyResponse = convertToReplyResponse(savedReply);
-
-        // Quick broadcast to users
-        webSocketService.broadcastReplyCreated(threadId, replyResponse);
-
-        // ASYNC OPERATIONS - Don't block the response
-        // Process NLP and knowledge graph separately to maximize parallelism
-        processNLPAsync(request.getContent(), savedReply);
-        processKnowledgeGraphAsync(thread, request.getContent());
-
-        return replyResponse;
-    }
-
-    // Asynchronous processing method for expensive operations
-    @Async("replyProcessingExecutor")
-    public void processReplyAsync(DiscussionThread thread, String content, ThreadReply reply) {
-        try {
-            // Process NLP key phrases asynchronously
-            processNLPAsync(content, reply);
-
-            // Process knowledge graph asynchronously
-            processKnowledgeGraphAsync(thread, content);
+        // Relative update, so concurrent replies and background thread saves cannot lose a count
+        threadRepository.incrementReplyCount(threadId, LocalDateTime.now());
+        int replyCount = thread.getReplyCount() + 1;
 
-        } catch (Exception e) {
-            // Log error but don't fail the reply creation
-            System.err.println("Error in async reply processing: " + e.getMessage());
-        }
-    }
+        // Broadcast and post-processing are queued in this transaction and run off the request path
+        taskOutbox.enqueueReplyCreated(threadId, savedReply.getId());
+        taskOutbox.enqueueKeyPhrases(threadId, savedReply.getId(), replyCount);
+        // Replies to the same thread are coalesced into one knowledge graph pass
+        taskOutbox.enqueueKnowledgeGraph(threadId, savedReply.getId(), replyCount);
 
-    // Separate async method for NLP processing
-    @Async("nlpProcessingExecutor")
-    public void processNLPAsync(String content, ThreadReply reply) {
-        try {
-            extractAndSaveKeyPhrases(content, reply);
-        } catch (Exception e) {
-            System.err.println("Error in async NLP processing: " + e.getMessage());
-        }
+        return convertToReplyResponse(savedReply);
     }
 
-    // Separate async method for knowledge graph processing
-    @Async("replyProcessingExecutor")
-    public void processKnowledgeGraphAsync(DiscussionThread thread, String content) {
-        try {
-            knowledgeGraphService.processReplyForKnowledgeGraph(thread, content);
-            threadRepository.save(thread);
-        } catch (Exception e) {
-            System.err.println("Error in async knowledge graph processing: " + e.getMessage());
-        }
+    /**
+     * Broadcast a committed thread, loaded fresh by id (outbox consumer)
+     */
+    @Transactional(readOnly = true)
+    public void publishThreadCreated(Long threadId) {
+        threadRepository.findByIdAndIsDeletedFalse(threadId)
+                .ifPresent(thread -> webSocketService.broadcastThreadCreated(convertToThreadResponse(thread)));
     }
 
-    // NLP Key Phrase Extraction - Optimized for performance
-    private void extractAndSaveKeyPhrases(String content, ThreadReply reply) {
-        try {
-            // Skip NLP processing for very short content
-            if (content == null || content.trim().length() < 20) {
-                return;
-            }
-
-            // Limit content length to avoid excessive processing time
-            String processableContent = content.length() > 2000 ? content.substring(0, 2000) + "..." : content;
-
-            // Use NLP for key phrase extraction
-            List<String> keyPhrases = nlpKeyPhraseService.extractKeyPhrases(processableContent);
-
-            // Limit the number of key phrases to save
-            List<String> limitedKeyPhrases = keyPhrases.stream()
-                    .limit(15) // Only save top 15 key phrases
-                    .collect(Collectors.toList());
-
-            // Batch save key phrases to reduce database calls
-            List<ReplyKeyPhrase> keyPhrasesToSave = new ArrayList<>();
-
-            for (String keyPhrase : limitedKeyPhrases) {
-                // Check if this key phrase already exists for this reply
-                Optional<ReplyKeyPhrase> existingKeyPhrase = replyKeyPhraseRepository.findByKeyPhraseAndReply(keyPhrase,
-                        reply);
-
-                if (existingKeyPhrase.isPresent()) {
-                    // Increment frequency if it already exists
-                    existingKeyPhrase.get().incrementFrequency();
-                    keyPhrasesToSave.add(existingKeyPhrase.get());
-                } else {
-                    // Create new key phrase entry
-                    ReplyKeyPhrase newKeyPhrase = new ReplyKeyPhrase(keyPhrase, reply);
-                    keyPhrasesToSave.add(newKeyPhrase);
-                }
-            }
-
-            // Batch save all key phrases
-            replyKeyPhraseRepository.saveAll(keyPhrasesToSave);
-
-            System.out.println("Saved " + limitedKeyPhrases.size() + " key phrases for reply " + reply.getId());
-
-        } catch (Exception e) {
-            System.err.println("Error extracting and saving key phrases: " + e.getMessage());
+    /**
+     * Broadcast a committed reply, loaded fresh by id (outbox consumer)
+     */
+    @Transactional(readOnly = true)
+    public void publishReplyCreated(Long replyId) {
+        Optional<ThreadReply> replyOpt = replyRepository.findById(replyId);
+        if (replyOpt.isEmpty() || replyOpt.get().getIsDeleted()) {
+            return;
         }
+        ThreadReply reply = replyOpt.get();
+        DiscussionThread thread = reply.getThread();
+        webSocketService.broadcastReplyCreated(thread.getId(), thread.getCourse(), thread.getTopic(),
+                convertToReplyResponse(reply));
     }
 
     public Page<ReplyResponse> getRepliesByThread(Long threadId, int page, int size) {
@@ -332,7 +449,7 @@ public class DiscussionThreadService {
     }
 
     public Page<ReplyResponse> getRepliesByThread(Long threadId, int page, int size, User currentUser) {
-        Optional<DiscussionThread> threadOpt = threadRepository.findById(threadId);
+        Optional<DiscussionThread> threadOpt = threadRepository.findByIdAndIsDeletedFalse(threadId);
         if (threadOpt.isEmpty()) {
             throw new RuntimeException("Thread not found");
         }
@@ -343,7 +460,7 @@ public class DiscussionThreadService {
     }
 
     public boolean deleteThread(Long threadId, User user) {
-        Optional<DiscussionThread> threadOpt = threadRepository.findById(threadId);
+        Optional<DiscussionThread> threadOpt = threadRepository.findByIdAndIsDeletedFalse(threadId);
         if (threadOpt.isEmpty()) {
             return false;
         }
@@ -360,32 +477,20 @@ public class DiscussionThreadService {
         System.out.println(
                 "Deleting thread " + threadId + " with " + replyCount + " replies by user " + user.getUsername());
 
-        // Get all replies for this thread
-        List<ThreadReply> replies = replyRepository.findByThread(thread);
+        // Bulk deletes in dependency order; very large threads are hidden now and purged in the background
+        boolean deletedNow = threadDeletionService.deleteThread(threadId, replyCount);
+        knowledgeGraphService.evictThreadAggregate(threadId);
+        viewCountBuffer.discard(threadId);
+        threadSearchService.removeThread(threadId);
+        typeaheadService.recordThreadDeleted(thread.getCourse());
 
-        // Delete all reply key phrases first to avoid foreign key constraint violations
-        for (ThreadReply reply : replies) {
-            List<ReplyKeyPhrase> keyPhrases = replyKeyPhraseRepository.findByReply(reply);
-            if (!keyPhrases.isEmpty()) {
-                replyKeyPhraseRepository.deleteAll(keyPhrases);
-                System.out.println("Deleted " + keyPhrases.size() + " key phrases for reply " + reply.getId());
-            }
-        }
-
-        // Delete all thread key phrases if any exist
-        List<ReplyKeyPhrase> threadKeyPhrases = replyKeyPhraseRepository.findByThreadId(threadId);
-        if (!threadKeyPhrases.isEmpty()) {
-            replyKeyPhraseRepository.deleteAll(threadKeyPhrases);
-            System.out.println("Deleted " + threadKeyPhrases.size() + " thread-level key phrases");
+        if (!deletedNow) {
+            System.out.println("Thread " + threadId + " hidden; its " + replyCount
+                    + " replies will be purged in the background");
         }
 
-        // Now delete the thread (this will cascade delete the replies)
-        threadRepository.delete(thread);
-
-        System.out.println("Thread " + threadId + " and all its " + replyCount + " replies have been deleted");
-
         // Broadcast thread deletion to all users
-        webSocketService.broadcastThreadDeleted(threadId);
+        webSocketService.broadcastThreadDeleted(threadId, thread.getCourse(), thread.getTopic());
 
         return true;
     }
@@ -415,15 +520,18 @@ public class DiscussionThreadService {
 
         // Now delete the reply
         replyRepository.delete(reply);
+        threadSearchService.removeReply(thread.getId(), replyId);
 
         // Update thread reply count
-        thread.decrementReplyCount();
-        threadRepository.save(thread);
+        threadRepository.decrementReplyCount(thread.getId());
+
+        // Summary snippets may have come from the deleted reply
+        knowledgeGraphService.evictThreadAggregate(thread.getId());
 
         System.out.println("Reply " + replyId + " deleted by user " + user.getUsername());
 
         // Broadcast reply deletion to thread followers
-        webSocketService.broadcastReplyDeleted(thread.getId(), replyId);
+        webSocketService.broadcastReplyDeleted(thread.getId(), thread.getCourse(), replyId);
 
         return true;
     }
@@ -434,7 +542,7 @@ public class DiscussionThreadService {
             throw new RuntimeException("Not authorized to pin threads");
         }
 
-        Optional<DiscussionThread> threadOpt = threadRepository.findById(threadId);
+        Optional<DiscussionThread> threadOpt = threadRepository.findByIdAndIsDeletedFalse(threadId);
         if (threadOpt.isEmpty()) {
             return false;
         }
@@ -454,7 +562,7 @@ public class DiscussionThreadService {
             throw new RuntimeException("Not authorized to lock threads");
         }
 
-        Optional<DiscussionThread> threadOpt = threadRepository.findById(threadId);
+        Optional<DiscussionThread> threadOpt = threadRepository.findByIdAndIsDeletedFalse(threadId);
         if (threadOpt.isEmpty()) {
             return false;
         }
@@ -486,7 +594,7 @@ public class DiscussionThreadService {
                 authorName,
                 thread.getIsPinned(),
                 thread.getIsLocked(),
-                thread.getViewCount(),
+                (int) (thread.getViewCount() + viewCountBuffer.getPendingViews(thread.getId())),
                 thread.getReplyCount(),
                 thread.getCreatedAt(),
                 thread.getLastActivityAt());
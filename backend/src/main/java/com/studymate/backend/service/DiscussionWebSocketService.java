@@ -1,21 +1,41 @@
 package com.studymate.backend.service;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.studymate.backend.dto.ReplyResponse;
 import com.studymate.backend.dto.ThreadResponse;
 
+/**
+ * Publishes discussion events over STOMP. Listing destinations (the global
+ * feed, each course and each course topic) receive compact deltas; full
+ * thread and reply payloads go only to the thread's own destination. Each
+ * event is serialized once and published on the discussion event bus, which
+ * delivers it after commit to every node's DiscussionEventDispatcher.
+ */
 @Service
 public class DiscussionWebSocketService {
 
+    public static final String DISCUSSIONS_TOPIC = "/topic/discussions";
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private DiscussionEventBus eventBus;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     // Event types
     public static final String THREAD_CREATED = "thread_created";
     public static final String THREAD_UPDATED = "thread_updated";
@@ -27,109 +47,90 @@ public class DiscussionWebSocketService {
     public static final String THREAD_LOCKED = "thread_locked";
 
     /**
-     * Broadcast thread creation to all users
+     * Broadcast thread creation to listing subscribers. Listings have nothing
+     * to merge a new thread onto, so it carries the fields a card renders.
      */
     public void broadcastThreadCreated(ThreadResponse thread) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", THREAD_CREATED);
-        message.put("payload", thread);
-
-        System.out.println("🚀 Broadcasting thread creation: " + thread.getTitle());
-        System.out.println("📨 Message: " + message);
-        messagingTemplate.convertAndSend("/topic/discussions", message);
-        System.out.println("✅ Thread creation broadcast sent");
+        Map<String, Object> created = threadDelta(thread);
+        created.put("content", thread.getContent());
+        created.put("viewCount", thread.getViewCount());
+        eventBus.publish(new DiscussionEvent(THREAD_CREATED, thread.getId(), thread.getCourse(), thread.getTopic(),
+                null, event(THREAD_CREATED, created), null));
     }
 
     /**
-     * Broadcast thread update to all users
+     * Broadcast thread update: a delta to listings, the full thread to its followers
      */
     public void broadcastThreadUpdated(ThreadResponse thread) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", THREAD_UPDATED);
-        message.put("payload", thread);
-
-        messagingTemplate.convertAndSend("/topic/discussions", message);
+        publishThreadChange(THREAD_UPDATED, thread);
     }
 
     /**
-     * Broadcast thread deletion to all users
+     * Broadcast thread deletion to listings and thread followers
      */
-    public void broadcastThreadDeleted(Long threadId) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", THREAD_DELETED);
-        message.put("payload", Map.of("threadId", threadId));
+    public void broadcastThreadDeleted(Long threadId, String course, String topic) {
+        byte[] event = event(THREAD_DELETED, Map.of("threadId", threadId));
+        eventBus.publish(new DiscussionEvent(THREAD_DELETED, threadId, course, topic, null, event, event));
+    }
 
-        messagingTemplate.convertAndSend("/topic/discussions", message);
+    public void broadcastThreadDeleted(Long threadId) {
+        broadcastThreadDeleted(threadId, null, null);
     }
 
     /**
-     * Broadcast reply creation to all users following the thread
+     * Broadcast reply creation: a delta to listings, the full reply to thread followers
      */
-    public void broadcastReplyCreated(Long threadId, ReplyResponse reply) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", REPLY_CREATED);
-        message.put("payload", Map.of(
-                "threadId", threadId,
-                "reply", reply,
-                "createdAt", reply.getCreatedAt()));
-
-        System.out.println("🚀 Broadcasting reply creation for thread: " + threadId);
-        System.out.println("📨 Reply content: " + reply.getContent());
-
-        // Broadcast to all discussion listeners
-        messagingTemplate.convertAndSend("/topic/discussions", message);
+    public void broadcastReplyCreated(Long threadId, String course, String topic, ReplyResponse reply) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("threadId", threadId);
+        delta.put("replyId", reply.getId());
+        delta.put("authorName", reply.getAuthorName());
+        delta.put("createdAt", reply.getCreatedAt());
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("threadId", threadId);
+        payload.put("reply", reply);
+        payload.put("createdAt", reply.getCreatedAt());
+        eventBus.publish(new DiscussionEvent(REPLY_CREATED, threadId, course, topic, null,
+                event(REPLY_CREATED, delta), event(REPLY_CREATED, payload)));
+    }
 
-        // Also broadcast to specific thread listeners
-        messagingTemplate.convertAndSend("/topic/discussions/thread/" + threadId, message);
-        System.out.println("✅ Reply creation broadcast sent");
+    public void broadcastReplyCreated(Long threadId, ReplyResponse reply) {
+        broadcastReplyCreated(threadId, null, null, reply);
     }
 
     /**
      * Broadcast reply update to thread followers
      */
     public void broadcastReplyUpdated(Long threadId, ReplyResponse reply) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", REPLY_UPDATED);
-        message.put("payload", Map.of(
-                "threadId", threadId,
-                "reply", reply));
-
-        messagingTemplate.convertAndSend("/topic/discussions/thread/" + threadId, message);
+        eventBus.publish(new DiscussionEvent(REPLY_UPDATED, threadId, null, null, REPLY_UPDATED + ":" + reply.getId(),
+                null, event(REPLY_UPDATED, Map.of("threadId", threadId, "reply", reply))));
     }
 
     /**
      * Broadcast reply deletion to thread followers
      */
-    public void broadcastReplyDeleted(Long threadId, Long replyId) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", REPLY_DELETED);
-        message.put("payload", Map.of(
-                "threadId", threadId,
-                "replyId", replyId));
+    public void broadcastReplyDeleted(Long threadId, String course, Long replyId) {
+        eventBus.publish(new DiscussionEvent(REPLY_DELETED, threadId, course, null, null, null,
+                event(REPLY_DELETED, Map.of("threadId", threadId, "replyId", replyId))));
+    }
 
-        messagingTemplate.convertAndSend("/topic/discussions/thread/" + threadId, message);
+    public void broadcastReplyDeleted(Long threadId, Long replyId) {
+        broadcastReplyDeleted(threadId, null, replyId);
     }
 
     /**
-     * Broadcast thread pin/unpin to all users
+     * Broadcast thread pin/unpin
      */
     public void broadcastThreadPinned(ThreadResponse thread) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", THREAD_PINNED);
-        message.put("payload", thread);
-
-        messagingTemplate.convertAndSend("/topic/discussions", message);
+        publishThreadChange(THREAD_PINNED, thread);
     }
 
     /**
-     * Broadcast thread lock/unlock to all users
+     * Broadcast thread lock/unlock
      */
     public void broadcastThreadLocked(ThreadResponse thread) {
-        Map<String, Object> message = new HashMap<>();
-        message.put("type", THREAD_LOCKED);
-        message.put("payload", thread);
-
-        messagingTemplate.convertAndSend("/topic/discussions", message);
+        publishThreadChange(THREAD_LOCKED, thread);
     }
 
     /**
@@ -142,4 +143,61 @@ public class DiscussionWebSocketService {
 
         messagingTemplate.convertAndSendToUser(username, "/queue/notifications", message);
     }
+
+    public static String courseDestination(String course) {
+        return DISCUSSIONS_TOPIC + "/course/" + encodeSegment(course);
+    }
+
+    public static String courseTopicDestination(String course, String topic) {
+        return courseDestination(course) + "/topic/" + encodeSegment(topic);
+    }
+
+    public static String threadDestination(Long threadId) {
+        return DISCUSSIONS_TOPIC + "/thread/" + threadId;
+    }
+
+    private void publishThreadChange(String type, ThreadResponse thread) {
+        // Later changes to the same thread within a batch window supersede earlier ones
+        String coalesceKey = type + ":" + thread.getId();
+        eventBus.publish(new DiscussionEvent(type, thread.getId(), thread.getCourse(), thread.getTopic(), coalesceKey,
+                event(type, threadDelta(thread)), event(type, thread)));
+    }
+
+    // The listing fields of a thread, without its content or knowledge data
+    private static Map<String, Object> threadDelta(ThreadResponse thread) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("id", thread.getId());
+        delta.put("title", thread.getTitle());
+        delta.put("course", thread.getCourse());
+        delta.put("topic", thread.getTopic());
+        delta.put("authorName", thread.getAuthorName());
+        delta.put("isPinned", thread.getIsPinned());
+        delta.put("isLocked", thread.getIsLocked());
+        delta.put("replyCount", thread.getReplyCount());
+        delta.put("createdAt", thread.getCreatedAt());
+        delta.put("lastActivityAt", thread.getLastActivityAt());
+        return delta;
+    }
+
+    private byte[] event(String type, Object payload) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", type);
+        message.put("payload", payload);
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize discussion event " + type, e);
+        }
+    }
+
+    // Matches the browser's encodeURIComponent, so clients can build the same destinations
+    private static String encodeSegment(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8)
+                .replace("+", "%20")
+                .replace("%21", "!")
+                .replace("%27", "'")
+                .replace("%28", "(")
+                .replace("%29", ")")
+                .replace("%7E", "~");
+    }
 }
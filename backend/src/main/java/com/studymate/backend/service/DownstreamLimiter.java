@@ -0,0 +1,61 @@
+package com.studymate.backend.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Caps concurrent calls to each external dependency. With virtual threads a
+ * request no longer waits for a free worker thread, so these permits are
+ * what keeps a traffic spike from turning into thousands of simultaneous
+ * Gemini calls or page scrapes. The database is capped by its connection
+ * pool.
+ */
+@Component
+public class DownstreamLimiter {
+
+    public enum Downstream {
+        GEMINI, SCRAPER
+    }
+
+    @Value("${downstream.gemini.max-concurrent:8}")
+    private int geminiMaxConcurrent;
+
+    @Value("${downstream.scraper.max-concurrent:4}")
+    private int scraperMaxConcurrent;
+
+    // How long a caller waits for a permit before giving up
+    @Value("${downstream.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>(Downstream.class);
+
+    @PostConstruct
+    public void init() {
+        permits.put(Downstream.GEMINI, new Semaphore(geminiMaxConcurrent, true));
+        permits.put(Downstream.SCRAPER, new Semaphore(scraperMaxConcurrent, true));
+    }
+
+    /**
+     * Run a call to the downstream once a permit is free
+     */
+    public <T> T call(Downstream downstream, Callable<T> call) throws Exception {
+        Semaphore semaphore = permits.get(downstream);
+        if (!semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Too many concurrent " + downstream.name().toLowerCase()
+                    + " calls, try again later");
+        }
+        try {
+            return call.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -34,6 +35,9 @@ public class GeminiAIQuizGeneratorService {
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
 
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     @Value("${gemini.api.key}")
     private String geminiApiKey;
 
@@ -196,7 +200,7 @@ public class GeminiAIQuizGeneratorService {
                     .retrieve()
                     .bodyToMono(String.class);
 
-            String responseBody = response.block();
+            String responseBody = downstreamLimiter.call(DownstreamLimiter.Downstream.GEMINI, response::block);
             // System.out.println(responseBody);
             logger.info("Received response from Gemini AI API");
 
@@ -9,6 +9,7 @@ import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -22,6 +23,9 @@ public class GeminiService {
 
     private static final Logger logger = LoggerFactory.getLogger(GeminiService.class);
 
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     @Value("${gemini.api.key}")
     private String apiKey;
 
@@ -106,7 +110,7 @@ public class GeminiService {
             generationConfig.put("maxOutputTokens", 1000);
             requestBody.put("generationConfig", generationConfig);
 
-            String response = webClient.post()
+            String response = downstreamLimiter.call(DownstreamLimiter.Downstream.GEMINI, () -> webClient.post()
                     .uri("https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash-latest:generateContent?key="
                             + apiKey)
                     .header("Content-Type", "application/json")
@@ -114,7 +118,7 @@ public class GeminiService {
                     .retrieve()
                     .bodyToMono(String.class)
                     .timeout(Duration.ofSeconds(30))
-                    .block();
+                    .block());
 
             // Parse response
             JsonNode jsonResponse = objectMapper.readTree(response);
@@ -43,6 +43,12 @@ public class HelpResourcesService {
     @Autowired
     private GeminiService geminiService;
 
+    @Autowired
+    private TextTokenizer tokenizer;
+
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     /**
      * Cache for storing extracted material content to avoid repeated processing
      */
@@ -399,10 +405,7 @@ public class HelpResourcesService {
      * Check if a word is a common stop word
      */
     private boolean isStopWord(String word) {
-        String[] stopWords = { "the", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by", "is",
-                "are", "was", "were", "be", "been", "have", "has", "had", "do", "does", "did", "will", "would", "could",
-                "should", "may", "might", "can", "this", "that", "these", "those", "a", "an" };
-        return java.util.Arrays.asList(stopWords).contains(word.toLowerCase());
+        return tokenizer.isStopWord(word);
     }
 
     /**
@@ -413,15 +416,15 @@ public class HelpResourcesService {
             return new ArrayList<>();
         }
 
-        // Clean and tokenize content
-        String cleanContent = content.replaceAll("[^a-zA-Z\\s]", "").toLowerCase();
-        String[] words = cleanContent.split("\\s+");
+        // Tokenize content into spans; strings are only created for counted terms
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(content);
 
         // Count word frequencies
         Map<String, Integer> wordCount = new HashMap<>();
-        for (String word : words) {
-            if (word.length() > 3 && !isStopWord(word)) {
-                wordCount.put(word, wordCount.getOrDefault(word, 0) + 1);
+        for (int i = 0; i < spans.size(); i++) {
+            if (spans.length(i) > 3 && !spans.isNumeric(i)
+                    && !tokenizer.isStopWord(spans.text(), spans.offset(i), spans.length(i))) {
+                wordCount.merge(spans.lowerCaseText(i), 1, Integer::sum);
             }
         }
 
@@ -494,12 +497,12 @@ public class HelpResourcesService {
 
             logger.info("Searching YouTube for: {}", searchQuery);
 
-            Document doc = Jsoup.connect(url)
+            Document doc = downstreamLimiter.call(DownstreamLimiter.Downstream.SCRAPER, () -> Jsoup.connect(url)
                     .userAgent(USER_AGENT)
                     .timeout(15000)
                     .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
                     .header("Accept-Language", "en-US,en;q=0.5")
-                    .get();
+                    .get());
 
             // Extract video information from YouTube search results
             Elements scriptElements = doc.select("script");
@@ -616,7 +619,7 @@ public class HelpResourcesService {
 
             logger.info("Searching Google Scholar (improved) for: {}", searchQuery);
 
-            Document doc = Jsoup.connect(url)
+            Document doc = downstreamLimiter.call(DownstreamLimiter.Downstream.SCRAPER, () -> Jsoup.connect(url)
                     .userAgent(
                             "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
                     .timeout(20000)
@@ -625,7 +628,7 @@ public class HelpResourcesService {
                     .header("Accept-Encoding", "gzip, deflate")
                     .header("Connection", "keep-alive")
                     .followRedirects(true)
-                    .get();
+                    .get());
 
             // Try multiple selectors for different Google Scholar layouts
             Elements results = doc.select("div.gs_r, div.gs_ri");
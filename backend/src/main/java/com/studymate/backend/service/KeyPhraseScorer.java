@@ -0,0 +1,418 @@
+package com.studymate.backend.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.studymate.backend.repository.DiscussionThreadRepository;
+import com.studymate.backend.repository.ThreadReplyRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Ranks key phrase candidates with RAKE word scores weighted by inverse
+ * document frequency. The document-frequency table covers all threads and
+ * replies: documents up to the highest ids at startup are seeded from the
+ * database with the same candidates recorded at runtime, and each later
+ * document is recorded once, however often its outbox task runs.
+ */
+@Service
+public class KeyPhraseScorer {
+
+    private static final int MAX_PHRASE_WORDS = 4;
+    private static final double PRUNE_TARGET_RATIO = 0.9;
+    private static final int SEED_BATCH_SIZE = 500;
+
+    // Replies shorter than this are not processed; longer ones are cut before extraction
+    private static final int MIN_REPLY_LENGTH = 20;
+    private static final int MAX_REPLY_LENGTH = 2000;
+
+    @Autowired
+    private TextTokenizer tokenizer;
+
+    @Autowired
+    private ThreadReplyRepository replyRepository;
+
+    @Autowired
+    private DiscussionThreadRepository threadRepository;
+
+    @Value("${nlp.keyphrases.max-df-entries:100000}")
+    private int maxDocumentFrequencyEntries;
+
+    // Recorded document ids kept to ignore retried recordings; retries happen within minutes
+    @Value("${nlp.keyphrases.recent-documents:10000}")
+    private int recentDocumentsSize;
+
+    // Lower-case phrase -> number of documents containing it
+    private final Map<String, AtomicInteger> documentFrequencies = new ConcurrentHashMap<>();
+
+    private final AtomicLong documentCount = new AtomicLong();
+
+    // One pruning pass at a time; other writers carry on while it runs
+    private final AtomicBoolean pruning = new AtomicBoolean();
+
+    // Documents up to these ids are counted by the seed, never at runtime
+    private volatile long seedThreadMaxId;
+    private volatile long seedReplyMaxId;
+
+    private final Map<String, Boolean> recentDocuments = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > recentDocumentsSize;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        // Fixed before any outbox task runs, so seed and runtime never count the same document
+        try {
+            Long threadMaxId = threadRepository.findMaxId();
+            Long replyMaxId = replyRepository.findMaxId();
+            seedThreadMaxId = threadMaxId != null ? threadMaxId : 0L;
+            seedReplyMaxId = replyMaxId != null ? replyMaxId : 0L;
+        } catch (Exception e) {
+            System.err.println("Failed to read key phrase seed bounds: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Count every existing thread and reply, in id order and in batches
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedDocumentFrequencies() {
+        try {
+            long threads = 0;
+            long afterId = 0;
+            List<Object[]> rows;
+            do {
+                rows = threadRepository.findKeyPhraseTextAfter(afterId, seedThreadMaxId,
+                        PageRequest.of(0, SEED_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    recordText(threadDocument((String) row[1], (String) row[2]));
+                    afterId = (Long) row[0];
+                    threads++;
+                }
+            } while (rows.size() == SEED_BATCH_SIZE);
+
+            long replies = 0;
+            afterId = 0;
+            do {
+                rows = replyRepository.findKeyPhraseTextAfter(afterId, seedReplyMaxId,
+                        PageRequest.of(0, SEED_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    String document = replyDocument((String) row[1]);
+                    if (document != null) {
+                        recordText(document);
+                        replies++;
+                    }
+                    afterId = (Long) row[0];
+                }
+            } while (rows.size() == SEED_BATCH_SIZE);
+
+            System.out.println("Key phrase scorer seeded with " + documentFrequencies.size() + " phrases from "
+                    + threads + " threads and " + replies + " replies");
+        } catch (Exception e) {
+            System.err.println("Failed to seed key phrase document frequencies: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The text a thread contributes to the corpus
+     */
+    public static String threadDocument(String title, String content) {
+        return title + ". " + content;
+    }
+
+    /**
+     * The text a reply contributes to the corpus, or null when it is too short to process
+     */
+    public static String replyDocument(String content) {
+        if (content == null || content.trim().length() < MIN_REPLY_LENGTH) {
+            return null;
+        }
+        return content.length() > MAX_REPLY_LENGTH ? content.substring(0, MAX_REPLY_LENGTH) + "..." : content;
+    }
+
+    /**
+     * Extract the top scoring key phrases of a document without recording it
+     */
+    public List<ScoredPhrase> extractTopPhrases(String text, int limit) {
+        return extractTopPhrases(text, limit, false);
+    }
+
+    /**
+     * Extract the top scoring key phrases of a reply (see replyDocument) and
+     * record it in the frequency table, once per reply id
+     */
+    public List<ScoredPhrase> extractReplyPhrases(Long replyId, String document, int limit) {
+        return extractTopPhrases(document, limit, claimDocument("reply", replyId, seedReplyMaxId));
+    }
+
+    private List<ScoredPhrase> extractTopPhrases(String text, int limit, boolean recordDocument) {
+        if (text == null || text.trim().isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(text, new TextTokenizer.TokenSpans(), true);
+        Map<String, Candidate> candidates = collectCandidates(spans);
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // RAKE word scores: degree(word) / frequency(word) over all candidate occurrences
+        Map<String, int[]> wordStats = new HashMap<>();
+        for (Candidate candidate : candidates.values()) {
+            for (String word : candidate.words) {
+                int[] stats = wordStats.computeIfAbsent(word, key -> new int[2]);
+                stats[0] += candidate.occurrences;
+                stats[1] += candidate.occurrences * candidate.words.length;
+            }
+        }
+
+        List<ScoredPhrase> scored = new ArrayList<>(candidates.size());
+        for (Map.Entry<String, Candidate> entry : candidates.entrySet()) {
+            Candidate candidate = entry.getValue();
+            double rakeScore = 0.0;
+            for (String word : candidate.words) {
+                int[] stats = wordStats.get(word);
+                rakeScore += (double) stats[1] / stats[0];
+            }
+            scored.add(new ScoredPhrase(candidate.display, rakeScore * inverseDocumentFrequency(entry.getKey())));
+        }
+
+        if (recordDocument) {
+            recordCandidates(candidates.keySet());
+        }
+
+        scored.sort(Comparator.comparingDouble(ScoredPhrase::getScore).reversed());
+        return scored.size() > limit ? new ArrayList<>(scored.subList(0, limit)) : scored;
+    }
+
+    /**
+     * Rank externally produced phrases (e.g. POS noun phrases) by word count
+     * and inverse document frequency
+     */
+    public List<ScoredPhrase> rank(Collection<String> phrases, int limit) {
+        List<ScoredPhrase> scored = new ArrayList<>(phrases.size());
+        for (String phrase : phrases) {
+            int words = 1;
+            for (int i = 0; i < phrase.length(); i++) {
+                if (phrase.charAt(i) == ' ') {
+                    words++;
+                }
+            }
+            scored.add(new ScoredPhrase(phrase, words * inverseDocumentFrequency(phrase.toLowerCase())));
+        }
+
+        scored.sort(Comparator.comparingDouble(ScoredPhrase::getScore).reversed());
+        return scored.size() > limit ? new ArrayList<>(scored.subList(0, limit)) : scored;
+    }
+
+    /**
+     * Record a new thread in the frequency table once its transaction commits
+     */
+    public void recordThread(Long threadId, String title, String content) {
+        String document = threadDocument(title, content);
+        DiscussionEventBus.afterCommit(() -> {
+            if (claimDocument("thread", threadId, seedThreadMaxId)) {
+                recordText(document);
+            }
+        });
+    }
+
+    // A document counts once: the seed covers ids up to its bound, later ids are remembered while retries can happen
+    private boolean claimDocument(String kind, Long id, long seedMaxId) {
+        if (id == null || id <= seedMaxId) {
+            return false;
+        }
+        synchronized (recentDocuments) {
+            return recentDocuments.put(kind + ":" + id, Boolean.TRUE) == null;
+        }
+    }
+
+    private void recordText(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return;
+        }
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(text, new TextTokenizer.TokenSpans(), true);
+        recordCandidates(collectCandidates(spans).keySet());
+    }
+
+    public long getDocumentCount() {
+        return documentCount.get();
+    }
+
+    public int getDocumentFrequency(String phrase) {
+        AtomicInteger frequency = documentFrequencies.get(phrase.toLowerCase());
+        return frequency != null ? frequency.get() : 0;
+    }
+
+    private double inverseDocumentFrequency(String key) {
+        AtomicInteger frequency = documentFrequencies.get(key);
+        int df = frequency != null ? frequency.get() : 0;
+        return Math.log((documentCount.get() + 1.0) / (df + 1.0)) + 1.0;
+    }
+
+    private void recordCandidates(Collection<String> keys) {
+        documentCount.incrementAndGet();
+        for (String key : keys) {
+            documentFrequencies.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        }
+
+        // Pruning goes down to 90% of the cap, so the full scan runs once per 10% of new phrases
+        if (documentFrequencies.size() > maxDocumentFrequencyEntries && pruning.compareAndSet(false, true)) {
+            try {
+                prune((int) (maxDocumentFrequencyEntries * PRUNE_TARGET_RATIO));
+            } finally {
+                pruning.set(false);
+            }
+        }
+    }
+
+    // Drops the rarest phrases until the table is down to the target size
+    private void prune(int targetSize) {
+        int excess = documentFrequencies.size() - targetSize;
+        if (excess <= 0) {
+            return;
+        }
+
+        // Lowest frequency whose phrases, together with all rarer ones, cover the excess
+        TreeMap<Integer, Integer> histogram = new TreeMap<>();
+        for (AtomicInteger frequency : documentFrequencies.values()) {
+            histogram.merge(frequency.get(), 1, Integer::sum);
+        }
+        int threshold = 0;
+        int covered = 0;
+        for (Map.Entry<Integer, Integer> bucket : histogram.entrySet()) {
+            threshold = bucket.getKey();
+            covered += bucket.getValue();
+            if (covered >= excess) {
+                break;
+            }
+        }
+
+        int removed = 0;
+        Iterator<AtomicInteger> frequencies = documentFrequencies.values().iterator();
+        while (frequencies.hasNext() && removed < excess) {
+            if (frequencies.next().get() <= threshold) {
+                frequencies.remove();
+                removed++;
+            }
+        }
+    }
+
+    /**
+     * Split the token stream into candidate phrases at stop words, numbers,
+     * punctuation and sentence boundaries
+     */
+    private Map<String, Candidate> collectCandidates(TextTokenizer.TokenSpans spans) {
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        int start = -1;
+
+        for (int i = 0; i < spans.size(); i++) {
+            boolean phraseWord = spans.length(i) > 2 && !spans.isNumeric(i)
+                    && !tokenizer.isStopWord(spans.text(), spans.offset(i), spans.length(i));
+            boolean boundary = spans.isSentenceStart(i) || hasPunctuationBefore(spans, i);
+
+            if (start >= 0 && (!phraseWord || boundary || i - start == MAX_PHRASE_WORDS)) {
+                addCandidate(candidates, spans, start, i);
+                start = -1;
+            }
+            if (phraseWord && start < 0) {
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            addCandidate(candidates, spans, start, spans.size());
+        }
+
+        return candidates;
+    }
+
+    private void addCandidate(Map<String, Candidate> candidates, TextTokenizer.TokenSpans spans, int start, int end) {
+        // Single words must be long or capitalized to be worth keeping
+        if (end - start == 1 && spans.length(start) < 5 && !spans.isCapitalized(start)) {
+            return;
+        }
+
+        String[] words = new String[end - start];
+        StringBuilder display = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            words[i - start] = spans.lowerCaseText(i);
+            if (display.length() > 0) {
+                display.append(' ');
+            }
+            spans.appendTo(display, i);
+        }
+
+        String key = String.join(" ", words);
+        Candidate candidate = candidates.get(key);
+        if (candidate == null) {
+            candidates.put(key, new Candidate(display.toString(), words));
+        } else {
+            candidate.occurrences++;
+        }
+    }
+
+    private boolean hasPunctuationBefore(TextTokenizer.TokenSpans spans, int index) {
+        if (index == 0) {
+            return false;
+        }
+        CharSequence text = spans.text();
+        for (int i = spans.offset(index - 1) + spans.length(index - 1); i < spans.offset(index); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Candidate {
+        private final String display;
+        private final String[] words;
+        private int occurrences = 1;
+
+        private Candidate(String display, String[] words) {
+            this.display = display;
+            this.words = words;
+        }
+    }
+
+    /**
+     * Key phrase with its relevance score
+     */
+    public static final class ScoredPhrase {
+        private final String phrase;
+        private final double score;
+
+        public ScoredPhrase(String phrase, double score) {
+            this.phrase = phrase;
+            this.score = score;
+        }
+
+        public String getPhrase() {
+            return phrase;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.studymate.backend.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -11,12 +13,17 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.studymate.backend.model.DiscussionThread;
 import com.studymate.backend.model.KnowledgeEntity;
+import com.studymate.backend.repository.DiscussionThreadRepository;
 import com.studymate.backend.repository.KnowledgeEntityRepository;
 
 @Service
@@ -29,6 +36,33 @@ public class KnowledgeGraphService {
     @Autowired
     private NLPService nlpService;
 
+    @Autowired
+    private DiscussionThreadRepository threadRepository;
+
+    @Autowired
+    private ThreadSearchService threadSearchService;
+
+    @Autowired
+    private TypeaheadService typeaheadService;
+
+    @Value("${knowledge.graph.incremental-updates:true}")
+    private boolean incrementalUpdates;
+
+    @Value("${knowledge.graph.aggregate-cache-size:1000}")
+    private int aggregateCacheSize;
+
+    // Running aggregates per thread for incremental reply updates, least recently used evicted first
+    private final Map<Long, ThreadKnowledgeAggregate> threadAggregates = Collections.synchronizedMap(
+            new LinkedHashMap<Long, ThreadKnowledgeAggregate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, ThreadKnowledgeAggregate> eldest) {
+                    return size() > aggregateCacheSize;
+                }
+            });
+
+    // Typeahead matches considered when summarizing a topic query
+    private static final int TOPIC_SUMMARY_CANDIDATES = 10;
+
     // Pre-defined knowledge patterns for different subjects
     private static final Map<String, List<String>> DOMAIN_KEYWORDS = Map.of(
             "COMPUTER_SCIENCE",
@@ -171,67 +205,73 @@ public class KnowledgeGraphService {
             return generateBasicSummary(thread);
         }
 
-        StringBuilder summary = new StringBuilder();
-
         // Group entities by type
         Map<String, List<KnowledgeEntity>> entityGroups = entities.stream()
                 .collect(Collectors.groupingBy(KnowledgeEntity::getEntityType));
 
-        summary.append("**Key Concepts:** ");
-
         // Add main concepts
+        List<String> concepts = List.of();
         if (entityGroups.containsKey("CONCEPT")) {
-            List<String> concepts = entityGroups.get("CONCEPT").stream()
+            concepts = entityGroups.get("CONCEPT").stream()
                     .sorted((a, b) -> Double.compare(b.getConfidenceScore(), a.getConfidenceScore()))
                     .limit(3)
                     .map(KnowledgeEntity::getName)
                     .collect(Collectors.toList());
-            summary.append(String.join(", ", concepts));
         }
 
         // Add key phrases if available
+        List<String> keyPhrases = List.of();
         if (entityGroups.containsKey("KEY_PHRASE")) {
-            List<String> keyPhrases = entityGroups.get("KEY_PHRASE").stream()
+            keyPhrases = entityGroups.get("KEY_PHRASE").stream()
                     .sorted((a, b) -> Double.compare(b.getConfidenceScore(), a.getConfidenceScore()))
                     .limit(2)
                     .map(KnowledgeEntity::getName)
                     .collect(Collectors.toList());
-            if (!keyPhrases.isEmpty()) {
-                summary.append(", ").append(String.join(", ", keyPhrases));
-            }
-        }
-
-        summary.append("\n\n**Discussion Summary:** ");
-        summary.append(generateBasicSummary(thread));
-
-        // Add sentiment analysis if NLP service is available
-        if (nlpService != null) {
-            try {
-                String sentiment = nlpService.analyzeSentiment(thread.getContent());
-                summary.append("\n\n**Discussion Tone:** ").append(sentiment);
-            } catch (Exception e) {
-                // Ignore sentiment analysis errors
-            }
         }
 
         // Add reply insights if there are replies
+        int activeReplies = 0;
         if (thread.getReplies() != null && !thread.getReplies().isEmpty()) {
-            int activeReplies = (int) thread.getReplies().stream()
+            activeReplies = (int) thread.getReplies().stream()
                     .filter(reply -> !reply.getIsDeleted())
                     .count();
+        }
+
+        // Add related knowledge
+        List<String> relatedNames = findRelatedEntities(entities).stream()
+                .limit(5)
+                .map(KnowledgeEntity::getName)
+                .collect(Collectors.toList());
+
+        return formatKnowledgeSummary(concepts, keyPhrases, generateBasicSummary(thread),
+                analyzeThreadSentiment(thread), activeReplies, relatedNames);
+    }
+
+    private String formatKnowledgeSummary(List<String> concepts, List<String> keyPhrases, String basicSummary,
+            String sentiment, int activeReplies, List<String> relatedNames) {
+        StringBuilder summary = new StringBuilder();
+
+        summary.append("**Key Concepts:** ");
+        summary.append(String.join(", ", concepts));
+        if (!keyPhrases.isEmpty()) {
+            summary.append(", ").append(String.join(", ", keyPhrases));
+        }
+
+        summary.append("\n\n**Discussion Summary:** ");
+        summary.append(basicSummary);
+
+        if (sentiment != null) {
+            summary.append("\n\n**Discussion Tone:** ").append(sentiment);
+        }
+
+        if (activeReplies > 0) {
             summary.append("\n\n**Discussion Activity:** ");
             summary.append("This thread has generated ").append(activeReplies)
                     .append(" replies, indicating active community engagement on this topic.");
         }
 
-        // Add related knowledge
         summary.append("\n\n**Related Topics:** ");
-        Set<KnowledgeEntity> relatedEntities = findRelatedEntities(entities);
-        if (!relatedEntities.isEmpty()) {
-            List<String> relatedNames = relatedEntities.stream()
-                    .limit(5)
-                    .map(KnowledgeEntity::getName)
-                    .collect(Collectors.toList());
+        if (!relatedNames.isEmpty()) {
             summary.append(String.join(", ", relatedNames));
         } else {
             summary.append("No strongly related topics found yet.");
@@ -240,6 +280,18 @@ public class KnowledgeGraphService {
         return summary.toString();
     }
 
+    // Sentiment analysis if NLP service is available
+    private String analyzeThreadSentiment(DiscussionThread thread) {
+        if (nlpService != null) {
+            try {
+                return nlpService.analyzeSentiment(thread.getContent());
+            } catch (Exception e) {
+                // Ignore sentiment analysis errors
+            }
+        }
+        return null;
+    }
+
     /**
      * Find threads related to given entities
      */
@@ -272,10 +324,12 @@ public class KnowledgeGraphService {
 
         double avgScore = totalScore / entities.size();
 
-        // Boost score based on thread engagement
-        double engagementBoost = Math.log(thread.getViewCount() + thread.getReplyCount() + 1) * 0.1;
+        return Math.min(1.0, avgScore + engagementBoost(thread));
+    }
 
-        return Math.min(1.0, avgScore + engagementBoost);
+    // Boost score based on thread engagement
+    private double engagementBoost(DiscussionThread thread) {
+        return Math.log(thread.getViewCount() + thread.getReplyCount() + 1) * 0.1;
     }
 
     /**
@@ -295,6 +349,7 @@ public class KnowledgeGraphService {
 
         for (KnowledgeEntity entity : extractedEntities) {
             KnowledgeEntity savedEntity = findOrCreateEntity(entity, thread);
+            typeaheadService.recordEntity(savedEntity);
             allSavedEntities.add(savedEntity);
         }
 
@@ -307,6 +362,9 @@ public class KnowledgeGraphService {
         if (allSavedEntities.size() <= 10) {
             createEntityRelationships(new HashSet<>(allSavedEntities));
         }
+
+        // Aggregates are rebuilt from the recomputed state on the next reply
+        evictThreadAggregate(thread.getId());
     }
 
     /**
@@ -314,7 +372,80 @@ public class KnowledgeGraphService {
      */
     @Transactional
     public void processReplyForKnowledgeGraph(DiscussionThread thread, String replyContent) {
-        // Extract entities from the new reply
+        processRepliesForKnowledgeGraph(thread, List.of(replyContent));
+    }
+
+    /**
+     * Load a thread and run one knowledge graph pass over its whole content
+     */
+    @Transactional
+    public void processThreadForKnowledgeGraph(Long threadId) {
+        threadRepository.findByIdAndIsDeletedFalse(threadId).ifPresent(thread -> {
+            processThreadForKnowledgeGraph(thread);
+            threadRepository.save(thread);
+            threadSearchService.indexThreadEntities(thread);
+        });
+    }
+
+    /**
+     * Load a thread and apply a batch of coalesced replies, keyed by reply id, in one pass
+     */
+    @Transactional
+    public void processRepliesForKnowledgeGraph(Long threadId, Map<Long, String> replyContents) {
+        threadRepository.findByIdAndIsDeletedFalse(threadId).ifPresent(thread -> {
+            processRepliesForKnowledgeGraph(thread, new ArrayList<>(replyContents.keySet()),
+                    new ArrayList<>(replyContents.values()));
+            threadRepository.save(thread);
+        });
+    }
+
+    /**
+     * Apply one or more new replies to the knowledge graph. In incremental mode
+     * only the replies' delta is applied to the thread's running aggregates;
+     * otherwise score and summary are recomputed from the whole thread.
+     */
+    @Transactional
+    public void processRepliesForKnowledgeGraph(DiscussionThread thread, List<String> replyContents) {
+        processRepliesForKnowledgeGraph(thread, null, replyContents);
+    }
+
+    // replyIds may be null for replies that are not tracked by id; they always apply
+    private void processRepliesForKnowledgeGraph(DiscussionThread thread, List<Long> replyIds,
+            List<String> replyContents) {
+        if (!incrementalUpdates || thread.getId() == null) {
+            // Coalesced replies are extracted as one document
+            processReplyForKnowledgeGraphFull(thread, String.join("\n\n", replyContents));
+            threadSearchService.indexThreadEntities(thread);
+            return;
+        }
+
+        ThreadKnowledgeAggregate aggregate = threadAggregates.get(thread.getId());
+        boolean seeded = aggregate == null;
+        if (seeded) {
+            // One full pass seeds the aggregate; it already reflects the thread's replies
+            aggregate = buildThreadAggregate(thread);
+        }
+
+        // A re-claimed or retried task finds its replies already applied and skips them
+        List<String> newContents = new ArrayList<>();
+        for (int i = 0; i < replyContents.size(); i++) {
+            if (replyIds == null || aggregate.markReplyApplied(replyIds.get(i))) {
+                newContents.add(replyContents.get(i));
+            }
+        }
+        if (newContents.isEmpty()) {
+            return;
+        }
+        if (!seeded) {
+            newContents.forEach(aggregate::applyReply);
+        }
+        // The aggregate lives outside the transaction; a rollback must not leave this delta in it
+        evictThreadAggregateOnRollback(thread.getId());
+
+        // Coalesced replies are extracted as one document
+        String replyContent = String.join("\n\n", newContents);
+
+        // Extract entities from the new replies
         Set<KnowledgeEntity> replyEntities = extractEntitiesFromReply(replyContent, thread.getCourse());
 
         if (replyEntities.isEmpty()) {
@@ -325,6 +456,120 @@ public class KnowledgeGraphService {
         Set<KnowledgeEntity> persistedEntities = new HashSet<>();
         for (KnowledgeEntity entity : replyEntities) {
             KnowledgeEntity savedEntity = findOrCreateEntity(entity, thread);
+            typeaheadService.recordEntity(savedEntity);
+            if (savedEntity.getId() != null) {
+                persistedEntities.add(savedEntity);
+            }
+        }
+
+        // Apply the delta: new entities add their full score, repeated ones their extra mention
+        Set<KnowledgeEntity> newToThread = new HashSet<>();
+        for (KnowledgeEntity entity : persistedEntities) {
+            if (!aggregate.containsEntity(entity.getId())) {
+                newToThread.add(entity);
+            }
+            aggregate.applyEntity(entity, true);
+        }
+
+        if (!newToThread.isEmpty()) {
+            // Link rows are inserted directly so the thread's entity collection is never loaded;
+            // a collection that is already loaded writes them itself on flush
+            if (Hibernate.isInitialized(thread.getKnowledgeEntities())) {
+                thread.getKnowledgeEntities().addAll(newToThread);
+            } else {
+                threadRepository.linkKnowledgeEntities(thread.getId(),
+                        newToThread.stream().map(KnowledgeEntity::getId).collect(Collectors.toSet()));
+            }
+            aggregate.addRelatedNames(findRelatedEntities(newToThread).stream()
+                    .map(KnowledgeEntity::getName)
+                    .collect(Collectors.toSet()));
+        }
+        threadSearchService.indexEntities(thread.getId(), persistedEntities);
+
+        thread.setKnowledgeScore(Math.min(1.0, aggregate.getAverageScore() + engagementBoost(thread)));
+        thread.setAiGeneratedSummary(formatKnowledgeSummary(
+                aggregate.getTopConceptNames(3),
+                aggregate.getTopKeyPhraseNames(2),
+                generateBasicSummary(thread.getContent(), aggregate.getReplySnippets()),
+                aggregate.getSentiment(),
+                thread.getReplyCount(),
+                aggregate.getRelatedNames(5)));
+
+        // Relate the reply's entities to each other and to the thread's strongest entities only
+        Set<Long> anchorIds = new HashSet<>(aggregate.getTopEntityIds());
+        Set<KnowledgeEntity> linkedEntities = new HashSet<>(persistedEntities);
+        persistedEntities.forEach(entity -> anchorIds.remove(entity.getId()));
+        if (!anchorIds.isEmpty()) {
+            linkedEntities.addAll(entityRepository.findAllById(anchorIds));
+        }
+        createEntityRelationships(linkedEntities);
+    }
+
+    /**
+     * Drop the running aggregate for a thread so it is rebuilt on next use
+     */
+    public void evictThreadAggregate(Long threadId) {
+        if (threadId != null) {
+            threadAggregates.remove(threadId);
+        }
+    }
+
+    private void evictThreadAggregateOnRollback(Long threadId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        evictThreadAggregate(threadId);
+                    }
+                }
+            });
+        }
+    }
+
+    private ThreadKnowledgeAggregate buildThreadAggregate(DiscussionThread thread) {
+        ThreadKnowledgeAggregate aggregate = new ThreadKnowledgeAggregate();
+
+        Set<KnowledgeEntity> entities = thread.getKnowledgeEntities();
+        for (KnowledgeEntity entity : entities) {
+            if (entity.getId() != null) {
+                aggregate.applyEntity(entity, false);
+            }
+        }
+
+        aggregate.addRelatedNames(findRelatedEntities(entities).stream()
+                .map(KnowledgeEntity::getName)
+                .collect(Collectors.toSet()));
+
+        if (thread.getReplies() != null) {
+            thread.getReplies().stream()
+                    .filter(reply -> !reply.getIsDeleted())
+                    .limit(ThreadKnowledgeAggregate.SUMMARY_REPLY_COUNT)
+                    .forEach(reply -> aggregate.applyReply(reply.getContent()));
+        }
+
+        aggregate.setSentiment(analyzeThreadSentiment(thread));
+
+        threadAggregates.put(thread.getId(), aggregate);
+        return aggregate;
+    }
+
+    /**
+     * Recompute score, summary and relationships from the whole thread
+     */
+    private void processReplyForKnowledgeGraphFull(DiscussionThread thread, String replyContent) {
+        // Extract entities from the new replies
+        Set<KnowledgeEntity> replyEntities = extractEntitiesFromReply(replyContent, thread.getCourse());
+
+        if (replyEntities.isEmpty()) {
+            return;
+        }
+
+        // Save or update entities using the same duplicate-safe method
+        Set<KnowledgeEntity> persistedEntities = new HashSet<>();
+        for (KnowledgeEntity entity : replyEntities) {
+            KnowledgeEntity savedEntity = findOrCreateEntity(entity, thread);
+            typeaheadService.recordEntity(savedEntity);
             persistedEntities.add(savedEntity);
         }
 
@@ -442,12 +687,10 @@ public class KnowledgeGraphService {
     }
 
     private String generateBasicSummary(DiscussionThread thread) {
-        String content = thread.getContent();
+        List<String> replySnippets = new ArrayList<>();
 
         // If thread has replies, create a more comprehensive summary
         if (thread.getReplies() != null && !thread.getReplies().isEmpty()) {
-            StringBuilder combinedContent = new StringBuilder(content);
-
             // Add key points from replies (limit to first few replies to avoid too much
             // text)
             thread.getReplies().stream()
@@ -455,11 +698,23 @@ public class KnowledgeGraphService {
                     .limit(3) // Only consider first 3 replies for summary
                     .forEach(reply -> {
                         if (reply.getContent().length() > 50) { // Only include substantial replies
-                            combinedContent.append(" ").append(reply.getContent().substring(0,
+                            replySnippets.add(reply.getContent().substring(0,
                                     Math.min(100, reply.getContent().length()))); // First 100 chars
                         }
                     });
+        }
+
+        return generateBasicSummary(thread.getContent(), replySnippets);
+    }
 
+    private String generateBasicSummary(String threadContent, List<String> replySnippets) {
+        String content = threadContent;
+
+        if (!replySnippets.isEmpty()) {
+            StringBuilder combinedContent = new StringBuilder(content);
+            for (String snippet : replySnippets) {
+                combinedContent.append(" ").append(snippet);
+            }
             content = combinedContent.toString();
         }
 
@@ -510,7 +765,7 @@ public class KnowledgeGraphService {
     @Transactional(readOnly = true)
     public String generateTopicSummary(String query) {
         // Find entities related to the query
-        List<KnowledgeEntity> relatedEntities = entityRepository.findByNameContainingIgnoreCase(query);
+        List<KnowledgeEntity> relatedEntities = findTopicEntities(query);
 
         if (relatedEntities.isEmpty()) {
             return generateGenericTopicSummary(query);
@@ -566,6 +821,22 @@ public class KnowledgeGraphService {
         return summary.toString();
     }
 
+    /**
+     * Entities whose names match a topic query, using the typeahead index
+     * when it is loaded so only the best ranked matches are fetched
+     */
+    private List<KnowledgeEntity> findTopicEntities(String query) {
+        if (!typeaheadService.isLoaded()) {
+            return entityRepository.findByNameContainingIgnoreCase(query);
+        }
+
+        List<Long> ids = typeaheadService.suggestEntities(query, TOPIC_SUMMARY_CANDIDATES).stream()
+                .map(TrigramIndex.Match::getId)
+                .filter(id -> id != null)
+                .collect(Collectors.toList());
+        return ids.isEmpty() ? new ArrayList<>() : entityRepository.findAllById(ids);
+    }
+
     private String generateGenericTopicSummary(String query) {
         String lowerQuery = query.toLowerCase();
 
@@ -598,6 +869,14 @@ public class KnowledgeGraphService {
                 "Consider exploring related discussions or starting a new thread to dive deeper into this subject.";
     }
 
+    // relatedThreads is the inverse side and never written; an existing entity's set is only kept
+    // in step when already loaded, instead of loading every thread that mentions it
+    private static void linkThread(KnowledgeEntity entity, DiscussionThread thread) {
+        if (Hibernate.isInitialized(entity.getRelatedThreads())) {
+            entity.getRelatedThreads().add(thread);
+        }
+    }
+
     /**
      * Find existing entity or create new one, handling duplicates gracefully
      */
@@ -615,7 +894,7 @@ public class KnowledgeGraphService {
                     // Update existing entity
                     KnowledgeEntity existing = existingEntity.get();
                     existing.incrementFrequency();
-                    existing.getRelatedThreads().add(thread);
+                    linkThread(existing, thread);
                     return entityRepository.save(existing);
                 } else {
                     // Create new entity
@@ -636,7 +915,7 @@ public class KnowledgeGraphService {
                         if (existingEntity.isPresent()) {
                             KnowledgeEntity existing = existingEntity.get();
                             existing.incrementFrequency();
-                            existing.getRelatedThreads().add(thread);
+                            linkThread(existing, thread);
                             return entityRepository.save(existing);
                         } else {
                             System.err.println("Failed to handle duplicate entity after " + maxRetries +
@@ -0,0 +1,26 @@
+package com.studymate.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-node event bus: events are dispatched in-process after commit
+ */
+@Component
+@ConditionalOnProperty(name = "discussion.events.bus", havingValue = "local", matchIfMissing = true)
+public class LocalDiscussionEventBus implements DiscussionEventBus {
+
+    @Autowired
+    private DiscussionEventDispatcher dispatcher;
+
+    @Override
+    public void publish(DiscussionEvent event) {
+        DiscussionEventBus.afterCommit(() -> dispatcher.dispatch(event, true));
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return false;
+    }
+}
@@ -1,9 +1,12 @@
 package com.studymate.backend.service;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.studymate.backend.model.KnowledgeEntity;
@@ -16,6 +19,15 @@ public class NLPService {
     @Autowired
     private OpenNLPService openNLPService;
 
+    @Autowired
+    private TextTokenizer tokenizer;
+
+    @Autowired
+    private KeyPhraseScorer keyPhraseScorer;
+
+    @Value("${nlp.keyphrases.max-per-document:10}")
+    private int maxKeyPhrases;
+
     @PostConstruct
     public void init() {
         System.out.println("NLPService initialized using OpenNLP for fast processing!");
@@ -42,10 +54,26 @@ public class NLPService {
     }
 
     /**
-     * Extract key phrases using simple pattern matching
+     * Extract the top scoring key phrases, best first. POS-tagged noun phrases
+     * are ranked when the OpenNLP model pipeline is available, otherwise RAKE
+     * candidates are scored against the corpus document frequencies.
      */
     public Set<String> extractKeyPhrases(String text) {
-        return extractKeyPhrasesSimple(text);
+        Set<String> keyPhrases = new LinkedHashSet<>();
+
+        if (text == null || text.trim().isEmpty()) {
+            return keyPhrases;
+        }
+
+        Set<String> nounPhrases = openNLPService.extractNounPhrases(text);
+        List<KeyPhraseScorer.ScoredPhrase> scored = nounPhrases != null
+                ? keyPhraseScorer.rank(nounPhrases, maxKeyPhrases)
+                : keyPhraseScorer.extractTopPhrases(text, maxKeyPhrases);
+
+        for (KeyPhraseScorer.ScoredPhrase phrase : scored) {
+            keyPhrases.add(phrase.getPhrase());
+        }
+        return keyPhrases;
     }
 
     /**
@@ -58,12 +86,12 @@ public class NLPService {
             return entities;
         }
 
-        // Simple regex-based extraction for fallback
-        String[] words = text.split("\\s+");
-        for (String word : words) {
-            word = word.replaceAll("[^a-zA-Z0-9]", "");
-            if (word.length() > 4 && Character.isUpperCase(word.charAt(0)) && !isCommonWord(word)) {
-                entities.add(new KnowledgeEntity(word, "TERM",
+        // Simple span-based extraction for fallback
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(text);
+        for (int i = 0; i < spans.size(); i++) {
+            if (spans.length(i) > 4 && spans.isCapitalized(i)
+                    && !tokenizer.isStopWord(spans.text(), spans.offset(i), spans.length(i))) {
+                entities.add(new KnowledgeEntity(spans.tokenText(i), "TERM",
                         "Term from " + course, 0.5));
             }
         }
@@ -71,49 +99,6 @@ public class NLPService {
         return entities;
     }
 
-    /**
-     * Simple key phrase extraction fallback
-     */
-    private Set<String> extractKeyPhrasesSimple(String text) {
-        Set<String> keyPhrases = new HashSet<>();
-
-        if (text == null || text.trim().isEmpty()) {
-            return keyPhrases;
-        }
-
-        // Extract potential key phrases using simple patterns
-        String[] sentences = text.split("[.!?]+");
-        for (String sentence : sentences) {
-            String[] words = sentence.trim().split("\\s+");
-
-            // Look for noun phrases (2-4 consecutive capitalized or longer words)
-            for (int i = 0; i < words.length - 1; i++) {
-                StringBuilder phrase = new StringBuilder();
-                int wordCount = 0;
-
-                for (int j = i; j < Math.min(i + 4, words.length); j++) {
-                    String cleanWord = words[j].replaceAll("[^a-zA-Z0-9]", "");
-
-                    if (cleanWord.length() > 3 &&
-                            (Character.isUpperCase(cleanWord.charAt(0)) || cleanWord.length() > 6)) {
-                        if (phrase.length() > 0)
-                            phrase.append(" ");
-                        phrase.append(cleanWord);
-                        wordCount++;
-                    } else {
-                        break;
-                    }
-                }
-
-                if (wordCount >= 2 && phrase.length() > 6) {
-                    keyPhrases.add(phrase.toString());
-                }
-            }
-        }
-
-        return keyPhrases;
-    }
-
     /**
      * Analyze sentiment of text using simple pattern matching
      */
@@ -158,18 +143,4 @@ public class NLPService {
             return "NEUTRAL";
         }
     }
-
-    /**
-     * Check if word is a common word that should be ignored
-     */
-    private boolean isCommonWord(String word) {
-        String lower = word.toLowerCase();
-        Set<String> commonWords = Set.of(
-                "the", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by",
-                "is", "are", "was", "were", "be", "been", "have", "has", "had", "do", "does",
-                "did", "will", "would", "could", "should", "may", "might", "can", "this",
-                "that", "these", "those", "all", "any", "some", "many", "much", "more", "most",
-                "other", "another", "such", "what", "which", "who", "when", "where", "why", "how");
-        return commonWords.contains(lower);
-    }
 }
\ No newline at end of file
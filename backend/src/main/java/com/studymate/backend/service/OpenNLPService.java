@@ -1,20 +1,89 @@
 package com.studymate.backend.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
 import com.studymate.backend.model.KnowledgeEntity;
 
 import jakarta.annotation.PostConstruct;
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.SimpleTokenizer;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import opennlp.tools.util.Span;
 
 @Service
 public class OpenNLPService {
 
+    @Autowired
+    private TextTokenizer tokenizer;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${nlp.opennlp.model-path:classpath:models/opennlp/}")
+    private String modelPath;
+
+    @Value("${nlp.opennlp.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${nlp.opennlp.acquire-timeout-ms:200}")
+    private long acquireTimeoutMs;
+
+    @Value("${nlp.opennlp.required:false}")
+    private boolean modelsRequired;
+
     private boolean nlpAvailable = false;
 
+    private boolean modelsLoaded = false;
+
+    // Model files resolved against nlp.opennlp.model-path
+    private static final String SENTENCE_MODEL = "en-sent.bin";
+    private static final String TOKENIZER_MODEL = "en-token.bin";
+    private static final String POS_MODEL = "en-pos-maxent.bin";
+    private static final Map<String, String> NAME_FINDER_MODELS = Map.of(
+            "en-ner-person.bin", "PERSON",
+            "en-ner-organization.bin", "ORGANIZATION",
+            "en-ner-location.bin", "LOCATION");
+
+    private static final int MAX_PHRASE_TOKENS = 4;
+
+    private static final String WARM_UP_TEXT = "Dijkstra published the shortest path algorithm in Amsterdam. "
+            + "Binary search trees support efficient lookup operations.";
+
+    // Immutable models are thread-safe and shared by every pipeline
+    private SentenceModel sentenceModel;
+    private TokenizerModel tokenizerModel;
+    private POSModel posModel;
+    private final Map<String, TokenNameFinderModel> nameFinderModels = new LinkedHashMap<>();
+
+    // The *ME classes keep per-call state, so each call borrows a pipeline from this
+    // fixed pool; its size bounds concurrent inference and callers fall back to
+    // heuristics when every pipeline is busy
+    private BlockingQueue<Pipeline> pipelines;
+
     // Technical term patterns for academic content
     private static final Pattern TECHNICAL_TERM_PATTERN = Pattern.compile(
             "\\b(?:[A-Z][a-z]*(?:[A-Z][a-z]*)*|[a-z]+(?:-[a-z]+)*|[A-Z]{2,})\\b");
@@ -23,6 +92,10 @@ public class OpenNLPService {
     private static final Pattern ACADEMIC_PATTERN = Pattern.compile(
             "\\b\\w*(?:ology|ography|ometry|icism|ization|ation|tion|sion|ness|ment|able|ible)\\b");
 
+    private static final Pattern PERSON_NAME_PATTERN = Pattern.compile("^[A-Z][a-z]+$");
+
+    private static final Pattern MIXED_CASE_PATTERN = Pattern.compile(".*[A-Z].*[a-z].*");
+
     // Computer Science terms
     private static final Set<String> CS_TERMS = Set.of(
             "algorithm", "data", "structure", "programming", "software", "hardware", "database",
@@ -38,65 +111,250 @@ public class OpenNLPService {
 
     @PostConstruct
     public void init() {
+        // Heuristic extraction is always available, models are an upgrade on top
+        nlpAvailable = true;
+
         try {
-            nlpAvailable = true;
-            System.out.println("OpenNLP Service initialized successfully (fast startup without external models)!");
+            sentenceModel = loadModel(SENTENCE_MODEL, SentenceModel::new);
+            posModel = loadModel(POS_MODEL, POSModel::new);
+            tokenizerModel = loadModel(TOKENIZER_MODEL, TokenizerModel::new);
+            for (Map.Entry<String, String> entry : NAME_FINDER_MODELS.entrySet()) {
+                TokenNameFinderModel model = loadModel(entry.getKey(), TokenNameFinderModel::new);
+                if (model != null) {
+                    nameFinderModels.put(entry.getValue(), model);
+                }
+            }
+
+            if (sentenceModel != null && posModel != null) {
+                int poolSize = Math.max(1, maxConcurrency);
+                pipelines = new ArrayBlockingQueue<>(poolSize);
+                for (int i = 0; i < poolSize; i++) {
+                    pipelines.add(createPipeline());
+                }
+                modelsLoaded = true;
+                warmUp();
+                System.out.println("OpenNLP Service initialized with model pipeline (NER types: "
+                        + nameFinderModels.keySet() + ")");
+            } else {
+                System.out.println("OpenNLP models not found under " + modelPath
+                        + ", using pattern-based extraction");
+            }
         } catch (Exception e) {
-            System.err.println("OpenNLP initialization failed: " + e.getMessage());
-            nlpAvailable = false;
+            System.err.println("OpenNLP model loading failed, using pattern-based extraction: " + e.getMessage());
+            modelsLoaded = false;
+        }
+
+        if (modelsRequired && !modelsLoaded) {
+            throw new IllegalStateException("OpenNLP models are required but could not be loaded from " + modelPath);
         }
     }
 
     /**
-     * Fast named entity extraction using pattern matching and domain knowledge
+     * Named entity extraction using the OpenNLP model pipeline when available,
+     * falling back to pattern matching and domain knowledge
      */
     public Set<KnowledgeEntity> extractNamedEntities(String text, String course) {
-        Set<KnowledgeEntity> entities = new HashSet<>();
-
         if (text == null || text.trim().isEmpty()) {
-            return entities;
+            return new HashSet<>();
         }
 
+        if (modelsLoaded) {
+            try {
+                Set<KnowledgeEntity> entities = extractWithModels(text, course);
+                if (entities != null) {
+                    return entities;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println("OpenNLP model pipeline failed, using pattern fallback: " + e.getMessage());
+            }
+        }
+
+        return extractWithPatterns(text, course);
+    }
+
+    /**
+     * Extract multi-word noun phrases using POS tags. Returns null when the
+     * model pipeline is unavailable or saturated so callers can fall back.
+     */
+    public Set<String> extractNounPhrases(String text) {
+        if (!modelsLoaded || text == null || text.trim().isEmpty()) {
+            return null;
+        }
+
+        Pipeline pipeline;
         try {
-            // Split into sentences using simple punctuation
-            String[] sentences = text.split("[.!?]+");
+            pipeline = pipelines.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (pipeline == null) {
+            return null;
+        }
 
-            for (String sentence : sentences) {
-                // Extract entities from each sentence
-                entities.addAll(extractEntitiesFromSentence(sentence.trim(), course));
+        try {
+            Set<String> phrases = new HashSet<>();
+            for (String sentence : pipeline.sentenceDetector.sentDetect(text)) {
+                String[] tokens = pipeline.tokenizer.tokenize(sentence);
+                if (tokens.length == 0) {
+                    continue;
+                }
+                String[] tags = pipeline.posTagger.tag(tokens);
+                for (Span chunk : chunkNounPhrases(tokens, tags)) {
+                    if (chunk.length() >= 2) {
+                        phrases.add(joinTokens(tokens, chunk));
+                    }
+                }
             }
+            return phrases;
+        } finally {
+            pipelines.offer(pipeline);
+        }
+    }
 
-        } catch (Exception e) {
-            System.err.println("OpenNLP extraction failed, using simple fallback: " + e.getMessage());
-            return extractEntitiesSimple(text, course);
+    private Set<KnowledgeEntity> extractWithModels(String text, String course) throws InterruptedException {
+        Pipeline pipeline = pipelines.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        if (pipeline == null) {
+            return null;
         }
 
-        return entities;
+        try {
+            // Keyed by lower-case name so the same entity is only reported once
+            Map<String, KnowledgeEntity> entities = new LinkedHashMap<>();
+
+            for (String sentence : pipeline.sentenceDetector.sentDetect(text)) {
+                String[] tokens = pipeline.tokenizer.tokenize(sentence);
+                if (tokens.length == 0) {
+                    continue;
+                }
+
+                // Named entities from the statistical name finders
+                for (Map.Entry<String, NameFinderME> finder : pipeline.nameFinders.entrySet()) {
+                    for (Span span : finder.getValue().find(tokens)) {
+                        String name = joinTokens(tokens, span);
+                        double confidence = Math.max(0.6, Math.min(span.getProb(), 0.95));
+                        entities.putIfAbsent(name.toLowerCase(), new KnowledgeEntity(name, finder.getKey(),
+                                describeNamedEntity(finder.getKey(), course), confidence));
+                    }
+                }
+
+                // Concepts from POS-based noun phrase chunks
+                String[] tags = pipeline.posTagger.tag(tokens);
+                for (Span chunk : chunkNounPhrases(tokens, tags)) {
+                    KnowledgeEntity entity = chunk.length() == 1
+                            ? identifyEntity(tokens[chunk.getStart()], course)
+                            : createPhraseEntity(joinTokens(tokens, chunk), chunk.length(), course);
+                    if (entity != null) {
+                        entities.putIfAbsent(entity.getName().toLowerCase(), entity);
+                    }
+                }
+            }
+
+            return new HashSet<>(entities.values());
+        } finally {
+            pipeline.clearAdaptiveData();
+            pipelines.offer(pipeline);
+        }
     }
 
-    private Set<KnowledgeEntity> extractEntitiesFromSentence(String sentence, String course) {
-        Set<KnowledgeEntity> entities = new HashSet<>();
+    /**
+     * Group runs of adjectives and nouns that end in a noun into noun phrase
+     * spans, keeping at most the last MAX_PHRASE_TOKENS tokens of each run
+     */
+    private List<Span> chunkNounPhrases(String[] tokens, String[] tags) {
+        List<Span> chunks = new ArrayList<>();
+        int start = -1;
+
+        for (int i = 0; i <= tokens.length; i++) {
+            boolean inPhrase = i < tokens.length && isPhraseToken(tokens[i], tags[i]);
+            if (inPhrase) {
+                if (start < 0) {
+                    start = i;
+                }
+                continue;
+            }
 
-        if (sentence.isEmpty()) {
-            return entities;
+            if (start >= 0) {
+                // Trim trailing adjectives so every phrase ends with a noun
+                int end = i;
+                while (end > start && !tags[end - 1].startsWith("NN")) {
+                    end--;
+                }
+                if (end > start) {
+                    chunks.add(new Span(Math.max(start, end - MAX_PHRASE_TOKENS), end));
+                }
+                start = -1;
+            }
         }
 
-        // Simple tokenization
-        String[] words = sentence.split("\\s+");
+        return chunks;
+    }
 
-        for (String word : words) {
-            // Clean the word
-            String cleanWord = word.replaceAll("[^a-zA-Z0-9-]", "").trim();
+    private boolean isPhraseToken(String token, String tag) {
+        return (tag.startsWith("NN") || tag.startsWith("JJ"))
+                && token.length() > 1
+                && Character.isLetterOrDigit(token.charAt(0))
+                && !tokenizer.isStopWord(token);
+    }
 
-            if (cleanWord.length() < 3 || isCommonWord(cleanWord)) {
-                continue;
+    private KnowledgeEntity createPhraseEntity(String phrase, int tokenCount, String course) {
+        if (phrase.length() <= 6) {
+            return null;
+        }
+        double confidence = Math.min(0.6 + 0.1 * (tokenCount - 1), 0.9);
+        return new KnowledgeEntity(phrase, determineEntityType(phrase, course),
+                generateTermDescription(phrase, course), confidence);
+    }
+
+    private String describeNamedEntity(String entityType, String course) {
+        switch (entityType) {
+            case "PERSON":
+                return "Person mentioned in " + course;
+            case "LOCATION":
+                return "Location mentioned in " + course;
+            default:
+                return "Organization/Location mentioned in " + course;
+        }
+    }
+
+    private static String joinTokens(String[] tokens, Span span) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = span.getStart(); i < span.getEnd(); i++) {
+            if (joined.length() > 0) {
+                joined.append(' ');
             }
+            joined.append(tokens[i]);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Fast named entity extraction using pattern matching and domain knowledge
+     */
+    private Set<KnowledgeEntity> extractWithPatterns(String text, String course) {
+        Set<KnowledgeEntity> entities = new HashSet<>();
 
-            // Extract different types of entities
-            KnowledgeEntity entity = identifyEntity(cleanWord, course);
-            if (entity != null) {
-                entities.add(entity);
+        try {
+            // Hyphenated words are kept together as single technical terms
+            TextTokenizer.TokenSpans spans = tokenizer.tokenize(text, new TextTokenizer.TokenSpans(), true);
+
+            for (int i = 0; i < spans.size(); i++) {
+                if (spans.length(i) < 3 || tokenizer.isStopWord(spans.text(), spans.offset(i), spans.length(i))) {
+                    continue;
+                }
+
+                // Extract different types of entities
+                KnowledgeEntity entity = identifyEntity(spans.tokenText(i), course);
+                if (entity != null) {
+                    entities.add(entity);
+                }
             }
+
+        } catch (Exception e) {
+            System.err.println("OpenNLP extraction failed, using simple fallback: " + e.getMessage());
+            return extractEntitiesSimple(text, course);
         }
 
         return entities;
@@ -149,7 +407,7 @@ public class OpenNLPService {
         // Simple heuristics for person names
         return word.length() >= 3 && word.length() <= 15 &&
                 Character.isUpperCase(word.charAt(0)) &&
-                word.matches("^[A-Z][a-z]+$");
+                PERSON_NAME_PATTERN.matcher(word).matches();
     }
 
     private boolean isLikelyLocationOrOrganization(String word) {
@@ -189,7 +447,7 @@ public class OpenNLPService {
         }
 
         // Increase confidence for mixed case (likely technical)
-        if (word.matches(".*[A-Z].*[a-z].*")) {
+        if (MIXED_CASE_PATTERN.matcher(word).matches()) {
             confidence += 0.2;
         }
 
@@ -205,17 +463,6 @@ public class OpenNLPService {
         return "Technical term from " + (course != null ? course : "academic content");
     }
 
-    private boolean isCommonWord(String word) {
-        String lower = word.toLowerCase();
-        Set<String> commonWords = Set.of(
-                "the", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by",
-                "is", "are", "was", "were", "be", "been", "have", "has", "had", "do", "does",
-                "did", "will", "would", "could", "should", "may", "might", "can", "this",
-                "that", "these", "those", "all", "any", "some", "many", "much", "more", "most",
-                "other", "another", "such", "what", "which", "who", "when", "where", "why", "how");
-        return commonWords.contains(lower);
-    }
-
     /**
      * Simple fallback extraction when advanced processing fails
      */
@@ -226,12 +473,11 @@ public class OpenNLPService {
             return entities;
         }
 
-        // Simple regex-based extraction
-        String[] words = text.split("\\s+");
-        for (String word : words) {
-            word = word.replaceAll("[^a-zA-Z0-9]", "");
-            if (word.length() > 4 && Character.isUpperCase(word.charAt(0))) {
-                entities.add(new KnowledgeEntity(word, "TERM",
+        // Simple span-based extraction
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(text);
+        for (int i = 0; i < spans.size(); i++) {
+            if (spans.length(i) > 4 && spans.isCapitalized(i)) {
+                entities.add(new KnowledgeEntity(spans.tokenText(i), "TERM",
                         "Term from " + course, 0.5));
             }
         }
@@ -242,4 +488,71 @@ public class OpenNLPService {
     public boolean isNlpAvailable() {
         return nlpAvailable;
     }
+
+    public boolean isModelPipelineAvailable() {
+        return modelsLoaded;
+    }
+
+    private void warmUp() {
+        long startTime = System.currentTimeMillis();
+        // Run the sample through every pooled pipeline, not just the first one borrowed
+        for (Pipeline pipeline : pipelines) {
+            for (String sentence : pipeline.sentenceDetector.sentDetect(WARM_UP_TEXT)) {
+                String[] tokens = pipeline.tokenizer.tokenize(sentence);
+                pipeline.posTagger.tag(tokens);
+                pipeline.nameFinders.values().forEach(finder -> finder.find(tokens));
+            }
+            pipeline.clearAdaptiveData();
+        }
+        System.out.println("OpenNLP pipeline pool (" + pipelines.size() + ") warmed up in "
+                + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private <T> T loadModel(String fileName, ModelReader<T> reader) throws IOException {
+        Resource resource = resourceLoader.getResource(modelPath + fileName);
+        if (!resource.exists()) {
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return reader.read(in);
+        }
+    }
+
+    private Pipeline createPipeline() {
+        Map<String, NameFinderME> nameFinders = new LinkedHashMap<>();
+        nameFinderModels.forEach((type, model) -> nameFinders.put(type, new NameFinderME(model)));
+
+        return new Pipeline(
+                new SentenceDetectorME(sentenceModel),
+                tokenizerModel != null ? new TokenizerME(tokenizerModel) : SimpleTokenizer.INSTANCE,
+                new POSTaggerME(posModel),
+                nameFinders);
+    }
+
+    @FunctionalInterface
+    private interface ModelReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    /**
+     * Pooled set of non-thread-safe OpenNLP tools built from the shared models
+     */
+    private static final class Pipeline {
+        private final SentenceDetectorME sentenceDetector;
+        private final Tokenizer tokenizer;
+        private final POSTaggerME posTagger;
+        private final Map<String, NameFinderME> nameFinders;
+
+        private Pipeline(SentenceDetectorME sentenceDetector, Tokenizer tokenizer, POSTaggerME posTagger,
+                Map<String, NameFinderME> nameFinders) {
+            this.sentenceDetector = sentenceDetector;
+            this.tokenizer = tokenizer;
+            this.posTagger = posTagger;
+            this.nameFinders = nameFinders;
+        }
+
+        private void clearAdaptiveData() {
+            nameFinders.values().forEach(NameFinderME::clearAdaptiveData);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.studymate.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor: the sort timestamp and id of the last row
+ * a client has seen. Encoded as URL-safe Base64 so clients pass it back
+ * unchanged instead of building offsets.
+ */
+public final class PageCursor {
+
+    private static final String VERSION = "1";
+
+    private final LocalDateTime timestamp;
+    private final Long id;
+
+    public PageCursor(LocalDateTime timestamp, Long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = VERSION + "|" + timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor from a client; null or blank means the first page
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
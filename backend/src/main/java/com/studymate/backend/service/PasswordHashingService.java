@@ -0,0 +1,155 @@
+package com.studymate.backend.service;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs password verification and hashing on the bounded
+ * passwordHashingExecutor instead of request threads, so a login burst
+ * cannot take threads from the rest of the API. Each client IP and each
+ * username may only have a few hashes in flight, and work that waited in
+ * the queue too long is dropped before it hashes anything.
+ */
+@Service
+public class PasswordHashingService {
+
+    /**
+     * Thrown when a login is shed instead of verified; the client should retry later
+     */
+    public static class LoginThrottledException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public LoginThrottledException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    @Qualifier("passwordHashingExecutor")
+    private Executor passwordHashingExecutor;
+
+    @Value("${auth.hashing.max-queue-ms:2000}")
+    private long maxQueueMs;
+
+    @Value("${auth.hashing.max-concurrent-per-ip:4}")
+    private int maxConcurrentPerIp;
+
+    @Value("${auth.hashing.max-concurrent-per-username:2}")
+    private int maxConcurrentPerUsername;
+
+    // Hashes in flight per "ip:..." or "user:..." key; keys are removed when they reach zero
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Verify a login off the request thread
+     */
+    public Authentication authenticate(String usernameOrEmail, String password, String clientIp) {
+        return runBounded(clientIp, usernameOrEmail, () -> authenticationManager
+                .authenticate(new UsernamePasswordAuthenticationToken(usernameOrEmail, password)));
+    }
+
+    /**
+     * Hash a new password off the request thread
+     */
+    public String encode(String username, String password, String clientIp) {
+        return runBounded(clientIp, username, () -> passwordEncoder.encode(password));
+    }
+
+    private <T> T runBounded(String clientIp, String username, Callable<T> work) {
+        String ipKey = "ip:" + clientIp;
+        String userKey = "user:" + (username != null ? username.trim().toLowerCase() : "");
+        if (!acquire(ipKey, maxConcurrentPerIp)) {
+            throw new LoginThrottledException("Too many login attempts from this address");
+        }
+        try {
+            if (!acquire(userKey, maxConcurrentPerUsername)) {
+                throw new LoginThrottledException("Too many login attempts for this account");
+            }
+            try {
+                return runOnPool(work);
+            } finally {
+                release(userKey);
+            }
+        } finally {
+            release(ipKey);
+        }
+    }
+
+    private <T> T runOnPool(Callable<T> work) {
+        long submittedAt = System.nanoTime();
+        long maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueMs);
+        FutureTask<T> task = new FutureTask<>(() -> {
+            // Queued past the limit: shed it rather than spend a hash on a login that is already slow
+            if (System.nanoTime() - submittedAt > maxQueueNanos) {
+                throw new LoginThrottledException("Login service is busy");
+            }
+            return work.call();
+        });
+
+        try {
+            passwordHashingExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            throw new LoginThrottledException("Login service is busy");
+        }
+
+        try {
+            // Queue limit plus generous room for the hash itself
+            return task.get(maxQueueMs * 2 + 5000, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(false);
+            throw new LoginThrottledException("Login service is busy");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoginThrottledException("Login interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AuthenticationException authenticationException) {
+                throw authenticationException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private boolean acquire(String key, int limit) {
+        boolean[] acquired = new boolean[1];
+        inFlight.compute(key, (k, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= limit) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void release(String key) {
+        inFlight.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+}
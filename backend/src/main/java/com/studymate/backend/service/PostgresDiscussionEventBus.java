@@ -0,0 +1,190 @@
+package com.studymate.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cross-node event bus over PostgreSQL LISTEN/NOTIFY. NOTIFY is issued in
+ * the writing transaction, so other nodes only see committed changes, and
+ * each node listens on its own dedicated connection. Events over the NOTIFY
+ * size limit are sent without the full thread payload, so followers of that
+ * thread on other nodes only see the listing delta and a fresh cache.
+ */
+@Component
+@ConditionalOnProperty(name = "discussion.events.bus", havingValue = "postgres")
+public class PostgresDiscussionEventBus implements DiscussionEventBus {
+
+    private static final String CHANNEL = "discussion_events";
+
+    // PostgreSQL rejects NOTIFY payloads of 8000 bytes or more
+    private static final int MAX_NOTIFY_BYTES = 7900;
+
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    @Autowired
+    private DiscussionEventDispatcher dispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${spring.datasource.hikari.data-source-properties.sslmode:}")
+    private String sslMode;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean running;
+    private Thread listener;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "DiscussionEventListener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public void publish(DiscussionEvent event) {
+        try {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL, encode(event));
+        } catch (Exception e) {
+            System.err.println("Failed to publish discussion event " + event.getType() + " to other nodes: "
+                    + e.getMessage());
+        }
+        DiscussionEventBus.afterCommit(() -> dispatcher.dispatch(event, true));
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return true;
+    }
+
+    // Kept out of the connection pool: the connection is held for the life of the node
+    private void listen() {
+        while (running) {
+            Properties properties = new Properties();
+            properties.setProperty("user", username);
+            properties.setProperty("password", password);
+            if (!sslMode.isBlank()) {
+                properties.setProperty("sslmode", sslMode);
+            }
+
+            try (Connection connection = DriverManager.getConnection(url, properties)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                System.out.println("Listening for discussion events from other nodes");
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Discussion event listener disconnected, retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            if (nodeId.equals(node.path("origin").asText())) {
+                return;
+            }
+            dispatcher.dispatch(new DiscussionEvent(
+                    node.path("type").asText(),
+                    node.hasNonNull("threadId") ? node.get("threadId").asLong() : null,
+                    node.hasNonNull("course") ? node.get("course").asText() : null,
+                    node.hasNonNull("topic") ? node.get("topic").asText() : null,
+                    node.hasNonNull("coalesceKey") ? node.get("coalesceKey").asText() : null,
+                    rawPayload(node.get("listing")), rawPayload(node.get("thread"))), false);
+        } catch (Exception e) {
+            System.err.println("Failed to apply discussion event from another node: " + e.getMessage());
+        }
+    }
+
+    private String encode(DiscussionEvent event) throws Exception {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("origin", nodeId);
+        node.put("type", event.getType());
+        node.put("threadId", event.getThreadId());
+        node.put("course", event.getCourse());
+        node.put("topic", event.getTopic());
+        node.put("coalesceKey", event.getCoalesceKey());
+        if (event.getListingPayload() != null) {
+            node.set("listing", objectMapper.readTree(event.getListingPayload()));
+        }
+        if (event.getThreadPayload() != null) {
+            node.set("thread", objectMapper.readTree(event.getThreadPayload()));
+        }
+
+        String encoded = objectMapper.writeValueAsString(node);
+        if (encoded.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_BYTES) {
+            node.remove("thread");
+            encoded = objectMapper.writeValueAsString(node);
+        }
+        if (encoded.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_BYTES) {
+            // Still too large: other nodes can only invalidate their caches
+            node.remove("listing");
+            encoded = objectMapper.writeValueAsString(node);
+        }
+        return encoded;
+    }
+
+    private byte[] rawPayload(JsonNode payload) throws Exception {
+        return payload == null || payload.isNull() ? null : objectMapper.writeValueAsBytes(payload);
+    }
+}
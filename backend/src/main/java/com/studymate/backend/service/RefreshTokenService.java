@@ -0,0 +1,387 @@
+package com.studymate.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.studymate.backend.model.RefreshToken;
+import com.studymate.backend.model.User;
+import com.studymate.backend.repository.RefreshTokenRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Refresh token sessions, stored in refresh_tokens with an in-memory tier in
+ * front. Access tokens carry their session id; checking that the session is
+ * still active is answered from an LRU of session state that is reloaded at
+ * most once per TTL, so revocation reaches every node within the TTL
+ * without a query per request. Session use is recorded in memory and
+ * written as one batched update per flush interval. Rotation is the only
+ * write on the refresh path, a single compare-and-set UPDATE; the in-memory
+ * tier only sees it once it commits.
+ */
+@Service
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    /**
+     * Thrown for a token rotated away moments ago by a concurrent refresh of the
+     * same session; the client should retry with the token that refresh returned
+     */
+    public static class RefreshInProgressException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public RefreshInProgressException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A newly issued refresh token and the session it belongs to
+     */
+    public static class IssuedToken {
+        private final Long sessionId;
+        private final Long userId;
+        private final String token;
+
+        IssuedToken(Long sessionId, Long userId, String token) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.token = token;
+        }
+
+        public Long getSessionId() {
+            return sessionId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getToken() {
+            return token;
+        }
+    }
+
+    private static class SessionState {
+        final Long userId;
+        final String tokenHash;
+        final String previousTokenHash;
+        final LocalDateTime expiresAt;
+        final LocalDateTime rotatedAt;
+        final boolean revoked;
+        final long loadedAt;
+
+        SessionState(RefreshToken token, long loadedAt) {
+            this(token.getUserId(), token.getTokenHash(), token.getPreviousTokenHash(), token.getExpiresAt(),
+                    token.getRotatedAt(), token.getRevoked(), loadedAt);
+        }
+
+        SessionState(Long userId, String tokenHash, String previousTokenHash, LocalDateTime expiresAt,
+                LocalDateTime rotatedAt, boolean revoked, long loadedAt) {
+            this.userId = userId;
+            this.tokenHash = tokenHash;
+            this.previousTokenHash = previousTokenHash;
+            this.expiresAt = expiresAt;
+            this.rotatedAt = rotatedAt;
+            this.revoked = revoked;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isActive() {
+            return !revoked && expiresAt.isAfter(LocalDateTime.now());
+        }
+    }
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("refreshTokenScheduler")
+    private TaskScheduler refreshTokenScheduler;
+
+    @Value("${refresh-tokens.expiration-ms:2592000000}")
+    private long expirationMs;
+
+    // How long a node trusts its copy of a session before reading it again
+    @Value("${refresh-tokens.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    @Value("${refresh-tokens.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${refresh-tokens.flush-interval-ms:60000}")
+    private long flushIntervalMs;
+
+    // How long the token a rotation replaced is still answered without revoking the session
+    @Value("${refresh-tokens.reuse-grace-ms:10000}")
+    private long reuseGraceMs;
+
+    private TransactionTemplate transaction;
+
+    private final Map<Long, SessionState> sessions = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, SessionState> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    // Sessions used since the last flush
+    private final Set<Long> usedSessions = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        transaction = new TransactionTemplate(transactionManager);
+        refreshTokenScheduler.scheduleWithFixedDelay(this::flush, Duration.ofMillis(flushIntervalMs));
+        refreshTokenScheduler.scheduleWithFixedDelay(this::purgeExpired, Duration.ofHours(1));
+    }
+
+    /**
+     * Start a session for a user who just signed in
+     */
+    @Transactional
+    public IssuedToken issue(User user) {
+        String secret = newSecret();
+        LocalDateTime expiresAt = LocalDateTime.now().plus(Duration.ofMillis(expirationMs));
+        RefreshToken saved = refreshTokenRepository.save(new RefreshToken(user.getId(), hash(secret), expiresAt));
+        SessionState session = new SessionState(saved, System.currentTimeMillis());
+        afterCommit(() -> cache(saved.getId(), session));
+        return new IssuedToken(saved.getId(), user.getId(), saved.getId() + "." + secret);
+    }
+
+    /**
+     * Exchange a refresh token for the next one in its session, or null if it
+     * is not valid. A token that was already rotated away revokes the session,
+     * unless the rotation happened within the grace window: that is a
+     * concurrent refresh from the same client, reported with
+     * RefreshInProgressException so it is not treated as a sign-out.
+     */
+    @Transactional
+    public IssuedToken rotate(String token) {
+        Long sessionId = sessionId(token);
+        if (sessionId == null) {
+            return null;
+        }
+        String presentedHash = hash(token.substring(token.indexOf('.') + 1));
+
+        SessionState session = cached(sessionId);
+        if (session == null || !presentedHash.equals(session.tokenHash)) {
+            // The copy here may be behind a rotation on another node
+            session = load(sessionId);
+        }
+        if (session == null || !session.isActive()) {
+            return null;
+        }
+        if (presentedHash.equals(session.previousTokenHash)) {
+            if (session.rotatedAt != null
+                    && session.rotatedAt.plus(Duration.ofMillis(reuseGraceMs)).isAfter(LocalDateTime.now())) {
+                throw new RefreshInProgressException("Session " + sessionId + " was refreshed concurrently");
+            }
+            logger.warn("Refresh token reuse detected, revoking session {}", sessionId);
+            revokeSession(sessionId);
+            return null;
+        }
+        if (!presentedHash.equals(session.tokenHash)) {
+            return null;
+        }
+
+        String secret = newSecret();
+        String newHash = hash(secret);
+        LocalDateTime now = LocalDateTime.now();
+        if (refreshTokenRepository.rotate(sessionId, presentedHash, newHash, now) == 0) {
+            // Rotated or revoked concurrently; the loser does not get a token
+            evict(sessionId);
+            return null;
+        }
+        // Other requests keep seeing the committed token until this rotation commits
+        SessionState rotated = new SessionState(session.userId, newHash, presentedHash, session.expiresAt, now,
+                false, System.currentTimeMillis());
+        afterCommit(() -> {
+            cache(sessionId, rotated);
+            usedSessions.remove(sessionId);
+        });
+        return new IssuedToken(sessionId, session.userId, sessionId + "." + secret);
+    }
+
+    /**
+     * Sign out: revoke the session a refresh token belongs to
+     */
+    @Transactional
+    public boolean revoke(String token) {
+        Long sessionId = sessionId(token);
+        if (sessionId == null) {
+            return false;
+        }
+        SessionState session = load(sessionId);
+        String presentedHash = hash(token.substring(token.indexOf('.') + 1));
+        if (session == null || !(presentedHash.equals(session.tokenHash)
+                || presentedHash.equals(session.previousTokenHash))) {
+            return false;
+        }
+        revokeSession(sessionId);
+        return true;
+    }
+
+    /**
+     * Whether an access token's session may still be used; records the use
+     */
+    public boolean isSessionActive(Long sessionId) {
+        SessionState session = cached(sessionId);
+        if (session == null) {
+            session = load(sessionId);
+        }
+        if (session == null || !session.isActive()) {
+            return false;
+        }
+        usedSessions.add(sessionId);
+        return true;
+    }
+
+    private void revokeSession(Long sessionId) {
+        refreshTokenRepository.revoke(sessionId);
+        afterCommit(() -> {
+            SessionState session = cached(sessionId);
+            if (session != null) {
+                cache(sessionId, new SessionState(session.userId, session.tokenHash, session.previousTokenHash,
+                        session.expiresAt, session.rotatedAt, true, System.currentTimeMillis()));
+            }
+        });
+    }
+
+    private SessionState cached(Long sessionId) {
+        synchronized (sessions) {
+            SessionState session = sessions.get(sessionId);
+            if (session != null && System.currentTimeMillis() - session.loadedAt < cacheTtlMs) {
+                return session;
+            }
+            return null;
+        }
+    }
+
+    private SessionState load(Long sessionId) {
+        long now = System.currentTimeMillis();
+        SessionState session = refreshTokenRepository.findById(sessionId)
+                .map(token -> new SessionState(token, now)).orElse(null);
+        if (session != null) {
+            cache(sessionId, session);
+        } else {
+            evict(sessionId);
+        }
+        return session;
+    }
+
+    private void cache(Long sessionId, SessionState session) {
+        synchronized (sessions) {
+            sessions.put(sessionId, session);
+        }
+    }
+
+    private void evict(Long sessionId) {
+        synchronized (sessions) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    /**
+     * Write last-used times for sessions used since the previous flush, in one statement
+     */
+    public void flush() {
+        if (usedSessions.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(usedSessions);
+        usedSessions.removeAll(ids);
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            transaction.executeWithoutResult(status -> refreshTokenRepository.markUsed(ids, now));
+        } catch (Exception e) {
+            // Only bookkeeping; the next use records the session again
+            logger.warn("Failed to record refresh session use: {}", e.getMessage());
+        }
+    }
+
+    private void purgeExpired() {
+        try {
+            Integer deleted = transaction.execute(status -> refreshTokenRepository.deleteExpired(LocalDateTime.now()));
+            if (deleted != null && deleted > 0) {
+                logger.info("Purged {} expired refresh sessions", deleted);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to purge expired refresh sessions: {}", e.getMessage());
+        }
+    }
+
+    // Session state is only cached once the change it reflects has committed
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // "id.secret", or null if the token is not in that form
+    private static Long sessionId(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        try {
+            return Long.parseLong(token.substring(0, dot));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String newSecret() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static String hash(String secret) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(secret.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,21 +1,38 @@
 package com.studymate.backend.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.studymate.backend.dto.CreateFolderRequest;
 import com.studymate.backend.dto.StudyFolderDTO;
-import com.studymate.backend.dto.StudyMaterialDTO;
 import com.studymate.backend.dto.UpdateFolderRequest;
 import com.studymate.backend.model.StudyFolder;
 import com.studymate.backend.model.StudyMaterial;
+import com.studymate.backend.repository.NoteRepository;
 import com.studymate.backend.repository.StudyFolderRepository;
 import com.studymate.backend.repository.StudyMaterialRepository;
 
@@ -25,22 +42,62 @@ public class StudyFolderService {
 
     private static final Logger logger = LoggerFactory.getLogger(StudyFolderService.class);
 
+    private static final String FILE_DATA_SQL = "SELECT file_data FROM study_materials WHERE id = ? AND user_id = ?";
+
     @Autowired
     private StudyFolderRepository studyFolderRepository;
 
     @Autowired
     private StudyMaterialRepository studyMaterialRepository;
 
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     /**
      * Get all root folders for a user
      */
     @Transactional(readOnly = true)
     public List<StudyFolderDTO> getRootFolders(Long userId) {
         logger.info("Getting root folders for user {}", userId);
-        List<StudyFolder> folders = studyFolderRepository.findRootFoldersWithAssociations(userId);
-        return folders.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return studyFolderRepository.findRootFolderDTOs(userId);
+    }
+
+    /**
+     * Get a user's whole folder tree, with counts and full paths, from one query
+     */
+    @Transactional(readOnly = true)
+    public List<StudyFolderDTO> getFolderTree(Long userId) {
+        logger.info("Getting folder tree for user {}", userId);
+        List<StudyFolder> folders = studyFolderRepository.findByUserIdOrderByPath(userId);
+
+        // Ordered by path, so every parent is mapped before its children
+        Map<Long, StudyFolderDTO> byId = new HashMap<>();
+        List<StudyFolderDTO> roots = new ArrayList<>();
+        for (StudyFolder folder : folders) {
+            StudyFolderDTO dto = convertToDTO(folder);
+            dto.setSubFolders(new ArrayList<>());
+            StudyFolderDTO parent = dto.getParentFolderId() != null ? byId.get(dto.getParentFolderId()) : null;
+            if (parent != null) {
+                dto.setParentFolderName(parent.getName());
+                dto.setFullPath(parent.getFullPath() + "/" + folder.getName());
+                parent.getSubFolders().add(dto);
+            } else {
+                roots.add(dto);
+            }
+            byId.put(folder.getId(), dto);
+        }
+        return roots;
+    }
+
+    /**
+     * Get a folder's own details, without its contents
+     */
+    @Transactional(readOnly = true)
+    public Optional<StudyFolderDTO> getFolder(Long folderId, Long userId) {
+        return studyFolderRepository.findDTOByIdAndUserId(folderId, userId);
     }
 
     /**
@@ -50,10 +107,13 @@ public class StudyFolderService {
     public Optional<StudyFolderDTO> getFolderWithContents(Long folderId, Long userId) {
         logger.info("Getting folder {} with contents for user {}", folderId, userId);
         
-        // Use the base query without fetching to avoid MultipleBagFetchException
-        // The convertToDTOWithContents method will handle loading subfolders and materials separately
-        Optional<StudyFolder> folderOpt = studyFolderRepository.findByIdWithContentsAndUserId(folderId, userId);
-        return folderOpt.map(this::convertToDTOWithContents);
+        // Three projection queries: the folder, its subfolders and its materials' metadata
+        Optional<StudyFolderDTO> folderOpt = studyFolderRepository.findDTOByIdAndUserId(folderId, userId);
+        folderOpt.ifPresent(dto -> {
+            dto.setSubFolders(studyFolderRepository.findSubFolderDTOs(folderId));
+            dto.setStudyMaterials(studyMaterialRepository.findDTOsByFolderId(folderId));
+        });
+        return folderOpt;
     }
 
     /**
@@ -68,12 +128,27 @@ public class StudyFolderService {
             return List.of();
         }
 
-        List<StudyFolderDTO> hierarchy = new java.util.ArrayList<>();
-        StudyFolder current = folderOpt.get();
+        // The path names every ancestor, so they all load in one query
+        List<Long> pathIds = folderOpt.get().getPathIds();
+        Map<Long, StudyFolder> ancestors = new HashMap<>();
+        for (StudyFolder folder : studyFolderRepository.findAllById(pathIds)) {
+            ancestors.put(folder.getId(), folder);
+        }
 
-        while (current != null) {
-            hierarchy.add(0, convertToDTO(current)); // Add at beginning to maintain order
-            current = current.getParentFolder();
+        List<StudyFolderDTO> hierarchy = new ArrayList<>();
+        String fullPath = null;
+        for (Long id : pathIds) {
+            StudyFolder folder = ancestors.get(id);
+            if (folder == null) {
+                continue;
+            }
+            StudyFolderDTO dto = convertToDTO(folder);
+            if (!hierarchy.isEmpty()) {
+                dto.setParentFolderName(hierarchy.get(hierarchy.size() - 1).getName());
+            }
+            fullPath = fullPath == null ? folder.getName() : fullPath + "/" + folder.getName();
+            dto.setFullPath(fullPath);
+            hierarchy.add(dto);
         }
 
         return hierarchy;
@@ -118,6 +193,16 @@ public class StudyFolderService {
                 parentFolder);
 
         StudyFolder savedFolder = studyFolderRepository.save(folder);
+
+        // The path ends with the generated id, so it is assigned right after the insert
+        String parentPath = parentFolder != null ? parentFolder.getPath() : "/";
+        int depth = parentFolder != null ? parentFolder.getDepth() + 1 : 0;
+        savedFolder.setPath(parentPath + savedFolder.getId() + "/");
+        savedFolder.setDepth(depth);
+        studyFolderRepository.assignPath(savedFolder.getId(), savedFolder.getPath(), depth);
+        if (parentFolder != null) {
+            studyFolderRepository.adjustSubFolderCount(parentFolder.getId(), 1);
+        }
         logger.info("Created folder with ID {}", savedFolder.getId());
 
         return convertToDTO(savedFolder);
@@ -136,8 +221,9 @@ public class StudyFolderService {
 
         StudyFolder folder = folderOpt.get();
 
-        // Get current parent folder ID safely without triggering lazy loading
-        Long currentParentFolderId = studyFolderRepository.getParentFolderId(folder.getId());
+        // Current parent from the path, without touching the lazy parent association
+        List<Long> pathIds = folder.getPathIds();
+        Long currentParentFolderId = pathIds.size() > 1 ? pathIds.get(pathIds.size() - 2) : null;
 
         // Validate parent folder if changed
         StudyFolder newParentFolder = null;
@@ -178,11 +264,25 @@ public class StudyFolderService {
         folder.setName(request.getName());
         folder.setDescription(request.getDescription());
         folder.setColor(request.getColor());
-        if (request.getParentFolderId() != null) {
+        if (newParentFolder != null) {
             folder.setParentFolder(newParentFolder);
         }
 
         StudyFolder savedFolder = studyFolderRepository.save(folder);
+
+        if (newParentFolder != null) {
+            // One statement re-roots the whole subtree
+            String oldPath = folder.getPath();
+            String newPath = newParentFolder.getPath() + folder.getId() + "/";
+            int depthDelta = newParentFolder.getDepth() + 1 - folder.getDepth();
+            studyFolderRepository.movePaths(userId, oldPath, oldPath.length(), newPath, depthDelta);
+            if (currentParentFolderId != null) {
+                studyFolderRepository.adjustSubFolderCount(currentParentFolderId, -1);
+            }
+            studyFolderRepository.adjustSubFolderCount(newParentFolder.getId(), 1);
+            savedFolder.setPath(newPath);
+            savedFolder.setDepth(folder.getDepth() + depthDelta);
+        }
         logger.info("Updated folder {}", savedFolder.getId());
 
         return convertToDTO(savedFolder);
@@ -200,10 +300,17 @@ public class StudyFolderService {
         }
 
         StudyFolder folder = folderOpt.get();
-
-        // Delete folder (cascading will handle subfolders and materials)
-        studyFolderRepository.delete(folder);
-        logger.info("Deleted folder {} and all its contents", folderId);
+        List<Long> pathIds = folder.getPathIds();
+
+        // Set-based by path prefix: nothing below the folder is loaded, file data included
+        int notes = noteRepository.detachFromFolderSubtree(userId, folder.getPath());
+        int materials = studyMaterialRepository.deleteInFolderSubtree(userId, folder.getPath());
+        int folders = studyFolderRepository.deleteSubtree(userId, folder.getPath());
+        if (pathIds.size() > 1) {
+            studyFolderRepository.adjustSubFolderCount(pathIds.get(pathIds.size() - 2), -1);
+        }
+        logger.info("Deleted folder {}: {} folders, {} materials, {} notes moved out", folderId, folders, materials,
+                notes);
     }
 
     /**
@@ -227,12 +334,113 @@ public class StudyFolderService {
         }
 
         StudyMaterial material = materialOpt.get();
+        Long currentFolderId = material.getFolder() != null ? material.getFolder().getId() : null;
         material.setFolder(targetFolder);
         studyMaterialRepository.save(material);
 
+        if (!Objects.equals(currentFolderId, folderId)) {
+            if (currentFolderId != null) {
+                studyFolderRepository.adjustMaterialCount(currentFolderId, -1);
+            }
+            if (folderId != null) {
+                studyFolderRepository.adjustMaterialCount(folderId, 1);
+            }
+        }
+
         logger.info("Moved material {} to folder {}", materialId, folderId);
     }
 
+    /**
+     * Move several study materials to a folder (or out of every folder) in one statement
+     */
+    public int moveMaterialsToFolder(List<Long> materialIds, Long folderId, Long userId) {
+        logger.info("Moving {} materials to folder {} for user {}", materialIds.size(), folderId, userId);
+
+        StudyFolder targetFolder = null;
+        if (folderId != null) {
+            Optional<StudyFolder> folderOpt = studyFolderRepository.findByIdAndUserId(folderId, userId);
+            if (folderOpt.isEmpty()) {
+                throw new RuntimeException("Target folder not found");
+            }
+            targetFolder = folderOpt.get();
+        }
+
+        // Where the materials are now, counted per folder, before they move
+        int moved = 0;
+        for (Object[] row : studyMaterialRepository.countByFolderForIds(userId, materialIds)) {
+            Long currentFolderId = (Long) row[0];
+            int count = ((Long) row[1]).intValue();
+            if (Objects.equals(currentFolderId, folderId)) {
+                continue;
+            }
+            if (currentFolderId != null) {
+                studyFolderRepository.adjustMaterialCount(currentFolderId, -count);
+            }
+            moved += count;
+        }
+        if (folderId != null && moved > 0) {
+            studyFolderRepository.adjustMaterialCount(folderId, moved);
+        }
+
+        int updated = studyMaterialRepository.moveToFolder(userId, materialIds, targetFolder, LocalDateTime.now());
+        logger.info("Moved {} materials to folder {}", moved, folderId);
+        return updated;
+    }
+
+    /**
+     * Write a folder and everything below it as a ZIP archive. Runs outside a
+     * transaction so no connection is held while the client reads; file data
+     * is copied from the result set one material at a time.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportFolderZip(Long folderId, Long userId, OutputStream out) throws IOException {
+        StudyFolder folder = studyFolderRepository.findByIdAndUserId(folderId, userId)
+                .orElseThrow(() -> new RuntimeException("Folder not found"));
+        String rootPath = folder.getPath();
+        int rootDepth = folder.getDepth() != null ? folder.getDepth() : 0;
+
+        // Directories and files share one namespace, so a file never collides with a folder entry
+        Set<String> usedNames = new HashSet<>();
+
+        // Directory per folder, relative to the exported one; ordered by path, so parents come first
+        Map<Long, String> directories = new HashMap<>();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (Object[] row : studyFolderRepository.findSubtreeNames(userId, rootPath)) {
+            List<Long> pathIds = StudyFolder.parsePathIds((String) row[2]);
+            String parentDirectory = pathIds.size() > rootDepth + 1
+                    ? directories.getOrDefault(pathIds.get(pathIds.size() - 2), "")
+                    : "";
+            String directory = uniqueEntryName(parentDirectory, safeEntryName((String) row[1]), false, usedNames)
+                    + "/";
+            directories.put((Long) row[0], directory);
+            // Explicit entries keep empty folders in the archive
+            zip.putNextEntry(new ZipEntry(directory));
+            zip.closeEntry();
+        }
+
+        int files = 0;
+        for (Object[] row : studyMaterialRepository.findExportEntries(userId, rootPath)) {
+            Long materialId = (Long) row[0];
+            String entryName = uniqueEntryName(directories.getOrDefault((Long) row[2], ""),
+                    safeEntryName((String) row[1]), true, usedNames);
+            zip.putNextEntry(new ZipEntry(entryName));
+            jdbcTemplate.query(FILE_DATA_SQL, rs -> {
+                try (InputStream data = rs.getBinaryStream(1)) {
+                    if (data != null) {
+                        data.transferTo(zip);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, materialId, userId);
+            zip.closeEntry();
+            files++;
+        }
+        zip.finish();
+        logger.info("Exported folder {} for user {}: {} folders, {} files", folderId, userId, directories.size(),
+                files);
+    }
+
     /**
      * Search folders by name
      */
@@ -244,17 +452,52 @@ public class StudyFolderService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Bring paths and counters in line with the parent links, e.g. for folders
+     * created before they existed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileFolderTree() {
+        try {
+            int paths = studyFolderRepository.rebuildPaths();
+            int counters = studyFolderRepository.recountMissingCounters();
+            if (paths > 0 || counters > 0) {
+                logger.info("Reconciled folder tree: {} paths, {} counters", paths, counters);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to reconcile folder tree: {}", e.getMessage(), e);
+        }
+    }
+
     // Helper methods
 
+    // The new parent lies inside the folder's own subtree
     private boolean wouldCreateCircularReference(StudyFolder folder, StudyFolder newParent) {
-        Long currentId = newParent.getId();
-        while (currentId != null) {
-            if (currentId.equals(folder.getId())) {
-                return true;
-            }
-            currentId = studyFolderRepository.getParentFolderId(currentId);
+        return newParent.getPath().startsWith(folder.getPath());
+    }
+
+    // One path segment: no separators of its own, and never "." or ".." (which would escape the archive root)
+    private String safeEntryName(String name) {
+        if (name == null || name.isBlank()) {
+            return "untitled";
         }
-        return false;
+        String segment = name.replace('/', '_').replace('\\', '_');
+        if (segment.equals(".") || segment.equals("..")) {
+            return segment.replace('.', '_');
+        }
+        return segment;
+    }
+
+    // Same-named entries in one directory get a numbered suffix, before the extension for files
+    private String uniqueEntryName(String directory, String name, boolean isFile, Set<String> usedNames) {
+        String candidate = directory + name;
+        int dot = isFile ? name.lastIndexOf('.') : -1;
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int n = 2; !usedNames.add(candidate); n++) {
+            candidate = directory + base + " (" + n + ")" + extension;
+        }
+        return candidate;
     }
 
     private StudyFolderDTO convertToDTO(StudyFolder folder) {
@@ -264,54 +507,17 @@ public class StudyFolderService {
         dto.setDescription(folder.getDescription());
         dto.setColor(folder.getColor());
 
-        // Completely avoid accessing parentFolder proxy - set to null for now
-        dto.setParentFolderId(null);
+        // Parent id comes from the path, without touching the parentFolder proxy
+        List<Long> pathIds = folder.getPathIds();
+        dto.setParentFolderId(pathIds.size() > 1 ? pathIds.get(pathIds.size() - 2) : null);
         dto.setParentFolderName(null);
-        dto.setFullPath(folder.getName()); // Just use folder name without full path
+        dto.setFullPath(folder.getName()); // Callers that loaded the ancestors fill in the full path
 
-        // Use separate queries for counts to avoid lazy loading issues
-        dto.setMaterialCount((int) studyMaterialRepository.countByFolderId(folder.getId()));
-        dto.setSubFolderCount((int) studyFolderRepository.countByParentFolderId(folder.getId()));
+        // Denormalized counters, no query per folder
+        dto.setMaterialCount(folder.getMaterialCount() != null ? folder.getMaterialCount() : 0);
+        dto.setSubFolderCount(folder.getSubFolderCount() != null ? folder.getSubFolderCount() : 0);
         dto.setCreatedAt(folder.getCreatedAt());
         dto.setUpdatedAt(folder.getUpdatedAt());
         return dto;
     }
-
-    private StudyFolderDTO convertToDTOWithContents(StudyFolder folder) {
-        StudyFolderDTO dto = convertToDTO(folder);
-
-        // Load subfolders separately to avoid lazy loading issues
-        List<StudyFolder> subFolders = studyFolderRepository.findByParentFolderId(folder.getId());
-        List<StudyFolderDTO> subFolderDTOs = subFolders.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-        dto.setSubFolders(subFolderDTOs);
-
-        // Load study materials separately to avoid lazy loading issues
-        List<StudyMaterial> materials = studyMaterialRepository.findByFolderIdOrderByCreatedAtDesc(folder.getId());
-        List<StudyMaterialDTO> materialDTOs = materials.stream()
-                .map(this::convertMaterialToDTO)
-                .collect(Collectors.toList());
-        dto.setStudyMaterials(materialDTOs);
-
-        return dto;
-    }
-
-    private StudyMaterialDTO convertMaterialToDTO(StudyMaterial material) {
-        StudyMaterialDTO dto = new StudyMaterialDTO();
-        dto.setId(material.getId());
-        dto.setFileName(material.getFileName());
-        dto.setOriginalName(material.getOriginalName());
-        dto.setFileType(material.getFileType().toString());
-        dto.setFileSize(material.getFileSize());
-        dto.setSubject(material.getSubject());
-        dto.setDescription(material.getDescription());
-        dto.setCategory(material.getCategory());
-        dto.setFolderId(material.getFolder() != null ? material.getFolder().getId() : null);
-        dto.setFolderName(material.getFolder() != null ? material.getFolder().getName() : null);
-        dto.setFolderPath(material.getFolder() != null ? material.getFolder().getFullPath() : null);
-        dto.setCreatedAt(material.getCreatedAt());
-        dto.setUpdatedAt(material.getUpdatedAt());
-        return dto;
-    }
 }
@@ -38,6 +38,9 @@ public class StudyMaterialChatbotService {
     @Autowired
     private DocumentTextExtractorService documentTextExtractorService;
 
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+
     @Value("${gemini.api.key}")
     private String geminiApiKey;
 
@@ -389,7 +392,7 @@ public class StudyMaterialChatbotService {
                     .retrieve()
                     .bodyToMono(String.class);
 
-            String responseBody = response.block();
+            String responseBody = downstreamLimiter.call(DownstreamLimiter.Downstream.GEMINI, response::block);
             logger.info("Received response from Gemini AI API");
 
             // Extract text from Gemini response
@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.studymate.backend.dto.StudyMaterialResponse;
 import com.studymate.backend.model.StudyFolder;
 import com.studymate.backend.model.StudyMaterial;
 import com.studymate.backend.repository.StudyFolderRepository;
@@ -25,11 +26,13 @@ public class StudyMaterialService {
 
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB
 
+    @Transactional
     public StudyMaterial saveFile(MultipartFile file, String subject, String description, Long userId)
             throws IOException {
         return saveFile(file, subject, description, null, userId);
     }
 
+    @Transactional
     public StudyMaterial saveFile(MultipartFile file, String subject, String description, Long folderId, Long userId)
             throws IOException {
         // Validate file
@@ -62,7 +65,11 @@ public class StudyMaterialService {
         studyMaterial.setUserId(userId);
         studyMaterial.setFolder(folder);
 
-        return studyMaterialRepository.save(studyMaterial);
+        StudyMaterial saved = studyMaterialRepository.save(studyMaterial);
+        if (folder != null) {
+            studyFolderRepository.adjustMaterialCount(folder.getId(), 1);
+        }
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -70,15 +77,42 @@ public class StudyMaterialService {
         return studyMaterialRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 
+    // Listings below select metadata only; the file data is loaded just for downloads
+
+    @Transactional(readOnly = true)
+    public List<StudyMaterialResponse> getUserMaterialListing(Long userId) {
+        return studyMaterialRepository.findResponsesByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StudyMaterialResponse> getFolderMaterialListing(Long folderId, Long userId) {
+        return studyMaterialRepository.findResponsesByUserIdAndFolderId(userId, folderId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StudyMaterialResponse> getUnorganizedMaterialListing(Long userId) {
+        return studyMaterialRepository.findUnorganizedResponses(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StudyMaterialResponse> searchMaterialListing(String query, Long userId) {
+        return studyMaterialRepository.searchResponses(userId, query);
+    }
+
     @Transactional(readOnly = true)
     public StudyMaterial getMaterialById(Long id, Long userId) {
         return studyMaterialRepository.findByIdAndUserId(id, userId).orElse(null);
     }
 
+    @Transactional
     public boolean deleteMaterial(Long id, Long userId) {
         var material = studyMaterialRepository.findByIdAndUserId(id, userId);
         if (material.isPresent()) {
+            StudyFolder folder = material.get().getFolder();
             studyMaterialRepository.deleteById(id);
+            if (folder != null) {
+                studyFolderRepository.adjustMaterialCount(folder.getId(), -1);
+            }
             return true;
         }
         return false;
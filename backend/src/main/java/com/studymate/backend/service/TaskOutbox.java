@@ -0,0 +1,413 @@
+package com.studymate.backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.studymate.backend.model.OutboxTask;
+import com.studymate.backend.repository.OutboxTaskRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Durable queue for post-write processing. Tasks are inserted in the
+ * transaction of the write that caused them, so a committed reply always
+ * gets its broadcast, key phrases and knowledge graph pass, even across
+ * restarts, and never one for a write that rolled back. A poller claims due
+ * tasks in batches and hands them to the worker executors; consumers load
+ * the current state by id. Broadcasts go first, in commit order, then the
+ * most active threads. Failures are retried with exponential backoff, and
+ * tasks the workers cannot take right now are deferred rather than dropped.
+ * Knowledge graph tasks wait out a debounce window, so a burst of replies to
+ * one thread is processed in a single pass.
+ */
+@Service
+public class TaskOutbox {
+
+    public static final String THREAD_CREATED = "thread_created";
+    public static final String REPLY_CREATED = "reply_created";
+    public static final String REPLY_KEY_PHRASES = "reply_key_phrases";
+    public static final String KNOWLEDGE_GRAPH = "knowledge_graph";
+
+    @Autowired
+    private OutboxTaskRepository outboxTaskRepository;
+
+    @Autowired
+    private TaskOutboxProcessor processor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("taskOutboxScheduler")
+    private TaskScheduler taskOutboxScheduler;
+
+    @Autowired
+    @Qualifier("replyProcessingExecutor")
+    private Executor replyProcessingExecutor;
+
+    @Autowired
+    @Qualifier("nlpProcessingExecutor")
+    private Executor nlpProcessingExecutor;
+
+    @Autowired
+    @Qualifier("knowledgeGraphExecutor")
+    private Executor knowledgeGraphExecutor;
+
+    @Value("${task-outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${task-outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${task-outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${task-outbox.backoff-base-ms:2000}")
+    private long backoffBaseMs;
+
+    @Value("${task-outbox.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    // A claimed task not finished within the lease is claimed again
+    @Value("${task-outbox.lease-ms:300000}")
+    private long leaseMs;
+
+    // Tasks older than this run before any higher-priority ones
+    @Value("${task-outbox.aging-ms:60000}")
+    private long agingMs;
+
+    // Replies to the same thread within this window are merged into one knowledge graph pass
+    @Value("${knowledge.graph.debounce-ms:750}")
+    private long debounceMs;
+
+    @Value("${knowledge.graph.max-batch-replies:50}")
+    private int maxBatchReplies;
+
+    private TransactionTemplate transaction;
+
+    // Knowledge graph passes stay single-writer per thread on this node
+    private final Set<Long> threadsInProgress = ConcurrentHashMap.newKeySet();
+
+    // Due time of the earliest extra poll already scheduled, or Long.MAX_VALUE when none is
+    private final AtomicLong scheduledPollAt = new AtomicLong(Long.MAX_VALUE);
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder latencyTotalMs = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        transaction = new TransactionTemplate(transactionManager);
+        // Also picks up tasks left by a previous run or another node
+        taskOutboxScheduler.scheduleWithFixedDelay(this::poll, Duration.ofMillis(pollIntervalMs));
+    }
+
+    /**
+     * Queue the broadcast of a new thread
+     */
+    @Transactional
+    public void enqueueThreadCreated(Long threadId) {
+        enqueue(THREAD_CREATED, threadId, null, BROADCAST_PRIORITY, 0);
+    }
+
+    /**
+     * Queue the broadcast of a new reply
+     */
+    @Transactional
+    public void enqueueReplyCreated(Long threadId, Long replyId) {
+        enqueue(REPLY_CREATED, threadId, replyId, BROADCAST_PRIORITY, 0);
+    }
+
+    /**
+     * Queue key phrase extraction for a new reply
+     */
+    @Transactional
+    public void enqueueKeyPhrases(Long threadId, Long replyId, int threadReplyCount) {
+        enqueue(REPLY_KEY_PHRASES, threadId, replyId, activityPriority(threadReplyCount), 0);
+    }
+
+    /**
+     * Queue a knowledge graph pass: for a new reply, or for the whole thread when replyId is null
+     */
+    @Transactional
+    public void enqueueKnowledgeGraph(Long threadId, Long replyId, int threadReplyCount) {
+        enqueue(KNOWLEDGE_GRAPH, threadId, replyId, activityPriority(threadReplyCount), debounceMs);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("pending", outboxTaskRepository.countByStatus(OutboxTask.Status.PENDING));
+        statistics.put("running", outboxTaskRepository.countByStatus(OutboxTask.Status.RUNNING));
+        statistics.put("failed", outboxTaskRepository.countByStatus(OutboxTask.Status.FAILED));
+        LocalDateTime oldestPending = outboxTaskRepository.findOldestCreatedAt(OutboxTask.Status.PENDING);
+        statistics.put("oldestPendingAgeMs",
+                oldestPending != null ? Duration.between(oldestPending, LocalDateTime.now()).toMillis() : 0);
+        long completedCount = completed.sum();
+        statistics.put("completed", completedCount);
+        statistics.put("averageLatencyMs", completedCount > 0 ? latencyTotalMs.sum() / completedCount : 0);
+        statistics.put("retried", retried.sum());
+        statistics.put("deadLettered", deadLettered.sum());
+        statistics.put("deferred", deferred.sum());
+        return statistics;
+    }
+
+    private void enqueue(String type, Long threadId, Long replyId, int priority, long delayMs) {
+        LocalDateTime dueAt = LocalDateTime.now().plus(Duration.ofMillis(delayMs));
+        outboxTaskRepository.save(new OutboxTask(type, threadId, replyId, priority, dueAt));
+        afterCommit(() -> requestPoll(delayMs));
+    }
+
+    // Users are waiting on broadcasts; above any activity level
+    private static final int BROADCAST_PRIORITY = 1000;
+
+    // Busier threads have more readers waiting on their knowledge data: one level per doubling of replies
+    private static int activityPriority(int threadReplyCount) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(0, threadReplyCount));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Runs a poll as soon as the new task is due instead of waiting for the next interval. A poll
+    // already scheduled at or before that time covers it; an earlier one is added otherwise, so a
+    // broadcast is not held back behind a debounced knowledge graph task.
+    private void requestPoll(long delayMs) {
+        long dueAt = System.currentTimeMillis() + delayMs;
+        long current;
+        do {
+            current = scheduledPollAt.get();
+            if (current <= dueAt) {
+                return;
+            }
+        } while (!scheduledPollAt.compareAndSet(current, dueAt));
+        taskOutboxScheduler.schedule(this::poll, Instant.ofEpochMilli(dueAt));
+    }
+
+    /**
+     * Claim and dispatch due tasks until none are left or the workers are saturated
+     */
+    public synchronized void poll() {
+        // Due tasks are all claimed below; later requests must schedule their own poll
+        scheduledPollAt.set(Long.MAX_VALUE);
+        try {
+            while (true) {
+                List<OutboxTask> tasks = claim();
+                if (tasks.isEmpty()) {
+                    return;
+                }
+                boolean saturated = dispatch(tasks);
+                if (saturated || tasks.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Task outbox poll failed: " + e.getMessage());
+        }
+    }
+
+    private List<OutboxTask> claim() {
+        return transaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxTask> tasks = outboxTaskRepository.claimDue(now, now.minus(Duration.ofMillis(agingMs)),
+                    batchSize);
+            LocalDateTime lease = now.plus(Duration.ofMillis(leaseMs));
+            for (OutboxTask task : tasks) {
+                task.setStatus(OutboxTask.Status.RUNNING);
+                task.setLockedUntil(lease);
+            }
+            return tasks;
+        });
+    }
+
+    // Returns true if a worker pool rejected work
+    private boolean dispatch(List<OutboxTask> tasks) {
+        boolean saturated = false;
+        List<OutboxTask> broadcasts = new ArrayList<>();
+        Map<Long, List<OutboxTask>> knowledgeGraphByThread = new LinkedHashMap<>();
+        List<OutboxTask> unknown = new ArrayList<>();
+
+        for (OutboxTask task : tasks) {
+            if (THREAD_CREATED.equals(task.getTaskType()) || REPLY_CREATED.equals(task.getTaskType())) {
+                broadcasts.add(task);
+            } else if (REPLY_KEY_PHRASES.equals(task.getTaskType())) {
+                saturated |= !execute(nlpProcessingExecutor, List.of(task),
+                        () -> processor.extractKeyPhrases(task.getReplyId()));
+            } else if (KNOWLEDGE_GRAPH.equals(task.getTaskType())) {
+                knowledgeGraphByThread.computeIfAbsent(task.getThreadId(), id -> new ArrayList<>()).add(task);
+            } else {
+                unknown.add(task);
+            }
+        }
+
+        if (!broadcasts.isEmpty()) {
+            // One job per batch keeps broadcasts in commit order; a failed one is retried on its own
+            saturated |= !executeEach(replyProcessingExecutor, broadcasts, processor::broadcast);
+        }
+
+        for (Map.Entry<Long, List<OutboxTask>> entry : knowledgeGraphByThread.entrySet()) {
+            Long threadId = entry.getKey();
+            List<OutboxTask> group = entry.getValue();
+            if (group.size() > maxBatchReplies) {
+                release(group.subList(maxBatchReplies, group.size()), 0);
+                group = group.subList(0, maxBatchReplies);
+            }
+            if (!threadsInProgress.add(threadId)) {
+                // The previous pass for this thread is still running; merge these into the next one
+                release(group, debounceMs);
+                continue;
+            }
+
+            boolean fullPass = group.stream().anyMatch(task -> task.getReplyId() == null);
+            List<Long> replyIds = group.stream().map(OutboxTask::getReplyId).filter(id -> id != null)
+                    .collect(Collectors.toList());
+            boolean accepted = execute(knowledgeGraphExecutor, group, () -> {
+                try {
+                    processor.processKnowledgeGraph(threadId, fullPass, replyIds);
+                } finally {
+                    threadsInProgress.remove(threadId);
+                }
+            });
+            if (!accepted) {
+                threadsInProgress.remove(threadId);
+                saturated = true;
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            fail(unknown, new IllegalStateException("Unknown task type"), true);
+        }
+        return saturated;
+    }
+
+    // Returns false, leaving the tasks deferred, if the executor rejects the work
+    private boolean execute(Executor executor, List<OutboxTask> tasks, Runnable work) {
+        try {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } catch (Exception e) {
+                    fail(tasks, e, false);
+                    return;
+                }
+                complete(tasks);
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            release(tasks, pollIntervalMs);
+            return false;
+        }
+    }
+
+    // Like execute, but runs the tasks one by one in a single job and settles each on its own
+    private boolean executeEach(Executor executor, List<OutboxTask> tasks, Consumer<OutboxTask> handler) {
+        try {
+            executor.execute(() -> {
+                List<OutboxTask> done = new ArrayList<>();
+                for (OutboxTask task : tasks) {
+                    try {
+                        handler.accept(task);
+                        done.add(task);
+                    } catch (Exception e) {
+                        fail(List.of(task), e, false);
+                    }
+                }
+                if (!done.isEmpty()) {
+                    complete(done);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            release(tasks, pollIntervalMs);
+            return false;
+        }
+    }
+
+    private void complete(List<OutboxTask> tasks) {
+        try {
+            transaction.executeWithoutResult(status -> outboxTaskRepository.deleteByIdIn(ids(tasks)));
+            LocalDateTime now = LocalDateTime.now();
+            for (OutboxTask task : tasks) {
+                latencyTotalMs.add(Duration.between(task.getCreatedAt(), now).toMillis());
+            }
+            completed.add(tasks.size());
+        } catch (Exception e) {
+            // The lease expires and the tasks run again. Key phrases are upserted and the knowledge
+            // graph skips replies its aggregate already holds; a broadcast may be delivered twice.
+            System.err.println("Failed to complete outbox tasks " + ids(tasks) + ": " + e.getMessage());
+        }
+    }
+
+    private void fail(List<OutboxTask> tasks, Exception error, boolean permanent) {
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        System.err.println("Outbox tasks " + ids(tasks) + " failed: " + message);
+        try {
+            transaction.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                for (OutboxTask task : outboxTaskRepository.findAllById(ids(tasks))) {
+                    int attempts = task.getAttempts() + 1;
+                    task.setAttempts(attempts);
+                    task.setLockedUntil(null);
+                    task.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+                    if (permanent || attempts >= maxAttempts) {
+                        task.setStatus(OutboxTask.Status.FAILED);
+                        deadLettered.increment();
+                    } else {
+                        long backoffMs = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 20));
+                        task.setStatus(OutboxTask.Status.PENDING);
+                        task.setNextAttemptAt(now.plus(Duration.ofMillis(backoffMs)));
+                        retried.increment();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Failed to record outbox task failure: " + e.getMessage());
+        }
+    }
+
+    private void release(List<OutboxTask> tasks, long delayMs) {
+        LocalDateTime dueAt = LocalDateTime.now().plus(Duration.ofMillis(delayMs));
+        transaction.executeWithoutResult(status -> outboxTaskRepository.release(ids(tasks),
+                OutboxTask.Status.PENDING, dueAt));
+        deferred.add(tasks.size());
+    }
+
+    private static List<Long> ids(List<OutboxTask> tasks) {
+        return tasks.stream().map(OutboxTask::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,131 @@
+package com.studymate.backend.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.studymate.backend.model.OutboxTask;
+import com.studymate.backend.model.ReplyKeyPhrase;
+import com.studymate.backend.model.ThreadReply;
+import com.studymate.backend.repository.ReplyKeyPhraseRepository;
+import com.studymate.backend.repository.ThreadReplyRepository;
+
+/**
+ * Handlers for outbox tasks. Each one loads the current state by id, so a
+ * task queued before an edit or delete works on what is there now, and
+ * throws on failure so the outbox can retry it.
+ */
+@Component
+public class TaskOutboxProcessor {
+
+    @Autowired
+    private ThreadReplyRepository replyRepository;
+
+    @Autowired
+    private ReplyKeyPhraseRepository replyKeyPhraseRepository;
+
+    @Autowired
+    private NLPKeyPhraseService nlpKeyPhraseService;
+
+    @Autowired
+    private KnowledgeGraphService knowledgeGraphService;
+
+    @Autowired
+    private DiscussionEventBus discussionEventBus;
+
+    // Lazy: the thread service queues tasks through TaskOutbox, which calls back into here
+    @Autowired
+    @Lazy
+    private DiscussionThreadService discussionThreadService;
+
+    /**
+     * Broadcast a new thread or reply from its committed state
+     */
+    public void broadcast(OutboxTask task) {
+        if (TaskOutbox.THREAD_CREATED.equals(task.getTaskType())) {
+            discussionThreadService.publishThreadCreated(task.getThreadId());
+        } else {
+            discussionThreadService.publishReplyCreated(task.getReplyId());
+        }
+    }
+
+    /**
+     * Extract a reply's key phrases and store them
+     */
+    @Transactional
+    public void extractKeyPhrases(Long replyId) {
+        Optional<ThreadReply> replyOpt = replyRepository.findById(replyId);
+        if (replyOpt.isEmpty() || replyOpt.get().getIsDeleted()) {
+            return;
+        }
+        ThreadReply reply = replyOpt.get();
+
+        // Very short replies are skipped and long ones cut, as when seeding the scorer
+        String processableContent = KeyPhraseScorer.replyDocument(reply.getContent());
+        if (processableContent == null) {
+            return;
+        }
+
+        // Top-N key phrases ranked by RAKE x IDF score, best first
+        List<KeyPhraseScorer.ScoredPhrase> keyPhrases = nlpKeyPhraseService.extractKeyPhrases(reply.getId(),
+                processableContent);
+        if (keyPhrases.isEmpty()) {
+            return;
+        }
+
+        // One lookup for phrases already stored on this reply instead of one per phrase
+        Map<String, ReplyKeyPhrase> existingKeyPhrases = replyKeyPhraseRepository.findByReply(reply).stream()
+                .collect(Collectors.toMap(ReplyKeyPhrase::getKeyPhrase, keyPhrase -> keyPhrase,
+                        (first, second) -> first));
+
+        List<ReplyKeyPhrase> keyPhrasesToSave = new ArrayList<>();
+        for (KeyPhraseScorer.ScoredPhrase scoredPhrase : keyPhrases) {
+            ReplyKeyPhrase existingKeyPhrase = existingKeyPhrases.get(scoredPhrase.getPhrase());
+
+            if (existingKeyPhrase != null) {
+                // A retried task finds its earlier phrases; refresh them instead of counting twice
+                existingKeyPhrase.setRelevanceScore(scoredPhrase.getScore());
+                keyPhrasesToSave.add(existingKeyPhrase);
+            } else {
+                keyPhrasesToSave.add(new ReplyKeyPhrase(scoredPhrase.getPhrase(), scoredPhrase.getScore(), reply));
+            }
+        }
+
+        replyKeyPhraseRepository.saveAll(keyPhrasesToSave);
+    }
+
+    /**
+     * One knowledge graph pass for a thread: its whole content when fullPass
+     * is set, then the listed replies merged into one document
+     */
+    public void processKnowledgeGraph(Long threadId, boolean fullPass, List<Long> replyIds) {
+        if (fullPass) {
+            knowledgeGraphService.processThreadForKnowledgeGraph(threadId);
+        }
+        if (!replyIds.isEmpty()) {
+            // Keyed by reply id so a retried pass can skip replies the graph already holds
+            Map<Long, String> contents = new LinkedHashMap<>();
+            replyRepository.findAllById(replyIds).stream()
+                    .filter(reply -> !reply.getIsDeleted())
+                    .filter(reply -> reply.getContent() != null && !reply.getContent().trim().isEmpty())
+                    .sorted(Comparator.comparing(ThreadReply::getId))
+                    .forEach(reply -> contents.put(reply.getId(), reply.getContent()));
+            if (!contents.isEmpty()) {
+                knowledgeGraphService.processRepliesForKnowledgeGraph(threadId, contents);
+            }
+        }
+
+        // Thread responses carry knowledge entities and summaries, which just changed on every node
+        discussionEventBus.publish(new DiscussionEvent(DiscussionEventDispatcher.THREAD_CONTENT_CHANGED,
+                threadId, null, null, null, null, null));
+    }
+}
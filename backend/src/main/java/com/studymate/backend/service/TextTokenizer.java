@@ -0,0 +1,265 @@
+package com.studymate.backend.service;
+
+import java.util.Arrays;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared tokenizer for the NLP services. Scans text into offset/length spans
+ * using a precomputed ASCII character class table and checks stop words
+ * against a static table, so no intermediate strings are created per word.
+ */
+@Component
+public class TextTokenizer {
+
+    // Character classes
+    private static final byte OTHER = 0;
+    private static final byte LOWER = 1;
+    private static final byte UPPER = 2;
+    private static final byte DIGIT = 3;
+    private static final byte HYPHEN = 4;
+    private static final byte SENTENCE_END = 5;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] = LOWER;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CHAR_CLASSES[c] = UPPER;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = DIGIT;
+        }
+        CHAR_CLASSES['-'] = HYPHEN;
+        CHAR_CLASSES['.'] = SENTENCE_END;
+        CHAR_CLASSES['!'] = SENTENCE_END;
+        CHAR_CLASSES['?'] = SENTENCE_END;
+    }
+
+    // Span flags
+    public static final int SENTENCE_START = 1;
+    public static final int CAPITALIZED = 1 << 1;
+    public static final int NUMERIC = 1 << 2;
+    public static final int HYPHENATED = 1 << 3;
+
+    private static final String[] STOP_WORDS = {
+            "a", "an", "the", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by",
+            "is", "are", "was", "were", "be", "been", "have", "has", "had", "do", "does",
+            "did", "will", "would", "could", "should", "may", "might", "can", "this",
+            "that", "these", "those", "all", "any", "some", "many", "much", "more", "most",
+            "other", "another", "such", "what", "which", "who", "when", "where", "why", "how",
+            "from" };
+
+    // Open-addressing table keyed by the lower-case String hash code
+    private static final int STOP_WORD_MASK = 255;
+    private static final String[] STOP_WORD_TABLE = new String[STOP_WORD_MASK + 1];
+
+    static {
+        for (String word : STOP_WORDS) {
+            int slot = word.hashCode() & STOP_WORD_MASK;
+            while (STOP_WORD_TABLE[slot] != null) {
+                slot = (slot + 1) & STOP_WORD_MASK;
+            }
+            STOP_WORD_TABLE[slot] = word;
+        }
+    }
+
+    /**
+     * Tokenize text into a new span buffer, splitting hyphenated words
+     */
+    public TokenSpans tokenize(CharSequence text) {
+        return tokenize(text, new TokenSpans(), false);
+    }
+
+    /**
+     * Tokenize text into the given span buffer, which is cleared first. Tokens
+     * are maximal runs of ASCII letters and digits; when keepHyphens is set, a
+     * hyphen between two such runs joins them into one token.
+     */
+    public TokenSpans tokenize(CharSequence text, TokenSpans spans, boolean keepHyphens) {
+        spans.reset(text);
+        if (text == null) {
+            return spans;
+        }
+
+        int length = text.length();
+        int start = -1;
+        int flags = 0;
+        boolean numeric = false;
+        boolean sentenceStart = true;
+
+        for (int i = 0; i < length; i++) {
+            byte charClass = classOf(text.charAt(i));
+
+            if (charClass == LOWER || charClass == UPPER || charClass == DIGIT) {
+                if (start < 0) {
+                    start = i;
+                    flags = sentenceStart ? SENTENCE_START : 0;
+                    if (charClass == UPPER) {
+                        flags |= CAPITALIZED;
+                    }
+                    numeric = charClass == DIGIT;
+                    sentenceStart = false;
+                } else if (charClass != DIGIT) {
+                    numeric = false;
+                }
+                continue;
+            }
+
+            if (charClass == HYPHEN && keepHyphens && start >= 0 && i + 1 < length
+                    && isWordClass(classOf(text.charAt(i + 1)))) {
+                flags |= HYPHENATED;
+                numeric = false;
+                continue;
+            }
+
+            if (start >= 0) {
+                spans.add(start, i - start, numeric ? flags | NUMERIC : flags);
+                start = -1;
+            }
+            if (charClass == SENTENCE_END) {
+                sentenceStart = true;
+            }
+        }
+
+        if (start >= 0) {
+            spans.add(start, length - start, numeric ? flags | NUMERIC : flags);
+        }
+
+        return spans;
+    }
+
+    /**
+     * Check if the given region of text is a stop word, ignoring case
+     */
+    public boolean isStopWord(CharSequence text, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + toLowerAscii(text.charAt(i));
+        }
+
+        int slot = hash & STOP_WORD_MASK;
+        String candidate;
+        while ((candidate = STOP_WORD_TABLE[slot]) != null) {
+            if (regionEqualsLower(candidate, text, offset, length)) {
+                return true;
+            }
+            slot = (slot + 1) & STOP_WORD_MASK;
+        }
+        return false;
+    }
+
+    /**
+     * Check if a whole word is a stop word, ignoring case
+     */
+    public boolean isStopWord(CharSequence word) {
+        return word != null && isStopWord(word, 0, word.length());
+    }
+
+    private static boolean regionEqualsLower(String lowerWord, CharSequence text, int offset, int length) {
+        if (lowerWord.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (lowerWord.charAt(i) != toLowerAscii(text.charAt(offset + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte classOf(char c) {
+        return c < 128 ? CHAR_CLASSES[c] : OTHER;
+    }
+
+    private static boolean isWordClass(byte charClass) {
+        return charClass == LOWER || charClass == UPPER || charClass == DIGIT;
+    }
+
+    private static char toLowerAscii(char c) {
+        return c < 128 && CHAR_CLASSES[c] == UPPER ? (char) (c + 32) : c;
+    }
+
+    /**
+     * Growable buffer of token spans over a single text. Strings are only
+     * created when a caller asks for the text of a span.
+     */
+    public static final class TokenSpans {
+        private CharSequence text;
+        private int[] offsets = new int[64];
+        private int[] lengths = new int[64];
+        private int[] flags = new int[64];
+        private int size;
+
+        void reset(CharSequence text) {
+            this.text = text;
+            this.size = 0;
+        }
+
+        void add(int offset, int length, int spanFlags) {
+            if (size == offsets.length) {
+                int capacity = size * 2;
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            flags[size] = spanFlags;
+            size++;
+        }
+
+        public CharSequence text() {
+            return text;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int offset(int index) {
+            return offsets[index];
+        }
+
+        public int length(int index) {
+            return lengths[index];
+        }
+
+        public boolean is(int index, int flag) {
+            return (flags[index] & flag) != 0;
+        }
+
+        public boolean isSentenceStart(int index) {
+            return is(index, SENTENCE_START);
+        }
+
+        public boolean isCapitalized(int index) {
+            return is(index, CAPITALIZED);
+        }
+
+        public boolean isNumeric(int index) {
+            return is(index, NUMERIC);
+        }
+
+        /**
+         * Append the span text to a builder without creating a String
+         */
+        public StringBuilder appendTo(StringBuilder builder, int index) {
+            return builder.append(text, offsets[index], offsets[index] + lengths[index]);
+        }
+
+        public String tokenText(int index) {
+            return text.subSequence(offsets[index], offsets[index] + lengths[index]).toString();
+        }
+
+        public String lowerCaseText(int index) {
+            char[] chars = new char[lengths[index]];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = toLowerAscii(text.charAt(offsets[index] + i));
+            }
+            return new String(chars);
+        }
+    }
+}
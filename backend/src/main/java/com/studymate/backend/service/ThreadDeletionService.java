@@ -0,0 +1,131 @@
+package com.studymate.backend.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.studymate.backend.repository.DiscussionThreadRepository;
+import com.studymate.backend.repository.ReplyKeyPhraseRepository;
+import com.studymate.backend.repository.ThreadReplyRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Set-based thread deletion. Dependents are removed with bulk statements in
+ * foreign key order (reply key phrases, replies, knowledge entity links, the
+ * thread) instead of loading and deleting them row by row. Threads with more
+ * replies than the soft-delete threshold are hidden immediately and purged in
+ * the background in bounded chunks, so one request never holds locks on
+ * thousands of rows.
+ */
+@Service
+public class ThreadDeletionService {
+
+    private static final int PURGE_THREADS_PER_RUN = 10;
+
+    @Autowired
+    private DiscussionThreadRepository threadRepository;
+
+    @Autowired
+    private ThreadReplyRepository replyRepository;
+
+    @Autowired
+    private ReplyKeyPhraseRepository replyKeyPhraseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("threadPurgeScheduler")
+    private TaskScheduler threadPurgeScheduler;
+
+    // 0 always deletes inline
+    @Value("${thread.delete.soft-delete-threshold:1000}")
+    private long softDeleteThreshold;
+
+    @Value("${thread.delete.purge-batch-size:2000}")
+    private int purgeBatchSize;
+
+    @Value("${thread.delete.purge-interval-ms:60000}")
+    private long purgeIntervalMs;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    public void init() {
+        transaction = new TransactionTemplate(transactionManager);
+        // Also resumes purges left unfinished by a previous run
+        threadPurgeScheduler.scheduleWithFixedDelay(this::purgeDeletedThreads, Duration.ofMillis(purgeIntervalMs));
+    }
+
+    /**
+     * Delete a thread and everything that references it. Returns true if the
+     * thread was removed now, false if it was soft-deleted and queued for purge.
+     */
+    @Transactional
+    public boolean deleteThread(Long threadId, long replyCount) {
+        if (softDeleteThreshold > 0 && replyCount > softDeleteThreshold) {
+            threadRepository.markDeleted(threadId);
+            threadPurgeScheduler.schedule(this::purgeDeletedThreads, Instant.now().plusSeconds(1));
+            return false;
+        }
+
+        int keyPhrases = replyKeyPhraseRepository.deleteByThreadId(threadId);
+        int replies = replyRepository.deleteByThreadId(threadId);
+        threadRepository.deleteKnowledgeEntityLinks(threadId);
+        threadRepository.deleteThreadRow(threadId);
+        System.out.println("Deleted thread " + threadId + " with " + replies + " replies and " + keyPhrases
+                + " key phrases");
+        return true;
+    }
+
+    /**
+     * Purge soft-deleted threads, one short transaction per chunk of replies
+     */
+    public synchronized void purgeDeletedThreads() {
+        try {
+            List<Long> threadIds = threadRepository.findSoftDeletedIds(PURGE_THREADS_PER_RUN);
+            for (Long threadId : threadIds) {
+                purgeThread(threadId);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to purge deleted threads: " + e.getMessage());
+        }
+    }
+
+    private void purgeThread(Long threadId) {
+        transaction.executeWithoutResult(status -> replyRepository.clearParentRepliesByThreadId(threadId));
+
+        long purged = 0;
+        while (true) {
+            Integer deleted = transaction.execute(status -> {
+                List<Long> replyIds = replyRepository.findIdsByThreadId(threadId, PageRequest.of(0, purgeBatchSize));
+                if (replyIds.isEmpty()) {
+                    return 0;
+                }
+                replyKeyPhraseRepository.deleteByReplyIds(replyIds);
+                return replyRepository.deleteByIdIn(replyIds);
+            });
+            if (deleted == null || deleted == 0) {
+                break;
+            }
+            purged += deleted;
+        }
+
+        transaction.executeWithoutResult(status -> {
+            threadRepository.deleteKnowledgeEntityLinks(threadId);
+            threadRepository.deleteThreadRow(threadId);
+        });
+        System.out.println("Purged soft-deleted thread " + threadId + " and " + purged + " replies");
+    }
+}
@@ -0,0 +1,170 @@
+package com.studymate.backend.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.studymate.backend.model.KnowledgeEntity;
+
+/**
+ * Running knowledge graph aggregates for one discussion thread. Built once
+ * from the full thread, then updated with per-reply deltas so score and
+ * summary no longer require walking every entity and reply.
+ */
+public class ThreadKnowledgeAggregate {
+
+    static final int TOP_K = 5;
+    static final int MAX_RELATED_NAMES = 10;
+    static final int SUMMARY_REPLY_COUNT = 3;
+
+    private final Set<Long> entityIds = new HashSet<>();
+    private final Set<String> entityNames = new HashSet<>();
+
+    // Sum of confidence * frequency over the thread's entities
+    private double scoreSum;
+
+    private final List<RankedEntity> topConcepts = new ArrayList<>();
+    private final List<RankedEntity> topKeyPhrases = new ArrayList<>();
+    private final List<RankedEntity> topEntities = new ArrayList<>();
+
+    private final Set<String> relatedNames = new LinkedHashSet<>();
+
+    // Snippets of the first replies, which feed the basic summary
+    private final List<String> replySnippets = new ArrayList<>();
+    private int summaryRepliesSeen;
+
+    private String sentiment;
+
+    // Replies whose delta is already applied; a retried outbox task skips them
+    private final Set<Long> appliedReplyIds = new HashSet<>();
+
+    /**
+     * Apply an entity attached to the thread. Entities already counted only
+     * contribute the frequency increment caused by this mention.
+     */
+    public synchronized void applyEntity(KnowledgeEntity entity, boolean mentionedAgain) {
+        double confidence = entity.getConfidenceScore() != null ? entity.getConfidenceScore() : 0.0;
+
+        if (entityIds.add(entity.getId())) {
+            entityNames.add(entity.getName());
+            scoreSum += confidence * entity.getFrequencyCount();
+        } else if (mentionedAgain) {
+            scoreSum += confidence;
+        } else {
+            return;
+        }
+
+        RankedEntity ranked = new RankedEntity(entity.getId(), entity.getName(), confidence);
+        if ("CONCEPT".equals(entity.getEntityType())) {
+            offer(topConcepts, ranked);
+        } else if ("KEY_PHRASE".equals(entity.getEntityType())) {
+            offer(topKeyPhrases, ranked);
+        }
+        offer(topEntities, ranked);
+        relatedNames.remove(entity.getName());
+    }
+
+    /**
+     * Record names of entities related to the thread's entities, bounded;
+     * names of entities already on the thread are skipped
+     */
+    public synchronized void addRelatedNames(Set<String> names) {
+        for (String name : names) {
+            if (relatedNames.size() >= MAX_RELATED_NAMES) {
+                return;
+            }
+            if (!entityNames.contains(name)) {
+                relatedNames.add(name);
+            }
+        }
+    }
+
+    /**
+     * Record a reply; only the first few replies contribute summary snippets
+     */
+    public synchronized void applyReply(String content) {
+        if (summaryRepliesSeen >= SUMMARY_REPLY_COUNT || content == null) {
+            return;
+        }
+        summaryRepliesSeen++;
+        if (content.length() > 50) {
+            replySnippets.add(content.substring(0, Math.min(100, content.length())));
+        }
+    }
+
+    /**
+     * Claim a reply for this aggregate; false when it was applied before
+     */
+    public synchronized boolean markReplyApplied(Long replyId) {
+        return appliedReplyIds.add(replyId);
+    }
+
+    public synchronized double getAverageScore() {
+        return entityIds.isEmpty() ? 0.0 : scoreSum / entityIds.size();
+    }
+
+    public synchronized int getEntityCount() {
+        return entityIds.size();
+    }
+
+    public synchronized boolean containsEntity(Long entityId) {
+        return entityIds.contains(entityId);
+    }
+
+    public synchronized List<String> getTopConceptNames(int limit) {
+        return names(topConcepts, limit);
+    }
+
+    public synchronized List<String> getTopKeyPhraseNames(int limit) {
+        return names(topKeyPhrases, limit);
+    }
+
+    public synchronized List<Long> getTopEntityIds() {
+        return topEntities.stream().map(ranked -> ranked.id).collect(Collectors.toList());
+    }
+
+    public synchronized List<String> getRelatedNames(int limit) {
+        return relatedNames.stream().limit(limit).collect(Collectors.toList());
+    }
+
+    public synchronized List<String> getReplySnippets() {
+        return new ArrayList<>(replySnippets);
+    }
+
+    public synchronized String getSentiment() {
+        return sentiment;
+    }
+
+    public synchronized void setSentiment(String sentiment) {
+        this.sentiment = sentiment;
+    }
+
+    private static void offer(List<RankedEntity> top, RankedEntity candidate) {
+        top.removeIf(existing -> existing.id.equals(candidate.id));
+        top.add(candidate);
+        top.sort(Comparator.comparingDouble((RankedEntity ranked) -> ranked.confidence).reversed());
+        if (top.size() > TOP_K) {
+            top.remove(top.size() - 1);
+        }
+    }
+
+    private static List<String> names(List<RankedEntity> top, int limit) {
+        return top.stream().limit(limit).map(ranked -> ranked.name).collect(Collectors.toList());
+    }
+
+    private static final class RankedEntity {
+        private final Long id;
+        private final String name;
+        private final double confidence;
+
+        private RankedEntity(Long id, String name, double confidence) {
+            this.id = id;
+            this.name = name;
+            this.confidence = confidence;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.studymate.backend.service;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.studymate.backend.dto.ThreadResponse;
+
+/**
+ * Read-through cache of thread detail responses and the first pages of each
+ * course listing. Entries are stored serialized, so every hit hands out its
+ * own copy, and are invalidated by the discussion events dispatched after
+ * each commit, on every node. Concurrent misses for one key share a single
+ * database load.
+ */
+@Component
+public class ThreadResponseCache {
+
+    private static final TypeReference<List<ThreadResponse>> THREAD_LIST = new TypeReference<>() {
+    };
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${thread.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${thread.cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${thread.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    // Only the first pages of a course listing are hot enough to be worth caching
+    @Value("${thread.cache.course-pages:1}")
+    private int cachedCoursePages;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // Course of every thread seen in a response, so reply events can find the listing pages to evict
+    private final Map<Long, String> threadCourses = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > maxEntries * 10;
+        }
+    };
+
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation; a load that overlapped one is returned but not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Thread detail by id. Views served from a cached entry are added to its
+     * view count, so the count keeps moving between reloads.
+     */
+    public Optional<ThreadResponse> getThread(Long threadId, Supplier<Optional<ThreadResponse>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        String key = threadKey(threadId);
+        Entry entry = lookup(key);
+        boolean cached = entry != null;
+        if (!cached) {
+            entry = load(key, () -> {
+                Optional<ThreadResponse> thread = loader.get();
+                thread.ifPresent(response -> rememberCourse(threadId, response.getCourse()));
+                return thread.map(response -> new Entry(serialize(response), response.getCourse(),
+                        Set.of(threadId), 0)).orElse(Entry.ABSENT);
+            });
+        }
+        if (entry == Entry.ABSENT) {
+            return Optional.empty();
+        }
+
+        ThreadResponse response = deserialize(entry.body, ThreadResponse.class);
+        if (cached) {
+            entry.views.increment();
+            if (response.getViewCount() != null) {
+                response.setViewCount((int) (response.getViewCount() + entry.views.sum()));
+            }
+        }
+        return Optional.of(response);
+    }
+
+    /**
+     * Page of a course listing; pages past the cached range go straight to the loader
+     */
+    public Page<ThreadResponse> getCoursePage(String course, int page, int size,
+            Supplier<Page<ThreadResponse>> loader) {
+        if (!enabled || page >= cachedCoursePages) {
+            return loader.get();
+        }
+
+        Entry entry = lookup(courseKey(course, page, size));
+        if (entry == null) {
+            entry = load(courseKey(course, page, size), () -> {
+                Page<ThreadResponse> result = loader.get();
+                Set<Long> threadIds = new HashSet<>();
+                result.getContent().forEach(thread -> {
+                    threadIds.add(thread.getId());
+                    rememberCourse(thread.getId(), course);
+                });
+                return new Entry(serialize(result.getContent()), course, threadIds, result.getTotalElements());
+            });
+        }
+        return new PageImpl<>(deserialize(entry.body, THREAD_LIST), PageRequest.of(page, size), entry.totalElements);
+    }
+
+    /**
+     * A thread was created: only its course's listing pages change
+     */
+    public void onThreadCreated(Long threadId, String course) {
+        rememberCourse(threadId, course);
+        invalidateCourse(course);
+    }
+
+    /**
+     * A thread changed (reply, pin, lock): evict its detail and every listing
+     * page of its course, since its activity time and position may have moved.
+     * A null course is looked up from threads seen earlier.
+     */
+    public void onThreadChanged(Long threadId, String course) {
+        invalidateThread(threadId, course, true);
+    }
+
+    /**
+     * A thread's content changed without moving it in listings (knowledge
+     * graph update): evict only the entries that contain it
+     */
+    public void onThreadContentChanged(Long threadId) {
+        invalidateThread(threadId, null, false);
+    }
+
+    public void onThreadDeleted(Long threadId, String course) {
+        invalidateThread(threadId, course, true);
+    }
+
+    public void invalidateCourse(String course) {
+        if (course != null) {
+            invalidatePrefix("course:" + course + ":");
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return Map.of(
+                "entries", size,
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "inFlight", inFlight.size());
+    }
+
+    private void invalidateThread(Long threadId, String course, boolean positionChanged) {
+        Set<String> courses = new HashSet<>();
+        Set<String> containing = new HashSet<>();
+        synchronized (entries) {
+            entries.remove(threadKey(threadId));
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().threadIds.contains(threadId)) {
+                    containing.add(entry.getKey());
+                    courses.add(entry.getValue().course);
+                }
+            }
+            if (positionChanged) {
+                String knownCourse = course != null ? course : threadCourses.get(threadId);
+                if (knownCourse != null) {
+                    courses.add(knownCourse);
+                }
+            }
+            if (!positionChanged) {
+                entries.keySet().removeAll(containing);
+            }
+        }
+        inFlight.remove(threadKey(threadId));
+        invalidations.incrementAndGet();
+
+        if (!positionChanged) {
+            return;
+        }
+        if (courses.isEmpty()) {
+            // Never seen this thread's course; any first page could now list it
+            invalidatePrefix("course:");
+            return;
+        }
+        for (String changedCourse : courses) {
+            invalidateCourse(changedCourse);
+        }
+    }
+
+    private void rememberCourse(Long threadId, String course) {
+        if (threadId != null && course != null) {
+            synchronized (entries) {
+                threadCourses.put(threadId, course);
+            }
+        }
+    }
+
+    private void invalidatePrefix(String prefix) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+        inFlight.keySet().removeIf(key -> key.startsWith(prefix));
+        invalidations.incrementAndGet();
+    }
+
+    private Entry lookup(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.createdAt < ttlMs) {
+                hits.increment();
+                return entry;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        return null;
+    }
+
+    // One caller per key runs the loader; the rest wait for its result
+    private Entry load(String key, Supplier<Entry> loader) {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+        try {
+            Entry entry = loader.get();
+            if (entry != Entry.ABSENT && invalidations.get() == invalidationsBefore) {
+                synchronized (entries) {
+                    entries.put(key, entry);
+                }
+            }
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize cached thread response", e);
+        }
+    }
+
+    private <T> T deserialize(byte[] body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read cached thread response", e);
+        }
+    }
+
+    private <T> T deserialize(byte[] body, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read cached thread response", e);
+        }
+    }
+
+    private static String threadKey(Long threadId) {
+        return "thread:" + threadId;
+    }
+
+    private static String courseKey(String course, int page, int size) {
+        return "course:" + course + ":" + page + ":" + size;
+    }
+
+    private static final class Entry {
+        private static final Entry ABSENT = new Entry(new byte[0], null, Set.of(), 0);
+
+        private final byte[] body;
+        private final String course;
+        private final Set<Long> threadIds;
+        private final long totalElements;
+        private final long createdAt = System.currentTimeMillis();
+        private final LongAdder views = new LongAdder();
+
+        private Entry(byte[] body, String course, Set<Long> threadIds, long totalElements) {
+            this.body = body;
+            this.course = course;
+            this.threadIds = threadIds;
+            this.totalElements = totalElements;
+        }
+    }
+}
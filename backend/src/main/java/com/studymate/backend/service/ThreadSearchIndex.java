@@ -0,0 +1,1071 @@
+package com.studymate.backend.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded search engine over discussion threads, used when the database
+ * cannot provide full-text indexes. Each thread is one logical document with
+ * four fields (title, content, replies, knowledge entities) built from named
+ * sources, and is ranked with BM25 over the weighted fields.
+ *
+ * Every source is stored as its own internal doc, so adding or editing a
+ * reply only writes that reply's postings; term frequencies and lengths are
+ * summed per thread at query time. A replaced source's previous doc id is
+ * tombstoned. New docs go to an in-memory buffer that is flushed into
+ * immutable segments whose postings are delta + varint encoded. Small or
+ * mostly deleted segments are merged, and the whole index can be written to
+ * and restored from a snapshot.
+ */
+public class ThreadSearchIndex {
+
+    public static final int FIELD_TITLE = 0;
+    public static final int FIELD_CONTENT = 1;
+    public static final int FIELD_REPLY = 2;
+    public static final int FIELD_KNOWLEDGE = 3;
+    static final int FIELD_COUNT = 4;
+
+    private static final int SNAPSHOT_MAGIC = 0x53544958;
+    private static final int SNAPSHOT_VERSION = 2;
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final float[] fieldWeights;
+    private final int flushThreshold;
+    private final int maxSegments;
+
+    // Owning thread of each internal doc id
+    private long[] docThreadIds = new long[256];
+    private final BitSet deletedDocs = new BitSet();
+    private int nextDocId;
+
+    private final long[] liveFieldLengths = new long[FIELD_COUNT];
+    private int liveDocCount;
+    private int liveThreadCount;
+
+    // Stored term vectors per thread and source, needed to rebuild postings on compaction
+    private final Map<Long, ThreadDocument> documents = new HashMap<>();
+
+    private SegmentBuilder buffer = new SegmentBuilder();
+    private final List<Segment> segments = new ArrayList<>();
+
+    // Set while a bulk load runs; segment merging waits until the load ends
+    private boolean bulkLoading;
+
+    // Bumped on every change, so a compaction built outside the lock is only swapped in if nothing moved
+    private long version;
+
+    private volatile boolean dirty;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ThreadSearchIndex(float[] fieldWeights, int flushThreshold, int maxSegments) {
+        this.fieldWeights = Arrays.copyOf(fieldWeights, FIELD_COUNT);
+        this.flushThreshold = Math.max(1, flushThreshold);
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    /**
+     * Record thread-level attributes used for filtering
+     */
+    public void updateThread(Long threadId, String course, boolean moderated) {
+        lock.writeLock().lock();
+        try {
+            ThreadDocument document = documents.computeIfAbsent(threadId, ThreadDocument::new);
+            document.course = course;
+            document.moderated = moderated;
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the terms of one source of a thread document
+     */
+    public void updateSource(Long threadId, String sourceKey, int field, Map<String, Integer> termCounts) {
+        lock.writeLock().lock();
+        try {
+            ThreadDocument document = documents.computeIfAbsent(threadId, ThreadDocument::new);
+            Source previous = document.sources.remove(sourceKey);
+            if (previous != null) {
+                deleteSource(document, previous);
+            }
+            boolean added = termCounts != null && !termCounts.isEmpty();
+            if (added) {
+                Source source = new Source(field, new HashMap<>(termCounts));
+                document.sources.put(sourceKey, source);
+                addSource(document, source);
+            }
+            if (previous != null || added) {
+                changed();
+                maybeFlush();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace every source of a thread whose key starts with the given prefix
+     */
+    public void replaceSources(Long threadId, String keyPrefix, int field, Map<String, Map<String, Integer>> sources) {
+        lock.writeLock().lock();
+        try {
+            ThreadDocument document = documents.computeIfAbsent(threadId, ThreadDocument::new);
+            Iterator<Map.Entry<String, Source>> existing = document.sources.entrySet().iterator();
+            while (existing.hasNext()) {
+                Map.Entry<String, Source> entry = existing.next();
+                if (entry.getKey().startsWith(keyPrefix)) {
+                    deleteSource(document, entry.getValue());
+                    existing.remove();
+                }
+            }
+            for (Map.Entry<String, Map<String, Integer>> entry : sources.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    Source source = new Source(field, new HashMap<>(entry.getValue()));
+                    document.sources.put(keyPrefix + entry.getKey(), source);
+                    addSource(document, source);
+                }
+            }
+            changed();
+            maybeFlush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSource(Long threadId, String sourceKey) {
+        updateSource(threadId, sourceKey, FIELD_CONTENT, null);
+    }
+
+    public void removeThread(Long threadId) {
+        lock.writeLock().lock();
+        try {
+            ThreadDocument document = documents.remove(threadId);
+            if (document != null) {
+                for (Source source : document.sources.values()) {
+                    deleteSource(document, source);
+                }
+                changed();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Hold back segment merges until endBulkLoad, so a large load is not
+     * merged over and over while it is still growing
+     */
+    public void beginBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            bulkLoading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void endBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            if (!bulkLoading) {
+                return;
+            }
+            bulkLoading = false;
+            flushBuffer();
+            if (segments.size() > maxSegments) {
+                compact();
+            } else {
+                maybeMerge();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            resetPostings();
+            bulkLoading = false;
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return liveThreadCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            Set<String> terms = new HashSet<>(buffer.postings.keySet());
+            for (Segment segment : segments) {
+                terms.addAll(Arrays.asList(segment.terms));
+            }
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Long> getThreadIds() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(documents.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Find threads containing every query term in the selected fields, ranked
+     * by BM25 over the weighted field term frequencies of the whole thread
+     */
+    public List<Hit> search(Collection<String> terms, String course, boolean includeReplies,
+            boolean includeKnowledge) {
+        List<Hit> hits = new ArrayList<>();
+        if (terms.isEmpty()) {
+            return hits;
+        }
+
+        double[] weights = new double[FIELD_COUNT];
+        weights[FIELD_TITLE] = fieldWeights[FIELD_TITLE];
+        weights[FIELD_CONTENT] = fieldWeights[FIELD_CONTENT];
+        weights[FIELD_REPLY] = includeReplies ? fieldWeights[FIELD_REPLY] : 0.0;
+        weights[FIELD_KNOWLEDGE] = includeKnowledge ? fieldWeights[FIELD_KNOWLEDGE] : 0.0;
+
+        String[] queryTerms = new LinkedHashSet<>(terms).toArray(new String[0]);
+
+        lock.readLock().lock();
+        try {
+            if (liveThreadCount == 0) {
+                return hits;
+            }
+
+            double averageLength = 0.0;
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                averageLength += weights[field] * liveFieldLengths[field] / (double) liveThreadCount;
+            }
+            averageLength = Math.max(averageLength, 1.0);
+
+            List<PostingsSource> sources = new ArrayList<>(segments);
+            sources.add(buffer);
+
+            // Rarest term first, so it seeds the smallest set of candidate threads
+            Integer[] order = new Integer[queryTerms.length];
+            int[] postingCounts = new int[queryTerms.length];
+            for (int t = 0; t < queryTerms.length; t++) {
+                order[t] = t;
+                for (PostingsSource source : sources) {
+                    postingCounts[t] += source.docFreq(queryTerms[t]);
+                }
+                if (postingCounts[t] == 0) {
+                    return hits;
+                }
+            }
+            Arrays.sort(order, Comparator.comparingInt(t -> postingCounts[t]));
+
+            // Weighted term frequency of every query term per candidate thread
+            Map<Long, double[]> candidates = new HashMap<>();
+            double[] idf = new double[queryTerms.length];
+            for (int rank = 0; rank < order.length; rank++) {
+                int t = order[rank];
+                Set<Long> containing = new HashSet<>();
+                for (PostingsSource source : sources) {
+                    accumulate(source.postings(queryTerms[t]), t, weights, course, rank == 0, containing,
+                            candidates, queryTerms.length);
+                }
+                if (containing.isEmpty()) {
+                    return hits;
+                }
+                int df = Math.min(containing.size(), liveThreadCount);
+                idf[t] = Math.log(1.0 + (liveThreadCount - df + 0.5) / (df + 0.5));
+
+                // Term only occurs in fields excluded from this search, or not at all
+                candidates.values().removeIf(tfs -> tfs[t] <= 0.0);
+                if (candidates.isEmpty()) {
+                    return hits;
+                }
+            }
+
+            for (Map.Entry<Long, double[]> candidate : candidates.entrySet()) {
+                int[] lengths = documents.get(candidate.getKey()).lengths;
+                double length = 0.0;
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    length += weights[field] * lengths[field];
+                }
+                double norm = K1 * (1.0 - B + B * length / averageLength);
+
+                double score = 0.0;
+                double[] tfs = candidate.getValue();
+                for (int t = 0; t < tfs.length; t++) {
+                    score += idf[t] * tfs[t] * (K1 + 1.0) / (tfs[t] + norm);
+                }
+                if (score > 0.0) {
+                    hits.add(new Hit(candidate.getKey(), score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort(Comparator.comparingDouble(Hit::getScore).reversed().thenComparing(Hit::getThreadId,
+                Comparator.reverseOrder()));
+        return hits;
+    }
+
+    /**
+     * Add one term's postings to the per-thread frequencies. The first term
+     * admits threads passing the filters; later terms only update threads that
+     * are still candidates. Every live thread holding the term counts towards
+     * its document frequency.
+     */
+    private void accumulate(PostingList list, int term, double[] weights, String course, boolean seed,
+            Set<Long> containing, Map<Long, double[]> candidates, int termCount) {
+        if (list == null) {
+            return;
+        }
+        for (int i = 0; i < list.size; i++) {
+            int docId = list.docs[i];
+            if (deletedDocs.get(docId)) {
+                continue;
+            }
+            Long threadId = docThreadIds[docId];
+            containing.add(threadId);
+
+            double[] tfs = candidates.get(threadId);
+            if (tfs == null) {
+                if (!seed) {
+                    continue;
+                }
+                ThreadDocument document = documents.get(threadId);
+                if (document == null || document.moderated
+                        || (course != null && !course.equals(document.course))) {
+                    continue;
+                }
+                tfs = new double[termCount];
+                candidates.put(threadId, tfs);
+            }
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                tfs[term] += weights[field] * list.tfs[i * FIELD_COUNT + field];
+            }
+        }
+    }
+
+    /**
+     * Serialize the index. The document table is captured under the read
+     * lock; the single compacted segment is then built and written without
+     * holding any lock, so searches and writes carry on meanwhile. The
+     * compacted postings replace the live ones only if nothing changed
+     * while they were built.
+     */
+    public void writeSnapshot(DataOutputStream out, long timestamp) throws IOException {
+        List<ThreadDocument> captured = new ArrayList<>();
+        long capturedVersion;
+        lock.readLock().lock();
+        try {
+            capturedVersion = version;
+            for (ThreadDocument document : documents.values()) {
+                captured.add(document.copy());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Compaction compaction = compaction(captured);
+
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeLong(timestamp);
+
+        out.writeInt(compaction.documents.size());
+        int docId = 0;
+        for (ThreadDocument document : compaction.documents) {
+            out.writeLong(document.threadId);
+            out.writeBoolean(document.course != null);
+            if (document.course != null) {
+                out.writeUTF(document.course);
+            }
+            out.writeBoolean(document.moderated);
+            out.writeInt(document.sources.size());
+            for (Map.Entry<String, Source> entry : document.sortedSources()) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(entry.getValue().field);
+                out.writeInt(docId++);
+                out.writeInt(entry.getValue().termCounts.size());
+                for (Map.Entry<String, Integer> term : entry.getValue().termCounts.entrySet()) {
+                    out.writeUTF(term.getKey());
+                    out.writeInt(term.getValue());
+                }
+            }
+        }
+
+        out.writeInt(compaction.order.size());
+        out.writeBoolean(compaction.segment != null);
+        if (compaction.segment != null) {
+            compaction.segment.write(out);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (version == capturedVersion) {
+                install(compaction);
+                dirty = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the index contents with a snapshot and return the timestamp it
+     * was written with
+     */
+    public long readSnapshot(DataInputStream in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported search index snapshot");
+        }
+        long timestamp = in.readLong();
+
+        Map<Long, ThreadDocument> loaded = new HashMap<>();
+        int documentCount = in.readInt();
+        for (int i = 0; i < documentCount; i++) {
+            ThreadDocument document = new ThreadDocument(in.readLong());
+            document.course = in.readBoolean() ? in.readUTF() : null;
+            document.moderated = in.readBoolean();
+            int sourceCount = in.readInt();
+            for (int s = 0; s < sourceCount; s++) {
+                String key = in.readUTF();
+                int field = in.readByte();
+                int docId = in.readInt();
+                int termCount = in.readInt();
+                Map<String, Integer> termCounts = new HashMap<>(termCount * 2);
+                for (int t = 0; t < termCount; t++) {
+                    termCounts.put(in.readUTF(), in.readInt());
+                }
+                Source source = new Source(field, termCounts);
+                source.docId = docId;
+                document.sources.put(key, source);
+            }
+            loaded.put(document.threadId, document);
+        }
+
+        int docCount = in.readInt();
+        Segment segment = in.readBoolean() ? Segment.read(in) : null;
+
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            resetPostings();
+            documents.putAll(loaded);
+
+            ensureDocCapacity(docCount);
+            nextDocId = docCount;
+            deletedDocs.set(0, docCount);
+            for (ThreadDocument document : documents.values()) {
+                for (Source source : document.sources.values()) {
+                    docThreadIds[source.docId] = document.threadId;
+                    deletedDocs.clear(source.docId);
+                    countSource(document, source, 1);
+                }
+            }
+            if (segment != null) {
+                segments.add(segment);
+            }
+            version++;
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return timestamp;
+    }
+
+    private void changed() {
+        version++;
+        dirty = true;
+    }
+
+    private void addSource(ThreadDocument document, Source source) {
+        int docId = nextDocId++;
+        ensureDocCapacity(nextDocId);
+        docThreadIds[docId] = document.threadId;
+        source.docId = docId;
+        countSource(document, source, 1);
+        buffer.add(docId, source.field, source.termCounts);
+    }
+
+    private void deleteSource(ThreadDocument document, Source source) {
+        int docId = source.docId;
+        source.docId = -1;
+        if (docId < 0 || deletedDocs.get(docId)) {
+            return;
+        }
+        deletedDocs.set(docId);
+        countSource(document, source, -1);
+    }
+
+    // Apply a source's lengths to its thread and the corpus totals, sign 1 to add and -1 to remove
+    private void countSource(ThreadDocument document, Source source, int sign) {
+        document.lengths[source.field] += sign * source.length;
+        liveFieldLengths[source.field] += sign * source.length;
+        liveDocCount += sign;
+        if (sign > 0 && document.liveSources++ == 0) {
+            liveThreadCount++;
+        } else if (sign < 0 && --document.liveSources == 0) {
+            liveThreadCount--;
+        }
+    }
+
+    private void maybeFlush() {
+        if (buffer.docCount >= flushThreshold) {
+            flushBuffer();
+            if (!bulkLoading) {
+                maybeMerge();
+            }
+        }
+    }
+
+    private void flushBuffer() {
+        if (buffer.docCount > 0) {
+            segments.add(buffer.build());
+            buffer = new SegmentBuilder();
+        }
+    }
+
+    private void maybeMerge() {
+        // Renumber everything once most of the doc table is tombstones
+        if (nextDocId > 2 * liveDocCount + flushThreshold) {
+            compact();
+            return;
+        }
+
+        // Purge segments that are mostly deleted
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            if (segment.liveDocs(deletedDocs) * 2 < segment.docs.length) {
+                segments.set(i, Segment.merge(segment, null, deletedDocs));
+            }
+        }
+        segments.removeIf(segment -> segment.docs.length == 0);
+
+        // Merge the smallest adjacent pair until the segment count is bounded;
+        // adjacent segments keep doc ids ascending across the list
+        while (segments.size() > maxSegments) {
+            int best = 0;
+            int bestSize = Integer.MAX_VALUE;
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                int size = segments.get(i).docs.length + segments.get(i + 1).docs.length;
+                if (size < bestSize) {
+                    bestSize = size;
+                    best = i;
+                }
+            }
+            Segment merged = Segment.merge(segments.get(best), segments.get(best + 1), deletedDocs);
+            segments.remove(best + 1);
+            segments.set(best, merged);
+        }
+    }
+
+    /**
+     * Rebuild all postings into one segment with dense doc ids, in place
+     */
+    private void compact() {
+        install(compaction(new ArrayList<>(documents.values())));
+    }
+
+    /**
+     * Build one segment holding every source of the given documents, numbered
+     * densely by thread id and source key. Reads only the documents passed in,
+     * so it can run on a captured copy without the lock.
+     */
+    private static Compaction compaction(List<ThreadDocument> documents) {
+        documents.sort(Comparator.comparingLong(document -> document.threadId));
+        SegmentBuilder builder = new SegmentBuilder();
+        List<Source> order = new ArrayList<>();
+        List<Long> threadIds = new ArrayList<>();
+        for (ThreadDocument document : documents) {
+            for (Map.Entry<String, Source> entry : document.sortedSources()) {
+                builder.add(order.size(), entry.getValue().field, entry.getValue().termCounts);
+                order.add(entry.getValue());
+                threadIds.add(document.threadId);
+            }
+        }
+        Segment segment = builder.docCount > 0 ? builder.build() : null;
+        return new Compaction(documents, order, threadIds, segment);
+    }
+
+    /**
+     * Swap in compacted postings. Only the doc numbering changes: the sources,
+     * their lengths and the live counts are the ones the compaction was built from.
+     */
+    private void install(Compaction compaction) {
+        segments.clear();
+        buffer = new SegmentBuilder();
+        deletedDocs.clear();
+        docThreadIds = new long[Math.max(256, compaction.order.size())];
+        for (int docId = 0; docId < compaction.order.size(); docId++) {
+            compaction.order.get(docId).docId = docId;
+            docThreadIds[docId] = compaction.threadIds.get(docId);
+        }
+        nextDocId = compaction.order.size();
+        if (compaction.segment != null) {
+            segments.add(compaction.segment);
+        }
+    }
+
+    private void resetPostings() {
+        segments.clear();
+        buffer = new SegmentBuilder();
+        deletedDocs.clear();
+        nextDocId = 0;
+        liveDocCount = 0;
+        liveThreadCount = 0;
+        Arrays.fill(liveFieldLengths, 0L);
+        for (ThreadDocument document : documents.values()) {
+            Arrays.fill(document.lengths, 0);
+            document.liveSources = 0;
+            for (Source source : document.sources.values()) {
+                source.docId = -1;
+            }
+        }
+    }
+
+    private void ensureDocCapacity(int capacity) {
+        if (capacity <= docThreadIds.length) {
+            return;
+        }
+        docThreadIds = Arrays.copyOf(docThreadIds, Math.max(capacity, docThreadIds.length * 2));
+    }
+
+    // Varint encoding: 7 bits per byte, high bit set on all but the last byte
+
+    private static int writeVarInt(byte[][] holder, int position, int value) {
+        byte[] bytes = holder[0];
+        if (position + 5 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + 5));
+            holder[0] = bytes;
+        }
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    private interface PostingsSource {
+        PostingList postings(String term);
+
+        int docFreq(String term);
+    }
+
+    /**
+     * Decoded postings of one term: ascending doc ids with per-field term frequencies
+     */
+    private static final class PostingList {
+        private final int[] docs;
+        private final int[] tfs;
+        private final int size;
+
+        private PostingList(int[] docs, int[] tfs, int size) {
+            this.docs = docs;
+            this.tfs = tfs;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Mutable in-memory segment receiving newly indexed documents
+     */
+    private static final class SegmentBuilder implements PostingsSource {
+        // term -> flat (docId, tf per field) tuples in doc id order
+        private final Map<String, int[]> postings = new HashMap<>();
+        private final Map<String, Integer> postingSizes = new HashMap<>();
+        private int[] docs = new int[64];
+        private int docCount;
+
+        // A doc holds one source, so all of its terms fall in a single field
+        private void add(int docId, int field, Map<String, Integer> termCounts) {
+            if (docCount == docs.length) {
+                docs = Arrays.copyOf(docs, docCount * 2);
+            }
+            docs[docCount++] = docId;
+
+            int stride = FIELD_COUNT + 1;
+            for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+                int size = postingSizes.getOrDefault(entry.getKey(), 0);
+                int[] tuples = postings.get(entry.getKey());
+                if (tuples == null) {
+                    tuples = new int[stride * 2];
+                } else if ((size + 1) * stride > tuples.length) {
+                    tuples = Arrays.copyOf(tuples, tuples.length * 2);
+                }
+                tuples[size * stride] = docId;
+                tuples[size * stride + 1 + field] = entry.getValue();
+                postings.put(entry.getKey(), tuples);
+                postingSizes.put(entry.getKey(), size + 1);
+            }
+        }
+
+        @Override
+        public PostingList postings(String term) {
+            int[] tuples = postings.get(term);
+            if (tuples == null) {
+                return null;
+            }
+            int size = postingSizes.get(term);
+            int[] docIds = new int[size];
+            int[] tfs = new int[size * FIELD_COUNT];
+            for (int i = 0; i < size; i++) {
+                docIds[i] = tuples[i * (FIELD_COUNT + 1)];
+                System.arraycopy(tuples, i * (FIELD_COUNT + 1) + 1, tfs, i * FIELD_COUNT, FIELD_COUNT);
+            }
+            return new PostingList(docIds, tfs, size);
+        }
+
+        @Override
+        public int docFreq(String term) {
+            return postingSizes.getOrDefault(term, 0);
+        }
+
+        private Segment build() {
+            String[] terms = postings.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            Segment.Writer writer = new Segment.Writer(terms.length);
+            for (String term : terms) {
+                writer.startTerm(term);
+                PostingList list = postings(term);
+                for (int i = 0; i < list.size; i++) {
+                    writer.addPosting(list.docs[i], list.tfs, i * FIELD_COUNT);
+                }
+            }
+            return writer.finish(Arrays.copyOf(docs, docCount));
+        }
+    }
+
+    /**
+     * Immutable segment: sorted term dictionary with offsets into one byte
+     * array of postings. Each posting is the doc id delta, a byte mask of the
+     * fields containing the term and the term frequency of each such field,
+     * all as varints.
+     */
+    private static final class Segment implements PostingsSource {
+        private final String[] terms;
+        private final int[] docFreqs;
+        private final int[] offsets;
+        private final byte[] postings;
+        private final int[] docs;
+
+        private Segment(String[] terms, int[] docFreqs, int[] offsets, byte[] postings, int[] docs) {
+            this.terms = terms;
+            this.docFreqs = docFreqs;
+            this.offsets = offsets;
+            this.postings = postings;
+            this.docs = docs;
+        }
+
+        @Override
+        public int docFreq(String term) {
+            int index = Arrays.binarySearch(terms, term);
+            return index >= 0 ? docFreqs[index] : 0;
+        }
+
+        @Override
+        public PostingList postings(String term) {
+            int index = Arrays.binarySearch(terms, term);
+            return index >= 0 ? decode(index) : null;
+        }
+
+        private PostingList decode(int index) {
+            int size = docFreqs[index];
+            int[] docIds = new int[size];
+            int[] tfs = new int[size * FIELD_COUNT];
+            int[] position = { offsets[index] };
+            int docId = 0;
+            for (int i = 0; i < size; i++) {
+                docId += readVarInt(position);
+                docIds[i] = docId;
+                int mask = postings[position[0]++];
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    if ((mask & (1 << field)) != 0) {
+                        tfs[i * FIELD_COUNT + field] = readVarInt(position);
+                    }
+                }
+            }
+            return new PostingList(docIds, tfs, size);
+        }
+
+        private int readVarInt(int[] position) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[position[0]++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private int liveDocs(BitSet deletedDocs) {
+            int live = 0;
+            for (int docId : docs) {
+                if (!deletedDocs.get(docId)) {
+                    live++;
+                }
+            }
+            return live;
+        }
+
+        /**
+         * Merge two adjacent segments (older first) into one, dropping deleted
+         * documents; with newer == null the segment is only purged
+         */
+        private static Segment merge(Segment older, Segment newer, BitSet deletedDocs) {
+            TreeMap<String, List<PostingList>> termLists = new TreeMap<>();
+            for (Segment segment : newer == null ? List.of(older) : List.of(older, newer)) {
+                for (int i = 0; i < segment.terms.length; i++) {
+                    termLists.computeIfAbsent(segment.terms[i], term -> new ArrayList<>()).add(segment.decode(i));
+                }
+            }
+
+            Writer writer = new Writer(termLists.size());
+            for (Map.Entry<String, List<PostingList>> entry : termLists.entrySet()) {
+                boolean started = false;
+                for (PostingList list : entry.getValue()) {
+                    for (int i = 0; i < list.size; i++) {
+                        if (deletedDocs.get(list.docs[i])) {
+                            continue;
+                        }
+                        if (!started) {
+                            writer.startTerm(entry.getKey());
+                            started = true;
+                        }
+                        writer.addPosting(list.docs[i], list.tfs, i * FIELD_COUNT);
+                    }
+                }
+            }
+
+            int[] liveDocs = newer == null ? older.docs
+                    : Arrays.copyOf(older.docs, older.docs.length + newer.docs.length);
+            if (newer != null) {
+                System.arraycopy(newer.docs, 0, liveDocs, older.docs.length, newer.docs.length);
+            }
+            return writer.finish(Arrays.stream(liveDocs).filter(docId -> !deletedDocs.get(docId)).toArray());
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(terms.length);
+            for (int i = 0; i < terms.length; i++) {
+                out.writeUTF(terms[i]);
+                out.writeInt(docFreqs[i]);
+                out.writeInt(offsets[i]);
+            }
+            out.writeInt(postings.length);
+            out.write(postings);
+            out.writeInt(docs.length);
+            for (int docId : docs) {
+                out.writeInt(docId);
+            }
+        }
+
+        private static Segment read(DataInputStream in) throws IOException {
+            int termCount = in.readInt();
+            String[] terms = new String[termCount];
+            int[] docFreqs = new int[termCount];
+            int[] offsets = new int[termCount];
+            for (int i = 0; i < termCount; i++) {
+                terms[i] = in.readUTF();
+                docFreqs[i] = in.readInt();
+                offsets[i] = in.readInt();
+            }
+            byte[] postings = new byte[in.readInt()];
+            in.readFully(postings);
+            int[] docs = new int[in.readInt()];
+            for (int i = 0; i < docs.length; i++) {
+                docs[i] = in.readInt();
+            }
+            return new Segment(terms, docFreqs, offsets, postings, docs);
+        }
+
+        /**
+         * Appends terms in sorted order and their postings in doc id order
+         */
+        private static final class Writer {
+            private final List<String> terms;
+            private final List<Integer> docFreqs;
+            private final List<Integer> offsets;
+            private final byte[][] bytes = { new byte[1024] };
+            private int length;
+            private int previousDoc;
+
+            private Writer(int expectedTerms) {
+                terms = new ArrayList<>(expectedTerms);
+                docFreqs = new ArrayList<>(expectedTerms);
+                offsets = new ArrayList<>(expectedTerms);
+            }
+
+            private void startTerm(String term) {
+                terms.add(term);
+                docFreqs.add(0);
+                offsets.add(length);
+                previousDoc = 0;
+            }
+
+            private void addPosting(int docId, int[] tfs, int tfOffset) {
+                length = writeVarInt(bytes, length, docId - previousDoc);
+                previousDoc = docId;
+
+                int mask = 0;
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    if (tfs[tfOffset + field] > 0) {
+                        mask |= 1 << field;
+                    }
+                }
+                length = writeVarInt(bytes, length, mask);
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    if ((mask & (1 << field)) != 0) {
+                        length = writeVarInt(bytes, length, tfs[tfOffset + field]);
+                    }
+                }
+
+                int last = docFreqs.size() - 1;
+                docFreqs.set(last, docFreqs.get(last) + 1);
+            }
+
+            private Segment finish(int[] docs) {
+                int[] freqs = docFreqs.stream().mapToInt(Integer::intValue).toArray();
+                int[] starts = offsets.stream().mapToInt(Integer::intValue).toArray();
+                return new Segment(terms.toArray(new String[0]), freqs, starts, Arrays.copyOf(bytes[0], length),
+                        docs);
+            }
+        }
+    }
+
+    private static final class Source {
+        private final int field;
+        private final Map<String, Integer> termCounts;
+        private final int length;
+        // Internal doc holding this source's postings, -1 while not indexed
+        private int docId = -1;
+
+        private Source(int field, Map<String, Integer> termCounts) {
+            this.field = field;
+            this.termCounts = termCounts;
+            int total = 0;
+            for (int count : termCounts.values()) {
+                total += count;
+            }
+            this.length = total;
+        }
+    }
+
+    private static final class ThreadDocument {
+        private final long threadId;
+        private String course;
+        private boolean moderated;
+        private final Map<String, Source> sources = new HashMap<>();
+        // Field lengths summed over the live sources, and how many sources are live
+        private final int[] lengths = new int[FIELD_COUNT];
+        private int liveSources;
+
+        private ThreadDocument(long threadId) {
+            this.threadId = threadId;
+        }
+
+        // Source terms never change once stored, so a copy can share them
+        private ThreadDocument copy() {
+            ThreadDocument copy = new ThreadDocument(threadId);
+            copy.course = course;
+            copy.moderated = moderated;
+            copy.sources.putAll(sources);
+            return copy;
+        }
+
+        private Collection<Map.Entry<String, Source>> sortedSources() {
+            return new TreeMap<>(sources).entrySet();
+        }
+    }
+
+    /**
+     * Compacted postings for a list of documents: doc id i holds order[i],
+     * a source of thread threadIds[i]
+     */
+    private static final class Compaction {
+        private final List<ThreadDocument> documents;
+        private final List<Source> order;
+        private final List<Long> threadIds;
+        private final Segment segment;
+
+        private Compaction(List<ThreadDocument> documents, List<Source> order, List<Long> threadIds,
+                Segment segment) {
+            this.documents = documents;
+            this.order = order;
+            this.threadIds = threadIds;
+            this.segment = segment;
+        }
+    }
+
+    /**
+     * Matching thread with its relevance score
+     */
+    public static final class Hit {
+        private final Long threadId;
+        private final double score;
+
+        public Hit(Long threadId, double score) {
+            this.threadId = threadId;
+            this.score = score;
+        }
+
+        public Long getThreadId() {
+            return threadId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,712 @@
+package com.studymate.backend.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import com.studymate.backend.model.DiscussionThread;
+import com.studymate.backend.model.KnowledgeEntity;
+import com.studymate.backend.model.ThreadReply;
+import com.studymate.backend.repository.DiscussionThreadRepository;
+import com.studymate.backend.repository.ThreadReplyRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Full-text search over discussion threads, their replies and linked
+ * knowledge entities. On PostgreSQL, generated tsvector columns with GIN
+ * indexes are kept up to date by the database on every write and queried
+ * with ts_rank_cd and ts_headline. Elsewhere (H2, tests, or databases we
+ * cannot alter) an embedded BM25 index is used; it is updated on write and
+ * snapshotted to local disk so restarts only re-index recent changes.
+ */
+@Service
+public class ThreadSearchService {
+
+    public enum Scope {
+        THREADS, THREADS_AND_REPLIES, THREADS_REPLIES_AND_KNOWLEDGE
+    }
+
+    private static final int BOOTSTRAP_BATCH_SIZE = 500;
+    private static final float TITLE_WEIGHT = 2.0f;
+    private static final float CONTENT_WEIGHT = 1.0f;
+    private static final float REPLY_WEIGHT = 0.5f;
+    private static final float KNOWLEDGE_WEIGHT = 0.3f;
+    private static final int SNIPPET_LENGTH = 200;
+
+    // Threads updated shortly before a snapshot was written are re-indexed after loading it
+    private static final long SNAPSHOT_CATCH_UP_MARGIN_MS = 60_000;
+
+    private static final String MARK_START = "<mark>";
+    private static final String MARK_END = "</mark>";
+
+    // ts_headline marks matches with these; they survive HTML escaping and are swapped for mark tags after it
+    private static final String SENTINEL_START = "\u0002";
+    private static final String SENTINEL_END = "\u0003";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private DiscussionThreadRepository threadRepository;
+
+    @Autowired
+    private ThreadReplyRepository replyRepository;
+
+    @Autowired
+    private TextTokenizer tokenizer;
+
+    @Value("${search.fulltext.enabled:true}")
+    private boolean enabled;
+
+    // auto, postgres or embedded
+    @Value("${search.fulltext.mode:auto}")
+    private String mode;
+
+    @Value("${search.fulltext.language:english}")
+    private String language;
+
+    @Value("${search.index.flush-docs:1000}")
+    private int flushDocs;
+
+    @Value("${search.index.max-segments:8}")
+    private int maxSegments;
+
+    // Empty disables snapshots
+    @Value("${search.index.snapshot-path:data/search-index.snapshot}")
+    private String snapshotPath;
+
+    @Value("${search.index.snapshot-interval-ms:300000}")
+    private long snapshotIntervalMs;
+
+    @Autowired
+    @Qualifier("searchIndexScheduler")
+    private TaskScheduler searchIndexScheduler;
+
+    private ThreadSearchIndex embeddedIndex;
+
+    private volatile boolean nativeFullText;
+    private volatile boolean embeddedReady;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled) {
+            System.out.println("Full-text search disabled, using LIKE queries");
+            return;
+        }
+
+        boolean postgres = "postgres".equalsIgnoreCase(mode)
+                || ("auto".equalsIgnoreCase(mode) && isPostgres());
+        if (postgres && installPostgresIndexes()) {
+            nativeFullText = true;
+            System.out.println("Full-text search using PostgreSQL tsvector indexes (" + language + ")");
+            return;
+        }
+
+        embeddedIndex = new ThreadSearchIndex(
+                new float[] { TITLE_WEIGHT, CONTENT_WEIGHT, REPLY_WEIGHT, KNOWLEDGE_WEIGHT }, flushDocs, maxSegments);
+        if (!loadSnapshot()) {
+            rebuildEmbeddedIndex();
+        }
+
+        if (embeddedReady && !snapshotPath.isBlank()) {
+            searchIndexScheduler.scheduleWithFixedDelay(this::snapshotIfDirty, Duration.ofMillis(snapshotIntervalMs));
+        }
+    }
+
+    /**
+     * Write a final snapshot on graceful shutdown so the next start can skip
+     * the rebuild
+     */
+    @PreDestroy
+    public void shutdown() {
+        snapshotIfDirty();
+    }
+
+    public boolean isEnabled() {
+        return nativeFullText || embeddedReady;
+    }
+
+    public boolean isNativeFullText() {
+        return nativeFullText;
+    }
+
+    /**
+     * Check whether a search term contains anything the full-text index can
+     * match; terms made only of stop words or single letters are left to the
+     * LIKE queries
+     */
+    public boolean isSearchable(String searchTerm) {
+        return isEnabled() && !queryTerms(searchTerm).isEmpty();
+    }
+
+    /**
+     * Run a ranked search and return one page of thread ids, best match first
+     */
+    public SearchResult search(String searchTerm, String course, Scope scope, int page, int size) {
+        if (nativeFullText) {
+            return searchPostgres(searchTerm, course, scope, page, size);
+        }
+
+        List<ThreadSearchIndex.Hit> hits = embeddedIndex.search(queryTerms(searchTerm), course,
+                scope != Scope.THREADS, scope == Scope.THREADS_REPLIES_AND_KNOWLEDGE);
+
+        SearchResult result = new SearchResult(hits.size());
+        int from = Math.min(page * size, hits.size());
+        int to = Math.min(from + size, hits.size());
+        for (ThreadSearchIndex.Hit hit : hits.subList(from, to)) {
+            result.ranks.put(hit.getThreadId(), hit.getScore());
+        }
+        return result;
+    }
+
+    /**
+     * Highlight query matches in the title and content of the given threads
+     */
+    public Map<Long, Highlight> highlight(String searchTerm, List<DiscussionThread> threads) {
+        Map<Long, Highlight> highlights = new HashMap<>();
+        if (threads.isEmpty()) {
+            return highlights;
+        }
+
+        if (nativeFullText) {
+            List<Long> ids = new ArrayList<>(threads.size());
+            threads.forEach(thread -> ids.add(thread.getId()));
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("language", language)
+                    .addValue("query", searchTerm)
+                    .addValue("ids", ids)
+                    .addValue("titleOptions", "StartSel=" + SENTINEL_START + ", StopSel=" + SENTINEL_END
+                            + ", HighlightAll=true")
+                    .addValue("contentOptions", "StartSel=" + SENTINEL_START + ", StopSel=" + SENTINEL_END
+                            + ", MaxWords=35, MinWords=15, MaxFragments=2");
+            namedJdbcTemplate.query(
+                    "SELECT t.id, " +
+                            "ts_headline(CAST(:language AS regconfig), t.title, q.query, :titleOptions), " +
+                            "ts_headline(CAST(:language AS regconfig), t.content, q.query, :contentOptions) " +
+                            "FROM discussion_threads t, " +
+                            "(SELECT websearch_to_tsquery(CAST(:language AS regconfig), :query) AS query) q " +
+                            "WHERE t.id IN (:ids)",
+                    params,
+                    rs -> {
+                        highlights.put(rs.getLong(1), new Highlight(
+                                markSentinels(rs.getString(2)), markSentinels(rs.getString(3))));
+                    });
+            return highlights;
+        }
+
+        Set<String> terms = queryTerms(searchTerm);
+        for (DiscussionThread thread : threads) {
+            highlights.put(thread.getId(), new Highlight(
+                    markTerms(thread.getTitle(), terms, 0, thread.getTitle().length()),
+                    snippet(thread.getContent(), terms)));
+        }
+        return highlights;
+    }
+
+    // Write hooks for the embedded index; PostgreSQL maintains its own columns. Terms are read
+    // inside the caller's transaction and applied once it commits, so a rollback indexes nothing.
+
+    public void indexThread(DiscussionThread thread) {
+        if (!embeddedReady || thread.getId() == null) {
+            return;
+        }
+        Long threadId = thread.getId();
+        String course = thread.getCourse();
+        boolean moderated = Boolean.TRUE.equals(thread.getIsModerated());
+        Map<String, Integer> titleTerms = termCounts(thread.getTitle());
+        Map<String, Integer> contentTerms = termCounts(thread.getContent());
+        DiscussionEventBus.afterCommit(() -> {
+            embeddedIndex.updateThread(threadId, course, moderated);
+            embeddedIndex.updateSource(threadId, "title", ThreadSearchIndex.FIELD_TITLE, titleTerms);
+            embeddedIndex.updateSource(threadId, "content", ThreadSearchIndex.FIELD_CONTENT, contentTerms);
+        });
+    }
+
+    public void indexReply(ThreadReply reply) {
+        if (!embeddedReady || reply.getId() == null) {
+            return;
+        }
+        Long threadId = reply.getThread().getId();
+        String source = "reply:" + reply.getId();
+        if (Boolean.TRUE.equals(reply.getIsDeleted()) || Boolean.TRUE.equals(reply.getIsModerated())) {
+            DiscussionEventBus.afterCommit(() -> embeddedIndex.removeSource(threadId, source));
+            return;
+        }
+        Map<String, Integer> terms = termCounts(reply.getContent());
+        DiscussionEventBus.afterCommit(
+                () -> embeddedIndex.updateSource(threadId, source, ThreadSearchIndex.FIELD_REPLY, terms));
+    }
+
+    public void indexThreadEntities(DiscussionThread thread) {
+        if (!embeddedReady || thread.getId() == null) {
+            return;
+        }
+        Long threadId = thread.getId();
+        Map<String, Map<String, Integer>> sources = new HashMap<>();
+        for (KnowledgeEntity entity : thread.getKnowledgeEntities()) {
+            sources.put(String.valueOf(entity.getId()), entityTermCounts(entity.getName(), entity.getDescription()));
+        }
+        DiscussionEventBus.afterCommit(
+                () -> embeddedIndex.replaceSources(threadId, "entity:", ThreadSearchIndex.FIELD_KNOWLEDGE, sources));
+    }
+
+    /**
+     * Index or refresh only the given entities of a thread, leaving its other entity sources as they are
+     */
+    public void indexEntities(Long threadId, Collection<KnowledgeEntity> entities) {
+        if (!embeddedReady || threadId == null || entities.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Integer>> sources = new HashMap<>();
+        for (KnowledgeEntity entity : entities) {
+            sources.put("entity:" + entity.getId(), entityTermCounts(entity.getName(), entity.getDescription()));
+        }
+        DiscussionEventBus.afterCommit(() -> sources.forEach((key, terms) -> embeddedIndex.updateSource(threadId,
+                key, ThreadSearchIndex.FIELD_KNOWLEDGE, terms)));
+    }
+
+    public void removeReply(Long threadId, Long replyId) {
+        if (embeddedReady) {
+            DiscussionEventBus.afterCommit(() -> embeddedIndex.removeSource(threadId, "reply:" + replyId));
+        }
+    }
+
+    public void removeThread(Long threadId) {
+        if (embeddedReady) {
+            DiscussionEventBus.afterCommit(() -> embeddedIndex.removeThread(threadId));
+        }
+    }
+
+    /**
+     * Rebuild the embedded index from the database in batches
+     */
+    public void rebuildEmbeddedIndex() {
+        embeddedReady = false;
+        embeddedIndex.clear();
+
+        try {
+            embeddedIndex.beginBulkLoad();
+            List<Object[]> rows;
+            int page = 0;
+            do {
+                rows = threadRepository.findSearchableThreadText(PageRequest.of(page++, BOOTSTRAP_BATCH_SIZE));
+                indexThreadRows(rows);
+            } while (rows.size() == BOOTSTRAP_BATCH_SIZE);
+
+            page = 0;
+            do {
+                rows = replyRepository.findSearchableReplyText(PageRequest.of(page++, BOOTSTRAP_BATCH_SIZE));
+                indexReplyRows(rows);
+            } while (rows.size() == BOOTSTRAP_BATCH_SIZE);
+
+            page = 0;
+            do {
+                rows = threadRepository.findSearchableEntityText(PageRequest.of(page++, BOOTSTRAP_BATCH_SIZE));
+                indexEntityRows(rows);
+            } while (rows.size() == BOOTSTRAP_BATCH_SIZE);
+            embeddedIndex.endBulkLoad();
+
+            embeddedReady = true;
+            System.out.println("Embedded search index built: " + embeddedIndex.getDocumentCount()
+                    + " threads, " + embeddedIndex.getTermCount() + " terms");
+        } catch (Exception e) {
+            System.err.println("Failed to build embedded search index, using LIKE queries: " + e.getMessage());
+            embeddedIndex.clear();
+        }
+    }
+
+    /**
+     * Restore the embedded index from its snapshot, then re-index threads
+     * changed since it was written and drop threads deleted since
+     */
+    private boolean loadSnapshot() {
+        if (snapshotPath.isBlank()) {
+            return false;
+        }
+        Path path = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            long writtenAt = embeddedIndex.readSnapshot(in);
+
+            LocalDateTime since = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(writtenAt - SNAPSHOT_CATCH_UP_MARGIN_MS), ZoneId.systemDefault());
+            Set<Long> liveIds = new HashSet<>(threadRepository.findAllIds());
+            Set<Long> indexedIds = embeddedIndex.getThreadIds();
+
+            int removed = 0;
+            for (Long threadId : indexedIds) {
+                if (!liveIds.contains(threadId)) {
+                    embeddedIndex.removeThread(threadId);
+                    removed++;
+                }
+            }
+
+            Set<Long> stale = new HashSet<>(threadRepository.findIdsUpdatedSince(since));
+            for (Long threadId : liveIds) {
+                if (!indexedIds.contains(threadId)) {
+                    stale.add(threadId);
+                }
+            }
+            reindexThreads(new ArrayList<>(stale));
+
+            embeddedReady = true;
+            System.out.println("Embedded search index restored from snapshot: " + embeddedIndex.getDocumentCount()
+                    + " threads, " + stale.size() + " re-indexed, " + removed + " removed");
+            return true;
+        } catch (Exception e) {
+            System.err.println("Failed to load search index snapshot, rebuilding: " + e.getMessage());
+            embeddedIndex.clear();
+            return false;
+        }
+    }
+
+    private void reindexThreads(List<Long> threadIds) {
+        embeddedIndex.beginBulkLoad();
+        try {
+            for (int from = 0; from < threadIds.size(); from += BOOTSTRAP_BATCH_SIZE) {
+                List<Long> batch = threadIds.subList(from, Math.min(from + BOOTSTRAP_BATCH_SIZE, threadIds.size()));
+                batch.forEach(embeddedIndex::removeThread);
+                indexThreadRows(threadRepository.findSearchableThreadTextByIds(batch));
+                indexReplyRows(replyRepository.findSearchableReplyTextByThreadIds(batch));
+                indexEntityRows(threadRepository.findSearchableEntityTextByThreadIds(batch));
+            }
+        } finally {
+            embeddedIndex.endBulkLoad();
+        }
+    }
+
+    private void indexThreadRows(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            Long threadId = (Long) row[0];
+            embeddedIndex.updateThread(threadId, (String) row[1], Boolean.TRUE.equals(row[2]));
+            embeddedIndex.updateSource(threadId, "title", ThreadSearchIndex.FIELD_TITLE, termCounts((String) row[3]));
+            embeddedIndex.updateSource(threadId, "content", ThreadSearchIndex.FIELD_CONTENT,
+                    termCounts((String) row[4]));
+        }
+    }
+
+    private void indexReplyRows(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            embeddedIndex.updateSource((Long) row[1], "reply:" + row[0], ThreadSearchIndex.FIELD_REPLY,
+                    termCounts((String) row[2]));
+        }
+    }
+
+    private void indexEntityRows(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            embeddedIndex.updateSource((Long) row[0], "entity:" + row[1], ThreadSearchIndex.FIELD_KNOWLEDGE,
+                    entityTermCounts((String) row[2], (String) row[3]));
+        }
+    }
+
+    /**
+     * Write the embedded index to its snapshot file if it changed; the file
+     * is replaced atomically so a crash never leaves a partial snapshot
+     */
+    public void snapshotIfDirty() {
+        if (!embeddedReady || snapshotPath.isBlank() || !embeddedIndex.isDirty()) {
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                embeddedIndex.writeSnapshot(out, System.currentTimeMillis());
+            }
+
+            Path path = Paths.get(snapshotPath).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Search index snapshot written: " + bytes.size() / 1024 + " KB");
+        } catch (Exception e) {
+            System.err.println("Failed to write search index snapshot: " + e.getMessage());
+        }
+    }
+
+    private boolean isPostgres() {
+        try {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) (Connection connection) -> connection.getMetaData()
+                            .getDatabaseProductName());
+            return product != null && product.toLowerCase().contains("postgres");
+        } catch (Exception e) {
+            System.err.println("Could not detect database for full-text search: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Add generated tsvector columns and GIN indexes. Generated columns are
+     * recomputed by PostgreSQL on every insert and update, so no application
+     * code has to keep them in sync.
+     */
+    private boolean installPostgresIndexes() {
+        if (!language.matches("[a-z_]+")) {
+            System.err.println("Invalid full-text search language: " + language);
+            return false;
+        }
+
+        String config = "'" + language + "'::regconfig";
+        try {
+            jdbcTemplate.execute("ALTER TABLE discussion_threads ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                    "GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector(" + config + ", coalesce(title, '')), 'A') || " +
+                    "setweight(to_tsvector(" + config + ", coalesce(content, '')), 'B')) STORED");
+            jdbcTemplate.execute("ALTER TABLE thread_replies ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                    "GENERATED ALWAYS AS (to_tsvector(" + config + ", coalesce(content, ''))) STORED");
+            jdbcTemplate.execute("ALTER TABLE knowledge_entities ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                    "GENERATED ALWAYS AS (" +
+                    "setweight(to_tsvector(" + config + ", coalesce(name, '')), 'A') || " +
+                    "setweight(to_tsvector(" + config + ", coalesce(description, '')), 'B')) STORED");
+
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_threads_search_vector " +
+                    "ON discussion_threads USING GIN (search_vector)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_replies_search_vector " +
+                    "ON thread_replies USING GIN (search_vector)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_entities_search_vector " +
+                    "ON knowledge_entities USING GIN (search_vector)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_thread_knowledge_entities_entity " +
+                    "ON thread_knowledge_entities (entity_id)");
+            return true;
+        } catch (Exception e) {
+            System.err.println("Failed to install PostgreSQL full-text indexes, using embedded index: "
+                    + e.getMessage());
+            return false;
+        }
+    }
+
+    private SearchResult searchPostgres(String searchTerm, String course, Scope scope, int page, int size) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("language", language)
+                .addValue("query", searchTerm)
+                .addValue("course", course)
+                .addValue("replyWeight", REPLY_WEIGHT)
+                .addValue("knowledgeWeight", KNOWLEDGE_WEIGHT)
+                .addValue("limit", size)
+                .addValue("offset", (long) page * size);
+
+        StringBuilder matches = new StringBuilder()
+                .append("WITH q AS (SELECT websearch_to_tsquery(CAST(:language AS regconfig), :query) AS query), ")
+                .append("matches AS (")
+                .append("SELECT t.id AS thread_id, ts_rank_cd(t.search_vector, q.query) AS rank ")
+                .append("FROM discussion_threads t, q WHERE t.search_vector @@ q.query");
+        if (scope != Scope.THREADS) {
+            matches.append(" UNION ALL ")
+                    .append("SELECT r.thread_id, :replyWeight * ts_rank_cd(r.search_vector, q.query) ")
+                    .append("FROM thread_replies r, q WHERE r.search_vector @@ q.query ")
+                    .append("AND r.is_deleted = false AND r.is_moderated = false");
+        }
+        if (scope == Scope.THREADS_REPLIES_AND_KNOWLEDGE) {
+            matches.append(" UNION ALL ")
+                    .append("SELECT tke.thread_id, :knowledgeWeight * ts_rank_cd(ke.search_vector, q.query) ")
+                    .append("FROM knowledge_entities ke ")
+                    .append("JOIN thread_knowledge_entities tke ON tke.entity_id = ke.id, q ")
+                    .append("WHERE ke.search_vector @@ q.query");
+        }
+        matches.append("), ranked AS (")
+                .append("SELECT m.thread_id, SUM(m.rank) AS rank FROM matches m ")
+                .append("JOIN discussion_threads t ON t.id = m.thread_id WHERE t.is_moderated = false AND t.is_deleted = false ")
+                .append(course != null ? "AND t.course = :course " : "")
+                .append("GROUP BY m.thread_id) ");
+
+        String pageSql = matches + "SELECT r.thread_id, r.rank, COUNT(*) OVER () AS total FROM ranked r " +
+                "JOIN discussion_threads t ON t.id = r.thread_id " +
+                "ORDER BY r.rank DESC, t.last_activity_at DESC LIMIT :limit OFFSET :offset";
+
+        Map<Long, Double> ranks = new LinkedHashMap<>();
+        long[] total = { 0 };
+        namedJdbcTemplate.query(pageSql, params, rs -> {
+            ranks.put(rs.getLong(1), rs.getDouble(2));
+            total[0] = rs.getLong(3);
+        });
+
+        if (ranks.isEmpty() && page > 0) {
+            // Past the last page: the window count is unavailable, so count directly
+            Long count = namedJdbcTemplate.queryForObject(matches + "SELECT COUNT(*) FROM ranked", params,
+                    Long.class);
+            total[0] = count != null ? count : 0;
+        }
+
+        SearchResult result = new SearchResult(total[0]);
+        result.ranks.putAll(ranks);
+        return result;
+    }
+
+    private Set<String> queryTerms(String searchTerm) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (searchTerm == null) {
+            return terms;
+        }
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(searchTerm);
+        for (int i = 0; i < spans.size(); i++) {
+            if (isIndexable(spans, i)) {
+                terms.add(spans.lowerCaseText(i));
+            }
+        }
+        return terms;
+    }
+
+    private Map<String, Integer> termCounts(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (text == null) {
+            return counts;
+        }
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(text);
+        for (int i = 0; i < spans.size(); i++) {
+            if (isIndexable(spans, i)) {
+                counts.merge(spans.lowerCaseText(i), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private Map<String, Integer> entityTermCounts(String name, String description) {
+        Map<String, Integer> counts = termCounts(name);
+        termCounts(description).forEach((term, count) -> counts.merge(term, count, Integer::sum));
+        return counts;
+    }
+
+    private boolean isIndexable(TextTokenizer.TokenSpans spans, int index) {
+        return spans.length(index) > 1
+                && !tokenizer.isStopWord(spans.text(), spans.offset(index), spans.length(index));
+    }
+
+    /**
+     * Cut a window of content around the first matching term
+     */
+    private String snippet(String content, Set<String> terms) {
+        if (content == null) {
+            return null;
+        }
+        int firstMatch = -1;
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(content);
+        for (int i = 0; i < spans.size(); i++) {
+            if (terms.contains(spans.lowerCaseText(i))) {
+                firstMatch = spans.offset(i);
+                break;
+            }
+        }
+
+        int start = firstMatch < 0 ? 0 : Math.max(0, firstMatch - SNIPPET_LENGTH / 4);
+        while (start > 0 && !Character.isWhitespace(content.charAt(start - 1))) {
+            start--;
+        }
+        int end = Math.min(content.length(), start + SNIPPET_LENGTH);
+
+        String marked = markTerms(content, terms, start, end);
+        return (start > 0 ? "..." : "") + marked + (end < content.length() ? "..." : "");
+    }
+
+    // Escape the headline text first so only our own mark tags reach the client as markup
+    private String markSentinels(String headline) {
+        if (headline == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(headline).replace(SENTINEL_START, MARK_START).replace(SENTINEL_END, MARK_END);
+    }
+
+    // Text between matches is HTML-escaped; only the mark tags are markup
+    private String markTerms(String text, Collection<String> terms, int start, int end) {
+        StringBuilder marked = new StringBuilder(end - start + 32);
+        int position = start;
+        TextTokenizer.TokenSpans spans = tokenizer.tokenize(text);
+        for (int i = 0; i < spans.size(); i++) {
+            int offset = spans.offset(i);
+            int tokenEnd = offset + spans.length(i);
+            if (offset < start || tokenEnd > end || !terms.contains(spans.lowerCaseText(i))) {
+                continue;
+            }
+            marked.append(HtmlUtils.htmlEscape(text.substring(position, offset))).append(MARK_START)
+                    .append(HtmlUtils.htmlEscape(text.substring(offset, tokenEnd))).append(MARK_END);
+            position = tokenEnd;
+        }
+        return marked.append(HtmlUtils.htmlEscape(text.substring(position, end))).toString();
+    }
+
+    /**
+     * One page of ranked thread ids with the total number of matches
+     */
+    public static final class SearchResult {
+        private final long totalMatches;
+        private final Map<Long, Double> ranks = new LinkedHashMap<>();
+
+        private SearchResult(long totalMatches) {
+            this.totalMatches = totalMatches;
+        }
+
+        public long getTotalMatches() {
+            return totalMatches;
+        }
+
+        public List<Long> getThreadIds() {
+            return new ArrayList<>(ranks.keySet());
+        }
+
+        public Double getRank(Long threadId) {
+            return ranks.get(threadId);
+        }
+    }
+
+    /**
+     * Title and content snippet, HTML-escaped, with matches wrapped in mark tags
+     */
+    public static final class Highlight {
+        private final String title;
+        private final String content;
+
+        public Highlight(String title, String content) {
+            this.title = title;
+            this.content = content;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.studymate.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram and prefix index over short names (knowledge entities,
+ * courses) for typeahead. Names are split into words and padded the way
+ * pg_trgm does ("  ab", " abc", "bc "), so substring and misspelled queries
+ * can be matched by trigram overlap, while a sorted key map answers plain
+ * prefix queries directly. Names are identified by their exact trimmed text;
+ * the normalized form is only used for matching, so "C++ Programming" and
+ * "C Programming" stay separate entries.
+ */
+public class TrigramIndex {
+
+    // Ranking classes, best first
+    private static final double EXACT_BONUS = 3.0;
+    private static final double PREFIX_BONUS = 2.0;
+    private static final double WORD_PREFIX_BONUS = 1.5;
+    private static final double SUBSTRING_BONUS = 1.0;
+    private static final double WEIGHT_FACTOR = 0.15;
+
+    // Slots of removed entries are null and reused by later puts
+    private final List<Entry> entries = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<String, Integer> byName = new HashMap<>();
+    // Normalized form + '\0' + name, so names sharing a normalized form stay distinct
+    private final TreeMap<String, Integer> sortedKeys = new TreeMap<>();
+    private final Map<Long, int[]> postings = new HashMap<>();
+    private final Map<Long, Integer> postingSizes = new HashMap<>();
+    private int liveCount;
+
+    // Per-thread scratch counters of shared trigrams, indexed by entry
+    private final ThreadLocal<int[]> sharedCounts = ThreadLocal.withInitial(() -> new int[0]);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Add a name or update its id, type and weight. Returns true when the
+     * name was not indexed before.
+     */
+    public boolean put(String name, Long id, String type, int weight) {
+        if (name == null || name.isBlank()) {
+            return false;
+        }
+        String display = name.trim();
+
+        lock.writeLock().lock();
+        try {
+            Integer index = byName.get(display);
+            if (index != null) {
+                Entry entry = entries.get(index);
+                entry.id = id;
+                entry.type = type;
+                entry.weight = weight;
+                return false;
+            }
+
+            Entry entry = new Entry(normalize(display), display, id, type, weight);
+            int newIndex;
+            if (freeSlots.isEmpty()) {
+                newIndex = entries.size();
+                entries.add(entry);
+            } else {
+                newIndex = freeSlots.pop();
+                entries.set(newIndex, entry);
+            }
+            byName.put(display, newIndex);
+            sortedKeys.put(entry.sortKey(), newIndex);
+            long[] trigrams = trigrams(entry.normalized);
+            entry.trigramCount = trigrams.length;
+            for (long trigram : trigrams) {
+                addPosting(trigram, newIndex);
+            }
+            liveCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adjust the weight of a name, adding it when the weight becomes positive
+     * and removing it when it drops to zero. Returns true if the set of
+     * indexed names changed.
+     */
+    public boolean adjustWeight(String name, int delta) {
+        if (name == null || name.isBlank()) {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer index = byName.get(name.trim());
+            if (index == null) {
+                return delta > 0 && put(name, null, null, delta);
+            }
+            Entry entry = entries.get(index);
+            entry.weight += delta;
+            if (entry.weight <= 0) {
+                removeEntry(index);
+                return true;
+            }
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String name) {
+        if (name == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer index = byName.get(name.trim());
+            if (index == null) {
+                return false;
+            }
+            removeEntry(index);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            freeSlots.clear();
+            byName.clear();
+            sortedKeys.clear();
+            postings.clear();
+            postingSizes.clear();
+            liveCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All indexed names in alphabetical order
+     */
+    public List<String> names() {
+        lock.readLock().lock();
+        try {
+            List<String> names = new ArrayList<>(liveCount);
+            for (Integer index : sortedKeys.values()) {
+                names.add(entries.get(index).display);
+            }
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rank names for a typeahead query: exact, prefix and substring matches
+     * first, then fuzzy matches whose trigram similarity reaches the
+     * threshold, each boosted by weight
+     */
+    public List<Match> search(String query, int limit, double minSimilarity) {
+        String normalized = normalize(query);
+        String exactName = nameKey(query);
+        List<Match> matches = new ArrayList<>();
+        if (limit <= 0) {
+            return matches;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (normalized.isEmpty()) {
+                for (Entry entry : entries) {
+                    if (entry != null) {
+                        matches.add(new Match(entry, weightBoost(entry)));
+                    }
+                }
+                return top(matches, limit);
+            }
+
+            Map<Integer, Double> scores = new HashMap<>();
+
+            // Prefix matches straight from the sorted keys; bounded, since the
+            // weight boost can only reorder within the prefix class
+            int prefixCandidates = 0;
+            for (Map.Entry<String, Integer> keyEntry : sortedKeys.tailMap(normalized, true).entrySet()) {
+                if (!keyEntry.getKey().startsWith(normalized) || prefixCandidates++ >= limit * 20) {
+                    break;
+                }
+                Entry entry = entries.get(keyEntry.getValue());
+                double bonus = nameKey(entry.display).equals(exactName) ? EXACT_BONUS : PREFIX_BONUS;
+                scores.put(keyEntry.getValue(), bonus + 1.0 + weightBoost(entry));
+            }
+
+            // Trigram overlap for word-prefix, substring and fuzzy matches. One
+            // or two letters only produce padding trigrams shared by huge
+            // posting lists, so those queries stay prefix-only.
+            if (normalized.length() >= 3) {
+                scoreTrigramMatches(normalized, minSimilarity, scores);
+            }
+
+            for (Map.Entry<Integer, Double> score : scores.entrySet()) {
+                matches.add(new Match(entries.get(score.getKey()), score.getValue()));
+            }
+            return top(matches, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scoreTrigramMatches(String normalized, double minSimilarity, Map<Integer, Double> scores) {
+        long[] queryTrigrams = trigrams(normalized);
+        int[] counts = sharedCounts.get();
+        if (counts.length < entries.size()) {
+            counts = new int[entries.size() + entries.size() / 2];
+            sharedCounts.set(counts);
+        }
+
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        for (long trigram : queryTrigrams) {
+            int[] posting = postings.get(trigram);
+            if (posting == null) {
+                continue;
+            }
+            int size = postingSizes.get(trigram);
+            for (int i = 0; i < size; i++) {
+                int index = posting[i];
+                if (counts[index]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = index;
+                }
+            }
+        }
+
+        String wordPrefix = " " + normalized;
+        for (int i = 0; i < touchedCount; i++) {
+            int index = touched[i];
+            int common = counts[index];
+            counts[index] = 0;
+
+            Entry entry = entries.get(index);
+            if (entry == null || scores.containsKey(index)) {
+                continue;
+            }
+            double similarity = (double) common / (queryTrigrams.length + entry.trigramCount - common);
+            if (entry.normalized.contains(wordPrefix)) {
+                scores.put(index, WORD_PREFIX_BONUS + similarity + weightBoost(entry));
+            } else if (entry.normalized.contains(normalized)) {
+                scores.put(index, SUBSTRING_BONUS + similarity + weightBoost(entry));
+            } else if (similarity >= minSimilarity) {
+                scores.put(index, similarity + weightBoost(entry));
+            }
+        }
+    }
+
+    private static List<Match> top(List<Match> matches, int limit) {
+        matches.sort(Comparator.comparingDouble(Match::getScore).reversed().thenComparing(Match::getName));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    private static double weightBoost(Entry entry) {
+        return WEIGHT_FACTOR * Math.log1p(Math.max(0, entry.weight));
+    }
+
+    private void removeEntry(int index) {
+        Entry entry = entries.get(index);
+        entries.set(index, null);
+        freeSlots.push(index);
+        byName.remove(entry.display);
+        sortedKeys.remove(entry.sortKey());
+        for (long trigram : trigrams(entry.normalized)) {
+            int[] posting = postings.get(trigram);
+            int size = postingSizes.get(trigram);
+            for (int i = 0; i < size; i++) {
+                if (posting[i] == index) {
+                    posting[i] = posting[size - 1];
+                    size--;
+                    break;
+                }
+            }
+            if (size == 0) {
+                postings.remove(trigram);
+                postingSizes.remove(trigram);
+            } else {
+                postingSizes.put(trigram, size);
+            }
+        }
+        liveCount--;
+    }
+
+    private void addPosting(long trigram, int index) {
+        int size = postingSizes.getOrDefault(trigram, 0);
+        int[] posting = postings.get(trigram);
+        if (posting == null) {
+            posting = new int[4];
+        } else if (size == posting.length) {
+            posting = Arrays.copyOf(posting, size * 2);
+        }
+        posting[size] = index;
+        postings.put(trigram, posting);
+        postingSizes.put(trigram, size + 1);
+    }
+
+    /**
+     * Case-folded trimmed name, symbols kept; what an exact match compares
+     */
+    static String nameKey(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lower-cased words with symbols dropped; only used for trigram and
+     * prefix matching, never to identify a name
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (space && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Distinct padded trigrams of a normalized string, packed into longs
+     */
+    static long[] trigrams(String normalized) {
+        List<Long> trigrams = new ArrayList<>();
+        for (String word : normalized.split(" ")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                long trigram = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16)
+                        | padded.charAt(i + 2);
+                if (!trigrams.contains(trigram)) {
+                    trigrams.add(trigram);
+                }
+            }
+        }
+        return trigrams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static final class Entry {
+        private final String normalized;
+        private final String display;
+        private Long id;
+        private String type;
+        private int weight;
+        private int trigramCount;
+
+        private Entry(String normalized, String display, Long id, String type, int weight) {
+            this.normalized = normalized;
+            this.display = display;
+            this.id = id;
+            this.type = type;
+            this.weight = weight;
+        }
+
+        private String sortKey() {
+            return normalized + '\0' + display;
+        }
+    }
+
+    /**
+     * Ranked typeahead match
+     */
+    public static final class Match {
+        private final String name;
+        private final Long id;
+        private final String type;
+        private final int weight;
+        private final double score;
+
+        private Match(Entry entry, double score) {
+            this.name = entry.display;
+            this.id = entry.id;
+            this.type = entry.type;
+            this.weight = entry.weight;
+            this.score = score;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
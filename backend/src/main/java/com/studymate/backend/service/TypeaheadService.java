@@ -0,0 +1,174 @@
+package com.studymate.backend.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.studymate.backend.model.KnowledgeEntity;
+import com.studymate.backend.repository.DiscussionThreadRepository;
+import com.studymate.backend.repository.KnowledgeEntityRepository;
+
+/**
+ * Typeahead for knowledge entities and courses, served from in-memory
+ * trigram indexes instead of substring LIKE scans. Results are ranked by
+ * match quality and frequency, and recent queries are kept in a small
+ * per-prefix cache.
+ */
+@Service
+public class TypeaheadService {
+
+    private static final int BOOTSTRAP_BATCH_SIZE = 1000;
+
+    @Autowired
+    private KnowledgeEntityRepository entityRepository;
+
+    @Autowired
+    private DiscussionThreadRepository threadRepository;
+
+    @Value("${typeahead.min-similarity:0.3}")
+    private double minSimilarity;
+
+    @Value("${typeahead.cache-size:512}")
+    private int cacheSize;
+
+    @Value("${typeahead.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    private final TrigramIndex entityIndex = new TrigramIndex();
+    private final TrigramIndex courseIndex = new TrigramIndex();
+
+    private volatile boolean loaded;
+
+    // "kind:limit:normalized query" -> cached matches
+    private final Map<String, CachedMatches> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedMatches> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            List<Object[]> rows;
+            int page = 0;
+            do {
+                rows = entityRepository.findTypeaheadRows(PageRequest.of(page++, BOOTSTRAP_BATCH_SIZE));
+                for (Object[] row : rows) {
+                    entityIndex.put((String) row[1], (Long) row[0], (String) row[2],
+                            row[3] != null ? ((Number) row[3]).intValue() : 0);
+                }
+            } while (rows.size() == BOOTSTRAP_BATCH_SIZE);
+
+            for (Object[] row : threadRepository.countThreadsByCourse()) {
+                courseIndex.adjustWeight((String) row[0], ((Number) row[1]).intValue());
+            }
+
+            loaded = true;
+            System.out.println("Typeahead indexes loaded: " + entityIndex.size() + " entities, "
+                    + courseIndex.size() + " courses");
+        } catch (Exception e) {
+            System.err.println("Failed to load typeahead indexes: " + e.getMessage());
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Suggest knowledge entities for a partial or misspelled name
+     */
+    public List<TrigramIndex.Match> suggestEntities(String query, int limit) {
+        return cached("entity", entityIndex, query, limit);
+    }
+
+    /**
+     * Suggest courses for a partial or misspelled name, busiest first
+     */
+    public List<TrigramIndex.Match> suggestCourses(String query, int limit) {
+        return cached("course", courseIndex, query, limit);
+    }
+
+    /**
+     * All courses with at least one thread, alphabetically
+     */
+    public List<String> getAllCourses() {
+        return courseIndex.names();
+    }
+
+    // Writes apply once the caller's transaction commits; a rolled back write never becomes a suggestion
+
+    public void recordEntity(KnowledgeEntity entity) {
+        if (entity == null || entity.getId() == null) {
+            return;
+        }
+        String name = entity.getName();
+        Long id = entity.getId();
+        String type = entity.getEntityType();
+        int frequency = entity.getFrequencyCount() != null ? entity.getFrequencyCount() : 0;
+        DiscussionEventBus.afterCommit(() -> {
+            if (entityIndex.put(name, id, type, frequency)) {
+                invalidate("entity");
+            }
+        });
+    }
+
+    public void recordThreadCreated(String course) {
+        DiscussionEventBus.afterCommit(() -> {
+            if (courseIndex.adjustWeight(course, 1)) {
+                invalidate("course");
+            }
+        });
+    }
+
+    public void recordThreadDeleted(String course) {
+        DiscussionEventBus.afterCommit(() -> {
+            if (courseIndex.adjustWeight(course, -1)) {
+                invalidate("course");
+            }
+        });
+    }
+
+    private List<TrigramIndex.Match> cached(String kind, TrigramIndex index, String query, int limit) {
+        String cacheKey = kind + ":" + limit + ":" + TrigramIndex.nameKey(query);
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedMatches cachedMatches = cache.get(cacheKey);
+            if (cachedMatches != null && now - cachedMatches.createdAt < cacheTtlMs) {
+                return cachedMatches.matches;
+            }
+        }
+
+        List<TrigramIndex.Match> matches = List.copyOf(index.search(query, limit, minSimilarity));
+        synchronized (cache) {
+            cache.put(cacheKey, new CachedMatches(matches, now));
+        }
+        return matches;
+    }
+
+    // New or removed names change results for every prefix of that kind;
+    // weight changes only reorder and are picked up when entries expire
+    private void invalidate(String kind) {
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.startsWith(kind + ":"));
+        }
+    }
+
+    private static final class CachedMatches {
+        private final List<TrigramIndex.Match> matches;
+        private final long createdAt;
+
+        private CachedMatches(List<TrigramIndex.Match> matches, long createdAt) {
+            this.matches = matches;
+            this.createdAt = createdAt;
+        }
+    }
+}
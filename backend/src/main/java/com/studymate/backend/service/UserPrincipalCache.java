@@ -0,0 +1,96 @@
+package com.studymate.backend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.studymate.backend.model.User;
+import com.studymate.backend.repository.UserRepository;
+
+/**
+ * Short-lived cache of authenticated users by id, so a request carrying a
+ * verified token does not load its user again. Entries expire after the
+ * TTL, which bounds how long a deleted user or a role change goes unseen;
+ * saves through UserService evict at once. Cached users are detached copies
+ * without the profile photo bytes and are shared between requests, so they
+ * must not be modified or saved.
+ */
+@Service
+public class UserPrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${auth.user-cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${auth.user-cache.size:10000}")
+    private int cacheSize;
+
+    private static class CachedUser {
+        final User user;
+        final long loadedAt;
+
+        CachedUser(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final Map<Long, CachedUser> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedUser> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /**
+     * The user with this id, or null if it no longer exists
+     */
+    public User get(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedUser cached = cache.get(userId);
+            if (cached != null && now - cached.loadedAt < ttlMs) {
+                return cached.user;
+            }
+        }
+
+        User user = userRepository.findById(userId).map(UserPrincipalCache::principalCopy).orElse(null);
+        synchronized (cache) {
+            if (user != null) {
+                cache.put(userId, new CachedUser(user, now));
+            } else {
+                cache.remove(userId);
+            }
+        }
+        return user;
+    }
+
+    public void evict(Long userId) {
+        synchronized (cache) {
+            cache.remove(userId);
+        }
+    }
+
+    // Everything a principal needs; photo bytes are served by ProfileController from a fresh load
+    private static User principalCopy(User user) {
+        User copy = new User(user.getUsername(), user.getEmail(), user.getPassword(), user.getFirstName(),
+                user.getLastName());
+        copy.setId(user.getId());
+        copy.setRole(user.getRole());
+        copy.setProfilePhotoUrl(user.getProfilePhotoUrl());
+        copy.setProfilePhotoContentType(user.getProfilePhotoContentType());
+        copy.setUniversityName(user.getUniversityName());
+        copy.setCurrentTerm(user.getCurrentTerm());
+        copy.setAcademicYear(user.getAcademicYear());
+        copy.setMajor(user.getMajor());
+        copy.setYearOfStudy(user.getYearOfStudy());
+        copy.setCreatedAt(user.getCreatedAt());
+        copy.setUpdatedAt(user.getUpdatedAt());
+        return copy;
+    }
+}
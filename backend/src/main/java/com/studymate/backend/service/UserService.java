@@ -14,8 +14,13 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+
     public User save(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userPrincipalCache.evict(saved.getId());
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,106 @@
+package com.studymate.backend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind thread view counter. Views are accumulated in memory per
+ * thread and flushed periodically as batched relative updates, so reading a
+ * thread never writes or locks its row.
+ */
+@Component
+public class ViewCountBuffer {
+
+    private static final String FLUSH_SQL = "UPDATE discussion_threads SET view_count = view_count + ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("viewCountScheduler")
+    private TaskScheduler viewCountScheduler;
+
+    @Value("${thread.views.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    @Value("${thread.views.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    // LongAdder stripes its cells, so views on one hot thread do not contend on a single counter
+    private final Map<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        viewCountScheduler.scheduleWithFixedDelay(this::flush, Duration.ofMillis(flushIntervalMs));
+    }
+
+    /**
+     * Flush outstanding views on graceful shutdown so none are lost
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public void recordView(Long threadId) {
+        pendingViews.computeIfAbsent(threadId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Views recorded for a thread that are not yet in the database
+     */
+    public long getPendingViews(Long threadId) {
+        LongAdder views = pendingViews.get(threadId);
+        return views != null ? views.sum() : 0;
+    }
+
+    public void discard(Long threadId) {
+        pendingViews.remove(threadId);
+    }
+
+    public synchronized void flush() {
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pendingViews.entrySet()) {
+            long views = entry.getValue().sumThenReset();
+            if (views > 0) {
+                updates.add(new Object[] { views, entry.getKey() });
+            } else if (pendingViews.remove(entry.getKey(), entry.getValue())) {
+                // Idle for a whole interval; drop the entry, keeping any view that raced the removal
+                long raced = entry.getValue().sumThenReset();
+                if (raced > 0) {
+                    updates.add(new Object[] { raced, entry.getKey() });
+                }
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        for (int start = 0; start < updates.size(); start += flushBatchSize) {
+            List<Object[]> batch = updates.subList(start, Math.min(start + flushBatchSize, updates.size()));
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            } catch (Exception e) {
+                // Put the views back so the next flush retries them
+                for (Object[] update : batch) {
+                    pendingViews.computeIfAbsent((Long) update[1], id -> new LongAdder()).add((Long) update[0]);
+                }
+                System.err.println("Failed to flush " + batch.size() + " thread view counts: " + e.getMessage());
+            }
+        }
+    }
+}
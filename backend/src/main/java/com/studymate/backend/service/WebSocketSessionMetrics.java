@@ -0,0 +1,91 @@
+package com.studymate.backend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * Counters for STOMP client send buffers: frames and bytes waiting for slow
+ * clients, frames given up by the overflow policy, sessions closed for
+ * exceeding their limits, plus the outbound channel queue and session counts.
+ */
+@Component
+public class WebSocketSessionMetrics {
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private ObjectProvider<ThreadPoolTaskExecutor> outboundExecutor;
+
+    @Autowired
+    @Qualifier("subProtocolWebSocketHandler")
+    private ObjectProvider<WebSocketHandler> webSocketHandler;
+
+    private final AtomicLong bufferedFrames = new AtomicLong();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder framesCoalesced = new LongAdder();
+    private final LongAdder sessionsTerminated = new LongAdder();
+
+    public void frameBuffered(int bytes) {
+        bufferedFrames.incrementAndGet();
+        bufferedBytes.addAndGet(bytes);
+    }
+
+    public void frameSent(int bytes) {
+        framesSent.increment();
+        unbuffer(bytes);
+    }
+
+    public void frameDropped(int bytes) {
+        framesDropped.increment();
+        unbuffer(bytes);
+    }
+
+    public void frameCoalesced(int bytes) {
+        framesCoalesced.increment();
+        unbuffer(bytes);
+    }
+
+    public void sessionTerminated() {
+        sessionsTerminated.increment();
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        WebSocketHandler handler = webSocketHandler.getIfAvailable();
+        if (handler instanceof SubProtocolWebSocketHandler) {
+            SubProtocolWebSocketHandler.Stats stats = ((SubProtocolWebSocketHandler) handler).getStats();
+            statistics.put("sessions", stats.getTotalSessions());
+            statistics.put("webSocketSessions", stats.getWebSocketSessions());
+            statistics.put("sockJsSessions", stats.getHttpStreamingSessions() + stats.getHttpPollingSessions());
+            statistics.put("limitExceededSessions", stats.getLimitExceededSessions());
+        }
+        ThreadPoolTaskExecutor executor = outboundExecutor.getIfAvailable();
+        if (executor != null) {
+            statistics.put("outboundQueueDepth", executor.getQueueSize());
+            statistics.put("outboundActiveThreads", executor.getActiveCount());
+        }
+        statistics.put("bufferedFrames", bufferedFrames.get());
+        statistics.put("bufferedBytes", bufferedBytes.get());
+        statistics.put("framesSent", framesSent.sum());
+        statistics.put("framesDropped", framesDropped.sum());
+        statistics.put("framesCoalesced", framesCoalesced.sum());
+        statistics.put("sessionsTerminated", sessionsTerminated.sum());
+        return statistics;
+    }
+
+    private void unbuffer(int bytes) {
+        bufferedFrames.decrementAndGet();
+        bufferedBytes.addAndGet(-bytes);
+    }
+}
@@ -148,16 +148,23 @@ const Discussions: React.FC = () => {
           const unsubscribeThreadCreated = discussionWS.on(
             DISCUSSION_EVENTS.THREAD_CREATED,
             (newThread) => {
-              setThreads((prev) => [newThread, ...prev]);
+              setThreads((prev) =>
+                prev.some((thread) => thread.id === newThread.id)
+                  ? prev
+                  : [{ viewCount: 0, content: "", ...newThread }, ...prev]
+              );
             }
           );
 
           const unsubscribeThreadUpdated = discussionWS.on(
             DISCUSSION_EVENTS.THREAD_UPDATED,
             (updatedThread) => {
+              // Listing feeds send deltas without content; merge onto the loaded thread
               setThreads((prev) =>
                 prev.map((thread) =>
-                  thread.id === updatedThread.id ? updatedThread : thread
+                  thread.id === updatedThread.id
+                    ? { ...thread, ...updatedThread }
+                    : thread
                 )
               );
             }
@@ -213,6 +220,20 @@ const Discussions: React.FC = () => {
     }
   }, [loadThreads, token]);
 
+  // Filtered listings only need their course (or course and topic) feed;
+  // the global feed is for the unfiltered "All Courses" view
+  useEffect(() => {
+    if (!token) return;
+
+    if (selectedCourse) {
+      const topic = selectedTopic || undefined;
+      discussionWS.subscribeToCourse(selectedCourse, topic);
+      return () => discussionWS.unsubscribeFromCourse(selectedCourse, topic);
+    }
+    discussionWS.subscribeToGlobalFeed();
+    return () => discussionWS.unsubscribeFromGlobalFeed();
+  }, [selectedCourse, selectedTopic, token]);
+
   useEffect(() => {
     if (selectedCourse) {
       loadTopics(selectedCourse);
@@ -363,24 +384,35 @@ const Discussions: React.FC = () => {
     }
   };
 
-  // Highlight search terms in text
-  const highlightSearchTerms = (text: string, searchTerm: string) => {
-    if (!searchTerm.trim()) return text;
-
-    const terms = searchTerm.trim().toLowerCase().split(/\s+/);
-    let highlightedText = text;
-
-    terms.forEach((term) => {
-      if (term.length > 1) {
-        const regex = new RegExp(`(${term})`, "gi");
-        highlightedText = highlightedText.replace(
-          regex,
-          '<mark style="background-color: rgba(187, 134, 252, 0.3); padding: 2px 4px; border-radius: 4px;">$1</mark>'
-        );
-      }
-    });
-
-    return highlightedText;
+  const escapeHtml = (text: string) =>
+    text
+      .replace(/&/g, "&amp;")
+      .replace(/</g, "&lt;")
+      .replace(/>/g, "&gt;")
+      .replace(/"/g, "&quot;")
+      .replace(/'/g, "&#39;");
+
+  // Highlight search terms in text; everything but the mark tags is escaped
+  const highlightSearchTerms = (text: string | undefined, searchTerm: string) => {
+    if (!text) return "";
+    const terms = searchTerm
+      .trim()
+      .toLowerCase()
+      .split(/\s+/)
+      .filter((term) => term.length > 1)
+      .map((term) => term.replace(/[.*+?^${}()|[\]\\]/g, "\\$&"));
+    if (terms.length === 0) return escapeHtml(text);
+
+    // Splitting on a capturing group puts the matches at the odd indexes
+    const regex = new RegExp(`(${terms.join("|")})`, "gi");
+    return text
+      .split(regex)
+      .map((part, index) =>
+        index % 2 === 1
+          ? `<mark style="background-color: rgba(187, 134, 252, 0.3); padding: 2px 4px; border-radius: 4px;">${escapeHtml(part)}</mark>`
+          : escapeHtml(part)
+      )
+      .join("");
   };
 
   const ThreadCard: React.FC<{ thread: DiscussionThread }> = ({ thread }) => (
@@ -158,7 +158,10 @@ const ThreadDetail: React.FC = () => {
           DISCUSSION_EVENTS.THREAD_UPDATED,
           (updatedThread: any) => {
             if (updatedThread.id === Number(id)) {
-              setThread(updatedThread);
+              // Listing feeds send deltas without content; merge onto the loaded thread
+              setThread((prev: any) =>
+                prev ? { ...prev, ...updatedThread } : updatedThread
+              );
             }
           }
         );
@@ -167,7 +170,10 @@ const ThreadDetail: React.FC = () => {
           DISCUSSION_EVENTS.THREAD_LOCKED,
           (updatedThread: any) => {
             if (updatedThread.id === Number(id)) {
-              setThread(updatedThread);
+              // Listing feeds send deltas without content; merge onto the loaded thread
+              setThread((prev: any) =>
+                prev ? { ...prev, ...updatedThread } : updatedThread
+              );
             }
           }
         );
@@ -176,7 +182,10 @@ const ThreadDetail: React.FC = () => {
           DISCUSSION_EVENTS.THREAD_PINNED,
           (updatedThread: any) => {
             if (updatedThread.id === Number(id)) {
-              setThread(updatedThread);
+              // Listing feeds send deltas without content; merge onto the loaded thread
+              setThread((prev: any) =>
+                prev ? { ...prev, ...updatedThread } : updatedThread
+              );
             }
           }
         );
@@ -9,6 +9,8 @@ class DiscussionWebSocketService {
   private reconnectInterval = 3000;
   private listeners: Map<string, Array<(data: any) => void>> = new Map();
   private subscriptions: Map<string, any> = new Map();
+  // Destinations pages asked for, by key; restored after every (re)connect
+  private wanted: Map<string, string> = new Map();
 
   connect(token: string) {
     if (this.client && this.client.connected) {
@@ -57,53 +59,69 @@ class DiscussionWebSocketService {
 
     console.log("🔌 Setting up WebSocket subscriptions...");
 
-    // Subscribe to general discussion updates
-    const generalSub = this.client.subscribe(
-      "/topic/discussions",
-      (message) => {
-        try {
-          console.log("📨 Received WebSocket message:", message.body);
-          const data = JSON.parse(message.body);
-          console.log("📨 Parsed WebSocket data:", data);
-          this.handleMessage(data);
-        } catch (error) {
-          console.error("Failed to parse WebSocket message:", error);
-        }
-      }
-    );
-    this.subscriptions.set("general", generalSub);
-    console.log("✅ Subscribed to /topic/discussions");
+    // Subscriptions of a previous connection died with it
+    this.subscriptions.clear();
+    this.wanted.forEach((destination, key) => this.subscribe(key, destination));
   }
 
-  subscribeToThread(threadId: number) {
+  private subscribe(key: string, destination: string) {
+    this.wanted.set(key, destination);
     if (!this.client || !this.client.connected) return;
+    if (this.subscriptions.has(key)) return;
 
-    const topicKey = `thread-${threadId}`;
-    if (this.subscriptions.has(topicKey)) return;
-
-    const threadSub = this.client.subscribe(
-      `/topic/discussions/thread/${threadId}`,
-      (message) => {
-        try {
-          const data = JSON.parse(message.body);
-          this.handleMessage(data);
-        } catch (error) {
-          console.error("Failed to parse thread WebSocket message:", error);
-        }
+    const subscription = this.client.subscribe(destination, (message) => {
+      try {
+        this.handleMessage(JSON.parse(message.body));
+      } catch (error) {
+        console.error(
+          `Failed to parse WebSocket message from ${destination}:`,
+          error
+        );
       }
-    );
-    this.subscriptions.set(topicKey, threadSub);
+    });
+    this.subscriptions.set(key, subscription);
+    console.log(`✅ Subscribed to ${destination}`);
   }
 
-  unsubscribeFromThread(threadId: number) {
-    const topicKey = `thread-${threadId}`;
-    const subscription = this.subscriptions.get(topicKey);
+  private unsubscribe(key: string) {
+    this.wanted.delete(key);
+    const subscription = this.subscriptions.get(key);
     if (subscription) {
       subscription.unsubscribe();
-      this.subscriptions.delete(topicKey);
+      this.subscriptions.delete(key);
     }
   }
 
+  // Deltas for every thread; only the unfiltered listing needs them
+  subscribeToGlobalFeed() {
+    this.subscribe("general", "/topic/discussions");
+  }
+
+  unsubscribeFromGlobalFeed() {
+    this.unsubscribe("general");
+  }
+
+  subscribeToThread(threadId: number) {
+    this.subscribe(
+      `thread-${threadId}`,
+      `/topic/discussions/thread/${threadId}`
+    );
+  }
+
+  // Deltas for one course (and optionally one topic), for course listing pages
+  subscribeToCourse(course: string, topic?: string) {
+    const destination = courseDestination(course, topic);
+    this.subscribe(destination, destination);
+  }
+
+  unsubscribeFromCourse(course: string, topic?: string) {
+    this.unsubscribe(courseDestination(course, topic));
+  }
+
+  unsubscribeFromThread(threadId: number) {
+    this.unsubscribe(`thread-${threadId}`);
+  }
+
   private attemptReconnect(token: string) {
     if (this.reconnectAttempts < this.maxReconnectAttempts) {
       this.reconnectAttempts++;
@@ -118,6 +136,12 @@ class DiscussionWebSocketService {
   }
 
   private handleMessage(data: any) {
+    // The server groups bursts of events into one batch frame
+    if (data.type === "batch" && Array.isArray(data.events)) {
+      data.events.forEach((event: any) => this.handleMessage(event));
+      return;
+    }
+
     const { type, payload } = data;
     console.log("🎯 Handling WebSocket event:", type, payload);
 
@@ -175,6 +199,7 @@ class DiscussionWebSocketService {
         subscription.unsubscribe();
       });
       this.subscriptions.clear();
+      this.wanted.clear();
 
       this.client.deactivate();
       this.client = null;
@@ -202,6 +227,10 @@ class DiscussionWebSocketService {
   }
 }
 
+const courseDestination = (course: string, topic?: string) =>
+  `/topic/discussions/course/${encodeURIComponent(course)}` +
+  (topic ? `/topic/${encodeURIComponent(topic)}` : "");
+
 // Singleton instance
 export const discussionWS = new DiscussionWebSocketService();
 